@@ -1,16 +1,34 @@
 package hr.fer.seminar.dataCollecting;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JComponent;
 
 /**
  * Canvas for showing a list of {@link DecimalPoint} on the component.
- * 
+ *
+ * Consecutive points of a stroke are joined by line segments. The
+ * drawing is kept in a back buffer to which only the points added
+ * since the last painting are drawn, so adding a point costs the same
+ * regardless of the length of the gesture, and only the area around
+ * the new segment is repainted. The buffer is redrawn from all the
+ * points only when the canvas is resized or points are removed.
+ *
+ * The points and the boundaries of the strokes are stored in a
+ * {@link StrokeBuffer}, so other threads can take snapshots of the
+ * gesture while it is being drawn. The canvas itself must be used
+ * from the event dispatch thread only, which is the only thread
+ * writing to the buffer.
+ *
  * @author Dunja Vesinger
  * @version 1.0
  *
@@ -20,25 +38,126 @@ public class Canvas extends JComponent {
     private static final long serialVersionUID = 1L;
     /**Radius of every drawn point which is shown in GUI.*/
     private static final int POINT_RADIUS = 5;
-    
-    /**List of all points contained in the current drawing.*/
-    private List<Point> points = new ArrayList<>();
+    /** Stroke the segments between the points are drawn with. */
+    private static final BasicStroke STROKE = new BasicStroke(POINT_RADIUS,
+            BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+    /**Buffer of all points contained in the current drawing.*/
+    private final StrokeBuffer points;
+
+    /** Drawing of the points which have been rendered. */
+    private transient BufferedImage buffer;
+    /** Number of points drawn to the buffer. */
+    private int renderedPoints;
+
+    /** Last added point of the current stroke or null. */
+    private Point lastPoint;
 
     /**
-     * Creates a new canvas with the given list of points.
+     * Creates a new canvas with the given buffer of points.
      * @param points Points to be shown on the canvas
      */
-    public Canvas(List<Point> points) {
+    public Canvas(StrokeBuffer points) {
         super();
         this.points=points;
     }
 
+    /**
+     * Adds a point to the current stroke and repaints only the area of
+     * the new segment.
+     *
+     * @param point Point to be added
+     */
+    public void addPoint(Point point) {
+        points.add(point.getX(), point.getY());
+
+        Point previous = lastPoint == null ? point : lastPoint;
+        lastPoint = point;
+        Rectangle dirty = new Rectangle(point);
+        dirty.add(previous);
+        dirty.grow(POINT_RADIUS, POINT_RADIUS);
+        repaint(dirty);
+    }
+
+    /**
+     * Ends the current stroke, so the next added point is not joined
+     * with the last one.
+     */
+    public void endStroke() {
+        points.endStroke();
+        lastPoint = null;
+    }
+
+    /**
+     * Removes all the points and clears the canvas.
+     */
+    public void clear() {
+        points.clear();
+        lastPoint = null;
+        buffer = null;
+        repaint();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        
-        for (Point p : points) {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+
+        StrokeBuffer.Snapshot snapshot = points.snapshot();
+        if (buffer == null || buffer.getWidth() != getWidth()
+                || buffer.getHeight() != getHeight() || renderedPoints > snapshot.size()) {
+            buffer = createBuffer();
+            renderedPoints = 0;
+        }
+        if (renderedPoints < snapshot.size()) {
+            renderPoints(snapshot);
+        }
+
+        g.drawImage(buffer, 0, 0, null);
+    }
+
+    /**
+     * Creates a transparent buffer of the size of the canvas, in the
+     * format of the screen if it is known so it is copied quickly.
+     *
+     * @return New buffer
+     */
+    private BufferedImage createBuffer() {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            return new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+        }
+        return configuration.createCompatibleImage(getWidth(), getHeight(),
+                Transparency.TRANSLUCENT);
+    }
+
+    /**
+     * Draws the points which have not been drawn yet to the buffer.
+     *
+     * @param snapshot Points of the drawing
+     */
+    private void renderPoints(StrokeBuffer.Snapshot snapshot) {
+        Graphics2D g = buffer.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setStroke(STROKE);
             g.setColor(Color.BLACK);
-            g.fillOval(p.x, p.y, POINT_RADIUS, POINT_RADIUS);
+
+            int stroke = 0;
+            for (int i = renderedPoints; i < snapshot.size(); i++) {
+                while (snapshot.getStrokeEnd(stroke) <= i) {
+                    stroke++;
+                }
+                int x = (int) snapshot.getX(i);
+                int y = (int) snapshot.getY(i);
+                int previous = i == snapshot.getStrokeStart(stroke) ? i : i - 1;
+                g.drawLine((int) snapshot.getX(previous), (int) snapshot.getY(previous), x, y);
+            }
+            renderedPoints = snapshot.size();
+        } finally {
+            g.dispose();
         }
     }
 }
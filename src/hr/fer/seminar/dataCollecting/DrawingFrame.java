@@ -9,19 +9,16 @@ import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.OptionalDouble;
-import java.util.stream.Collectors;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
@@ -37,15 +34,24 @@ import javax.swing.event.MouseInputAdapter;
 /**
  * Application used for drawing a gesture, providing basic signal
  * processing and saving gestures to files. The user can choose to
- * draw one of the given gestures from {@link Gesture} enumeration and
- * save it to file.
+ * draw one of the gestures of the default {@link GestureVocabulary} or
+ * type the name of a new gesture, and save it to file.
  * 
  * The points on canvas which gesture contains are normalised to fit
- * the range [-1, 1].
+ * the range [-1, 1]. A gesture may be drawn in several strokes, which
+ * are saved separately.
  * 
  * Each gesture is saved to a folder with the gesture name within the
- * current directory. The file name is set to current time in
- * 'yyyy_MM_dd_hh_mm_ss' format.
+ * current directory. The file name is set to current UTC time in
+ * 'yyyy_MM_dd_HH_mm_ss' format followed by a unique identifier of the
+ * gesture (see {@link ExampleFiles}).
+ * 
+ * In the bulk recording mode gestures are instead queued to a
+ * {@link GestureRecorder} which writes them to segment files in the
+ * 'recordings' directory in the background, and the canvas is cleared
+ * right away for the next gesture. The segments are converted to
+ * example files by the RecordingCompactor tool of the evaluation
+ * package.
  * 
  * @author Dunja Vesinger
  * @version 1.0
@@ -55,8 +61,14 @@ public class DrawingFrame extends JFrame {
 
     private static final long serialVersionUID = 1L;
 
+    /** Directory the bulk recordings are written to. */
+    private static final Path RECORDINGS_DIRECTORY = Paths.get("./recordings");
+
     /** Points the gesture contains. */
-    private List<Point> points = new ArrayList<>();
+    private final StrokeBuffer points = new StrokeBuffer();
+
+    /** Recorder of the bulk recording mode, created when first used. */
+    private GestureRecorder recorder;
 
     /**
      * Creates a new DrawingFrame.
@@ -95,8 +107,9 @@ public class DrawingFrame extends JFrame {
         JLabel gesturesTitle = new JLabel("Available gestures:");
         menu.add(gesturesTitle);
 
-        JComboBox<Gesture> gestures = new JComboBox<>(
-                new Gesture[] { Gesture.ALPHA, Gesture.BETA, Gesture.GAMMA, Gesture.EPSILON });
+        JComboBox<String> gestures = new JComboBox<>(
+                GestureVocabulary.createDefault().getNames().toArray(new String[0]));
+        gestures.setEditable(true);
         menu.add(gestures);
 
         JButton saveButton = new JButton("Save");
@@ -106,9 +119,23 @@ public class DrawingFrame extends JFrame {
         JButton newButton = new JButton("New");
         menu.add(newButton);
 
+        JCheckBox bulkMode = new JCheckBox("Bulk recording");
+        menu.add(bulkMode);
+
+        JLabel recordedLabel = new JLabel();
+        menu.add(recordedLabel);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                closeRecorder();
+            }
+        });
+
         canvas.addMouseListener(new MouseInputAdapter() {
             @Override
             public void mouseReleased(MouseEvent e) {
+                canvas.endStroke();
                 saveButton.setEnabled(true);
             }
         });
@@ -117,8 +144,7 @@ public class DrawingFrame extends JFrame {
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                points.add(new Point(e.getX(), e.getY()));
-                canvas.repaint();
+                canvas.addPoint(new Point(e.getX(), e.getY()));
             }
 
         });
@@ -126,8 +152,7 @@ public class DrawingFrame extends JFrame {
         newButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                points.clear();
-                canvas.repaint();
+                canvas.clear();
                 saveButton.setEnabled(false);
             }
         });
@@ -136,16 +161,29 @@ public class DrawingFrame extends JFrame {
             @Override
             public void actionPerformed(ActionEvent e) {
 
+                String gesture = String.valueOf(gestures.getSelectedItem()).trim();
+                if (!GestureVocabulary.isValidName(gesture)) {
+                    recordedLabel.setText("Invalid gesture name!");
+                    return;
+                }
                 saveButton.setEnabled(false);
-                newButton.setEnabled(false);
+                StrokeBuffer.Snapshot stroke = points.snapshot();
 
+                if (bulkMode.isSelected()) {
+                    recordGesture(stroke, gesture, recordedLabel);
+                    canvas.clear();
+                    return;
+                }
+
+                newButton.setEnabled(false);
                 SwingWorker normaliseInput = new SwingWorker() {
                     @Override
                     protected Object doInBackground() throws Exception {
 
-                        List<DecimalPoint> normalisedPoints = normalisePoints(points);
+                        double[][] normalisedPoints = normalise(stroke);
 
-                        saveGesture(normalisedPoints, gestures);
+                        saveGesture(normalisedPoints[0], normalisedPoints[1],
+                                stroke.getStrokeStarts(), gesture);
                         return null;
                     }
 
@@ -186,63 +224,90 @@ public class DrawingFrame extends JFrame {
      */
     public static List<DecimalPoint> normalisePoints(List<Point> points) {
 
-        OptionalDouble optionalAvgX = points.parallelStream().mapToDouble(p -> p.getX()).average();
-        OptionalDouble optionalAvgY = points.parallelStream().mapToDouble(p -> p.getY()).average();
-
-        Double avgX = optionalAvgX.getAsDouble();
-        Double avgY = optionalAvgY.getAsDouble();
-
-        List<DecimalPoint> normalisedPoints = points.parallelStream()
-                .map(p -> new DecimalPoint(p.getX() - avgX, p.getY() - avgY))
-                .collect(Collectors.toList());
-
-        OptionalDouble maxX = normalisedPoints.parallelStream().mapToDouble(p -> Math.abs(p.getX()))
-                .max();
-        OptionalDouble maxY = normalisedPoints.parallelStream().mapToDouble(p -> Math.abs(p.getY()))
-                .max();
-
-        Double max = Double.max(maxX.getAsDouble(), maxY.getAsDouble());
-
-        for (DecimalPoint point : normalisedPoints) {
-            point.setX(point.getX() / max);
-            point.setY(point.getY() / max);
+        List<DecimalPoint> decimalPoints = new ArrayList<>(points.size());
+        for (Point p : points) {
+            decimalPoints.add(new DecimalPoint(p.getX(), p.getY()));
         }
 
-        return normalisedPoints;
+        return Normalisation.normalisePoints(decimalPoints);
+    }
+
+    /**
+     * Normalises the points of the given snapshot so they fit in [-1,1]
+     * value range.
+     * 
+     * @param stroke Snapshot of the points the gesture contains
+     * @return Normalised x coordinates and y coordinates
+     */
+    private static double[][] normalise(StrokeBuffer.Snapshot stroke) {
+        double[] xs = new double[stroke.size()];
+        double[] ys = new double[stroke.size()];
+        stroke.copyTo(xs, ys);
+        Normalisation.normalisePoints(xs, ys, xs.length);
+        return new double[][] { xs, ys };
     }
 
     /**
      * Saves the given gesture to file with the name set to current
-     * time in 'yyyy_MM_dd_hh_mm_ss' format.
+     * time in 'yyyy_MM_dd_hh_mm_ss' format followed by a unique
+     * identifier.
      * 
-     * @param points List of points to be saved
-     * @param gestures JComboBox for selecting the type of gesture
+     * @param xs Normalised x coordinates of the points to be saved
+     * @param ys Normalised y coordinates of the points to be saved
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one
+     * @param gesture Name of the gesture
      */
-    private void saveGesture(List<DecimalPoint> points, JComboBox<Gesture> gestures) {
+    private void saveGesture(double[] xs, double[] ys, int[] strokeStarts, String gesture) {
 
-        LocalDateTime currTime = LocalDateTime.now();
-        DateTimeFormatter fileNameFormat = DateTimeFormatter.ofPattern("yyyy_MM_dd_hh_mm_ss");
-        String fileName = currTime.format(fileNameFormat);
+        RecordedGesture recordedGesture = new RecordedGesture(RecordedGesture.nextId(),
+                System.currentTimeMillis(), gesture, xs, ys, strokeStarts);
+        try {
+            ExampleFiles.write(Paths.get("."), recordedGesture);
+        } catch (IOException e1) {
+            e1.printStackTrace();
+        }
 
-        Gesture gesture = (Gesture) gestures.getSelectedItem();
-        Path saveDirectory = Paths.get(gesture.toString());
-        Path saveFile = Paths.get(gesture.toString(), fileName);
+    }
 
-        List<String> coordinates = points.parallelStream()
-                .map(p -> (new String(p.getX() + "\n" + p.getY()))).collect(Collectors.toList());
+    /**
+     * Normalises the given gesture and queues it to the recorder of the
+     * bulk recording mode.
+     * 
+     * @param stroke Snapshot of the points the gesture contains
+     * @param gesture Name of the gesture
+     * @param recordedLabel Label showing the number of recorded gestures
+     */
+    private void recordGesture(StrokeBuffer.Snapshot stroke, String gesture,
+            JLabel recordedLabel) {
+        try {
+            if (recorder == null) {
+                recorder = new GestureRecorder(RECORDINGS_DIRECTORY);
+            }
+            double[][] normalisedPoints = normalise(stroke);
+            recorder.record(gesture, normalisedPoints[0], normalisedPoints[1],
+                    stroke.getStrokeStarts());
+            recordedLabel.setText("Recorded: " + recorder.getNumOfRecorded());
+        } catch (IOException | IllegalStateException e1) {
+            e1.printStackTrace();
+            recordedLabel.setText("Recording failed!");
+        }
+    }
 
-        String outputVector = gesture.getOutputVector();
-        for (int i = 0; i < outputVector.length(); i++) {
-            coordinates.add(outputVector.substring(i, i + 1));
+    /**
+     * Writes the gestures queued in the bulk recording mode and closes
+     * the recorder.
+     */
+    private void closeRecorder() {
+        if (recorder == null) {
+            return;
         }
         try {
-            Files.createDirectories(saveDirectory);
-            Files.createFile(saveFile);
-            Files.write(saveFile, coordinates, Charset.forName("UTF-8"));
+            recorder.close();
         } catch (IOException e1) {
             e1.printStackTrace();
         }
-
+        recorder = null;
     }
 
 }
@@ -0,0 +1,103 @@
+package hr.fer.seminar.dataCollecting;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class containing methods for writing gestures in the layout
+ * the examples are loaded from: one text file per gesture in a
+ * directory named after the gesture, containing the x and y coordinate
+ * of every point on its own line followed by a line with the name of
+ * the gesture, which is turned into a label by the
+ * {@link GestureVocabulary} the examples are loaded with. The strokes
+ * of a gesture of several strokes are separated by a
+ * {@value #STROKE_SEPARATOR} line.
+ *
+ * File names start with the UTC time the gesture was recorded in
+ * 'yyyy_MM_dd_HH_mm_ss' format followed by the identifier of the
+ * gesture, so gestures recorded within the same second do not
+ * overwrite each other and a gesture gets the same file name on every
+ * machine.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class ExampleFiles {
+
+    /**
+     * Prefix of the line with the name of the gesture, which
+     * distinguishes it from the coordinates.
+     */
+    public static final String LABEL_PREFIX = "label=";
+    /** Line written between the points of two strokes. */
+    public static final String STROKE_SEPARATOR = "pen-up";
+
+    /** Format of the time in file names. */
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy_MM_dd_HH_mm_ss").withZone(ZoneOffset.UTC);
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private ExampleFiles() {
+
+    }
+
+    /**
+     * Returns the name of the file of the gesture recorded at the given
+     * time with the given identifier.
+     *
+     * @param time Time the gesture was recorded in milliseconds since
+     *        the epoch
+     * @param id Unique identifier of the gesture
+     * @return File name
+     */
+    public static String fileName(long time, long id) {
+        return FILE_NAME_FORMAT.format(Instant.ofEpochMilli(time)) + "_"
+                + String.format("%016x", id);
+    }
+
+    /**
+     * Writes the given gesture to a new file in the directory of the
+     * gesture within the given directory.
+     *
+     * @param root Directory containing the directories of the gestures
+     * @param gesture Recorded gesture
+     * @return Written file
+     * @throws java.nio.file.FileAlreadyExistsException If the file of
+     *         the gesture already exists
+     * @throws IOException If writing fails
+     */
+    public static Path write(Path root, RecordedGesture gesture) throws IOException {
+        Path directory = root.resolve(gesture.getGesture());
+        Path file = directory.resolve(fileName(gesture.getTime(), gesture.getId()));
+
+        int[] strokeStarts = gesture.getStrokeStarts();
+        List<String> lines = new ArrayList<>(2 * gesture.size() + strokeStarts.length + 1);
+        int stroke = 0;
+        for (int i = 0; i < gesture.size(); i++) {
+            if (stroke < strokeStarts.length && strokeStarts[stroke] == i) {
+                lines.add(STROKE_SEPARATOR);
+                stroke++;
+            }
+            lines.add(String.valueOf(gesture.getXs()[i]));
+            lines.add(String.valueOf(gesture.getYs()[i]));
+        }
+        lines.add(LABEL_PREFIX + gesture.getGesture());
+
+        Files.createDirectories(directory);
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        return file;
+    }
+
+}
@@ -0,0 +1,561 @@
+package hr.fer.seminar.dataCollecting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Records gestures of a data collecting session to segment files in a
+ * compact binary form without blocking the thread which records them.
+ *
+ * Recorded gestures are queued and written by a background thread
+ * which writes all the queued gestures at once and flushes them to the
+ * file when the queue is empty. When a segment grows over the given
+ * size, the next gestures are written to a new segment. The
+ * {@link SyncPolicy} decides how often the written data is forced to
+ * the disk; a segment is always forced when it is closed, unless the
+ * policy is {@link SyncPolicy#NEVER}.
+ *
+ * A segment starts with a magic number followed by the records of the
+ * gestures. Every record consists of the length of its content, the
+ * content (identifier, time, name of the gesture, number of points,
+ * their coordinates, number of stroke starts and the stroke starts) and
+ * the CRC-32 checksum of the content, so a record which was only
+ * partially written when the process stopped is recognised and ignored
+ * by {@link #readSegment(Path, Consumer)}. Records written before the
+ * stroke starts were added end after the coordinates and are read as
+ * gestures of a single stroke.
+ * The RecordingCompactor tool of the evaluation package converts the
+ * segments to the layout the examples are loaded from.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class GestureRecorder implements Closeable {
+
+    /**
+     * Policies of forcing the written gestures to the disk.
+     */
+    public enum SyncPolicy {
+        /** Written data is never forced, the system writes it when it chooses. */
+        NEVER,
+        /** Written data is forced at most once per sync interval. */
+        PERIODIC,
+        /** Written data is forced after every batch of gestures. */
+        EVERY_BATCH
+    }
+
+    /** Default size after which a new segment is started. */
+    public static final long DEFAULT_SEGMENT_SIZE = 16L << 20;
+    /** Extension of the segment files. */
+    public static final String SEGMENT_EXTENSION = ".gsr";
+
+    /** Value written at the start of every segment. */
+    private static final int MAGIC = 0x47535231;
+    /** Greatest valid length of the content of a record. */
+    private static final int MAX_RECORD_LENGTH = 64 << 20;
+    /** Size of the buffer of the segment output. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Marker queued when the recorder is closed. */
+    private static final RecordedGesture END = new RecordedGesture(0, 0, "", new double[0],
+            new double[0]);
+
+    /** Directory the segments are written to. */
+    private final Path directory;
+    /** Size after which a new segment is started. */
+    private final long segmentSize;
+    /** Policy of forcing the data to the disk. */
+    private final SyncPolicy syncPolicy;
+    /** Longest time written data stays unforced in nanoseconds. */
+    private final long syncInterval;
+    /** Gestures waiting to be written. */
+    private final BlockingQueue<RecordedGesture> queue;
+    /** Thread writing the gestures. */
+    private final Thread writer;
+    /** Prefix of the names of the segments of this recorder. */
+    private final String segmentPrefix;
+
+    /** Number of recorded gestures. */
+    private final LongAdder recorded = new LongAdder();
+    /** Number of gestures written to the segments. */
+    private final LongAdder written = new LongAdder();
+    /** Whether the recorder was closed. */
+    private volatile boolean closed;
+    /** Error which stopped the writing. */
+    private volatile IOException failure;
+
+    /** Channel of the current segment. */
+    private FileChannel channel;
+    /** Buffered output of the current segment. */
+    private DataOutputStream output;
+    /** Number of bytes written to the current segment. */
+    private long segmentBytes;
+    /** Number of segments started so far. */
+    private int numOfSegments;
+    /** Time the written data was last forced to the disk. */
+    private long lastSync;
+    /** Whether some written data was not forced to the disk. */
+    private boolean unsynced;
+    /** Buffer the content of a record is prepared in. */
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    /** Output writing to the record buffer. */
+    private final DataOutputStream recordOutput = new DataOutputStream(recordBuffer);
+    /** Checksum of the records. */
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Creates a new recorder writing segments of the default size to
+     * the given directory and forcing them to the disk every second.
+     *
+     * @param directory Directory the segments are written to
+     * @throws IOException If the directory could not be created
+     */
+    public GestureRecorder(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, SyncPolicy.PERIODIC, 1000, 1024);
+    }
+
+    /**
+     * Creates a new recorder.
+     *
+     * @param directory Directory the segments are written to
+     * @param segmentSize Size in bytes after which a new segment is
+     *        started
+     * @param syncPolicy Policy of forcing the data to the disk
+     * @param syncIntervalMillis Longest time in milliseconds written
+     *        data stays unforced with the periodic policy
+     * @param queueCapacity Greatest number of gestures waiting to be
+     *        written
+     * @throws IOException If the directory could not be created
+     * @throws IllegalArgumentException If the segment size or the queue
+     *         capacity is not positive
+     */
+    public GestureRecorder(Path directory, long segmentSize, SyncPolicy syncPolicy,
+            long syncIntervalMillis, int queueCapacity) throws IOException {
+        if (segmentSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException(
+                    "Segment size and queue capacity must be positive.");
+        }
+        Files.createDirectories(directory);
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(0, syncIntervalMillis));
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.segmentPrefix = String.format("segment-%016x-", RecordedGesture.nextId());
+
+        writer = new Thread(this::writeGestures, "gesture-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records the given normalised gesture of a single stroke. The
+     * gesture is only queued, the method blocks only if the queue of
+     * the gestures waiting to be written is full. The arrays are not
+     * copied and must not be modified afterwards.
+     *
+     * @param gesture Name of the gesture
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @return Recorded gesture with its unique identifier
+     * @throws IllegalStateException If the recorder was closed, writing
+     *         failed or the thread was interrupted while waiting
+     */
+    public RecordedGesture record(String gesture, double[] xs, double[] ys) {
+        return record(gesture, xs, ys, new int[0]);
+    }
+
+    /**
+     * Records the given normalised gesture. The gesture is only queued,
+     * the method blocks only if the queue of the gestures waiting to be
+     * written is full. The arrays are not copied and must not be
+     * modified afterwards.
+     *
+     * @param gesture Name of the gesture
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @return Recorded gesture with its unique identifier
+     * @throws IllegalStateException If the recorder was closed, writing
+     *         failed or the thread was interrupted while waiting
+     * @throws IllegalArgumentException If the stroke starts are not
+     *         valid
+     */
+    public synchronized RecordedGesture record(String gesture, double[] xs, double[] ys,
+            int[] strokeStarts) {
+        if (closed) {
+            throw new IllegalStateException("Recorder is closed.");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Recording failed.", failure);
+        }
+
+        RecordedGesture recordedGesture = new RecordedGesture(RecordedGesture.nextId(),
+                System.currentTimeMillis(), gesture, xs, ys, strokeStarts);
+        try {
+            queue.put(recordedGesture);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the recorder.", e);
+        }
+        recorded.increment();
+        return recordedGesture;
+    }
+
+    /**
+     * Returns the number of recorded gestures.
+     *
+     * @return Number of recorded gestures
+     */
+    public long getNumOfRecorded() {
+        return recorded.sum();
+    }
+
+    /**
+     * Returns the number of gestures written to the segments. The
+     * gestures may not have been forced to the disk yet.
+     *
+     * @return Number of written gestures
+     */
+    public long getNumOfWritten() {
+        return written.sum();
+    }
+
+    /**
+     * Returns the directory the segments are written to.
+     *
+     * @return Directory of the segments
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes all the recorded gestures, closes the current segment and
+     * stops the writing thread.
+     *
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(END);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads all the complete records of the given segment. Reading stops
+     * at the first record which was not completely written.
+     *
+     * @param segment Segment file
+     * @param consumer Consumer of the read gestures
+     * @return Number of read gestures
+     * @throws IOException If reading fails or the file is not a segment
+     */
+    public static int readSegment(Path segment, Consumer<RecordedGesture> consumer)
+            throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(segment), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(segment + " is not a segment of recorded gestures.");
+            }
+
+            CRC32 crc = new CRC32();
+            int count = 0;
+            while (true) {
+                byte[] content;
+                try {
+                    int length = input.readInt();
+                    if (length < 0 || length > MAX_RECORD_LENGTH) {
+                        return count;
+                    }
+                    content = new byte[length];
+                    input.readFully(content);
+                    crc.reset();
+                    crc.update(content, 0, length);
+                    if (input.readInt() != (int) crc.getValue()) {
+                        return count;
+                    }
+                } catch (EOFException e) {
+                    return count;
+                }
+
+                consumer.accept(decode(content));
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Decodes the content of a record.
+     *
+     * @param content Content of the record
+     * @return Recorded gesture
+     * @throws IOException If the content is invalid
+     */
+    private static RecordedGesture decode(byte[] content) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(content));
+        long id = input.readLong();
+        long time = input.readLong();
+        String gesture = input.readUTF();
+        int size = input.readInt();
+        if (size < 0 || size > content.length / 16) {
+            throw new IOException("Invalid number of points: " + size + ".");
+        }
+
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = input.readDouble();
+            ys[i] = input.readDouble();
+        }
+
+        int[] strokeStarts = new int[0];
+        if (input.available() > 0) {
+            int count = input.readInt();
+            if (count < 0 || count > input.available() / 4) {
+                throw new IOException("Invalid number of strokes: " + count + ".");
+            }
+            strokeStarts = new int[count];
+            for (int i = 0; i < count; i++) {
+                strokeStarts[i] = input.readInt();
+            }
+            if (!StrokeBuffer.areValidStrokeStarts(strokeStarts, size)) {
+                throw new IOException("Invalid stroke starts.");
+            }
+        }
+        return new RecordedGesture(id, time, gesture, xs, ys, strokeStarts);
+    }
+
+    /**
+     * Writes the queued gestures until the recorder is closed. Runs on
+     * the writing thread.
+     */
+    private void writeGestures() {
+        List<RecordedGesture> batch = new ArrayList<>();
+        try {
+            boolean end = false;
+            while (!end) {
+                RecordedGesture first = nextGesture();
+                if (first == null) {
+                    sync();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+
+                for (RecordedGesture gesture : batch) {
+                    if (gesture == END) {
+                        end = true;
+                        break;
+                    }
+                    write(gesture);
+                }
+                batch.clear();
+
+                if (output != null) {
+                    output.flush();
+                    unsynced = true;
+                    if (syncPolicy == SyncPolicy.EVERY_BATCH
+                            || syncPolicy == SyncPolicy.PERIODIC
+                                    && System.nanoTime() - lastSync >= syncInterval) {
+                        sync();
+                    }
+                }
+            }
+            closeSegment();
+        } catch (IOException e) {
+            failure = e;
+            closeQuietly();
+            discardUntilEnd();
+        }
+    }
+
+    /**
+     * Waits for the next queued gesture. If some written data has to be
+     * forced to the disk, waits only until it is due.
+     *
+     * @return Next gesture or null if the data is due to be forced
+     */
+    private RecordedGesture nextGesture() {
+        while (true) {
+            try {
+                if (syncPolicy == SyncPolicy.PERIODIC && unsynced) {
+                    long wait = syncInterval - (System.nanoTime() - lastSync);
+                    return queue.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                }
+                return queue.take();
+            } catch (InterruptedException e) {
+                // the writer stops only when the recorder is closed
+            }
+        }
+    }
+
+    /**
+     * Writes the given gesture to the current segment, starting a new
+     * segment if needed.
+     *
+     * @param gesture Gesture to be written
+     * @throws IOException If writing fails
+     */
+    private void write(RecordedGesture gesture) throws IOException {
+        if (output == null || segmentBytes >= segmentSize) {
+            closeSegment();
+            openSegment();
+        }
+
+        recordBuffer.reset();
+        recordOutput.writeLong(gesture.getId());
+        recordOutput.writeLong(gesture.getTime());
+        recordOutput.writeUTF(gesture.getGesture());
+        recordOutput.writeInt(gesture.size());
+        for (int i = 0; i < gesture.size(); i++) {
+            recordOutput.writeDouble(gesture.getXs()[i]);
+            recordOutput.writeDouble(gesture.getYs()[i]);
+        }
+        recordOutput.writeInt(gesture.getStrokeStarts().length);
+        for (int start : gesture.getStrokeStarts()) {
+            recordOutput.writeInt(start);
+        }
+        recordOutput.flush();
+
+        checksum.reset();
+        byte[] content = recordBuffer.toByteArray();
+        checksum.update(content, 0, content.length);
+
+        output.writeInt(content.length);
+        output.write(content);
+        output.writeInt((int) checksum.getValue());
+        segmentBytes += content.length + 8;
+        written.increment();
+    }
+
+    /**
+     * Starts a new segment.
+     *
+     * @throws IOException If the segment could not be created
+     */
+    private void openSegment() throws IOException {
+        numOfSegments++;
+        Path segment = directory.resolve(String.format("%s%06d%s", segmentPrefix, numOfSegments,
+                SEGMENT_EXTENSION));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                BUFFER_SIZE));
+        output.writeInt(MAGIC);
+        segmentBytes = 4;
+    }
+
+    /**
+     * Flushes, forces and closes the current segment if there is one.
+     *
+     * @throws IOException If writing fails
+     */
+    private void closeSegment() throws IOException {
+        if (output == null) {
+            return;
+        }
+        output.flush();
+        unsynced = true;
+        sync();
+        output.close();
+        output = null;
+        channel = null;
+    }
+
+    /**
+     * Forces the written data of the current segment to the disk,
+     * unless the policy is to never force it.
+     *
+     * @throws IOException If forcing fails
+     */
+    private void sync() throws IOException {
+        if (unsynced && syncPolicy != SyncPolicy.NEVER && channel != null) {
+            channel.force(false);
+        }
+        unsynced = false;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Closes the current segment after a failure, ignoring further
+     * errors.
+     */
+    private void closeQuietly() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                // the first error is reported
+            }
+            output = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Discards the queued gestures after a failure until the recorder
+     * is closed, so recording threads are not blocked by a full queue.
+     */
+    private void discardUntilEnd() {
+        while (true) {
+            try {
+                if (queue.take() == END) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // the writer stops only when the recorder is closed
+            }
+        }
+    }
+
+}
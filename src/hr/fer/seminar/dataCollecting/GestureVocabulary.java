@@ -0,0 +1,191 @@
+package hr.fer.seminar.dataCollecting;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the gestures which can be recognised. Every gesture is
+ * identified by its name and has a compact integer label, the index of
+ * the output neuron which recognises it. Labels are assigned in the
+ * order the gestures are registered and never change, so the
+ * vocabulary only grows.
+ *
+ * The vocabulary is usually built while the examples are loaded, from
+ * the names of the gestures stored in the example files. It can also
+ * be saved to a file with one name per line and loaded again, which
+ * fixes the labels regardless of the examples.
+ *
+ * The vocabulary can be used from multiple threads at the same time.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class GestureVocabulary {
+
+    /**
+     * Name of the file with the vocabulary of a directory of examples,
+     * one name per line in the order of the labels.
+     */
+    public static final String FILE_NAME = "vocabulary.txt";
+
+    /**
+     * Gestures of the original dataset in the order of their outputs.
+     */
+    private static final List<String> DEFAULT_NAMES = Arrays.asList("ALPHA", "BETA", "GAMMA",
+            "EPSILON");
+
+    /** Names of the gestures in the order of their labels. */
+    private final List<String> names = new ArrayList<>();
+    /** Labels of the gestures. */
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    /**
+     * Creates a new empty vocabulary.
+     */
+    public GestureVocabulary() {
+        super();
+    }
+
+    /**
+     * Creates a new vocabulary with the given gestures.
+     *
+     * @param names Names of the gestures in the order of their labels
+     * @throws IllegalArgumentException If a name is not valid
+     */
+    public GestureVocabulary(Collection<String> names) {
+        for (String name : names) {
+            register(name);
+        }
+    }
+
+    /**
+     * Creates a new vocabulary with the gestures of the original
+     * dataset (alpha, beta, gamma and epsilon), whose example files
+     * store the expected output of every gesture instead of its name.
+     *
+     * @return New vocabulary
+     */
+    public static GestureVocabulary createDefault() {
+        return new GestureVocabulary(DEFAULT_NAMES);
+    }
+
+    /**
+     * Loads a vocabulary from the given file with one name per line.
+     *
+     * @param file File containing the vocabulary
+     * @return Loaded vocabulary
+     * @throws IOException If reading fails or a name is not valid
+     */
+    public static GestureVocabulary load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        GestureVocabulary vocabulary = new GestureVocabulary();
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                vocabulary.register(line.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return vocabulary;
+    }
+
+    /**
+     * Saves the vocabulary to the given file with one name per line.
+     *
+     * @param file File the vocabulary is saved to
+     * @throws IOException If writing fails
+     */
+    public void save(Path file) throws IOException {
+        Files.write(file, getNames(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether the given name can be the name of a gesture. A
+     * name must not be empty, must not start or end with a space and
+     * must not contain line breaks or path separators, since it is also
+     * the name of the directory of the example files.
+     *
+     * @param name Name of a gesture
+     * @return True if the name is valid
+     */
+    public static boolean isValidName(String name) {
+        return name != null && !name.isEmpty() && name.trim().equals(name)
+                && !name.equals(".") && !name.equals("..")
+                && name.chars().noneMatch(c -> c == '\n' || c == '\r' || c == '/' || c == '\\');
+    }
+
+    /**
+     * Returns the label of the given gesture, registering the gesture
+     * with the next free label if it is not registered yet.
+     *
+     * @param name Name of the gesture
+     * @return Label of the gesture
+     * @throws IllegalArgumentException If the name is not valid
+     */
+    public synchronized int register(String name) {
+        Integer label = labels.get(name);
+        if (label != null) {
+            return label;
+        }
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid gesture name: '" + name + "'.");
+        }
+
+        names.add(name);
+        labels.put(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    /**
+     * Returns the label of the given gesture.
+     *
+     * @param name Name of the gesture
+     * @return Label of the gesture or -1 if it is not registered
+     */
+    public synchronized int labelOf(String name) {
+        Integer label = labels.get(name);
+        return label == null ? -1 : label;
+    }
+
+    /**
+     * Returns the name of the gesture with the given label.
+     *
+     * @param label Label of the gesture
+     * @return Name of the gesture
+     * @throws IndexOutOfBoundsException If no gesture has the label
+     */
+    public synchronized String nameOf(int label) {
+        return names.get(label);
+    }
+
+    /**
+     * Returns the number of registered gestures, which is also the
+     * number of outputs of a network recognising them.
+     *
+     * @return Number of gestures
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+
+    /**
+     * Returns the names of the gestures in the order of their labels.
+     *
+     * @return New list of the names
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<>(names);
+    }
+
+}
@@ -0,0 +1,97 @@
+package hr.fer.seminar.dataCollecting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class containing the normalisation of gesture points which
+ * does not depend on the graphical user interface, so it can be used
+ * by headless tools as well as by {@link DrawingFrame}.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class Normalisation {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private Normalisation() {
+
+    }
+
+    /**
+     * Normalises points so they fit in [-1,1] value range. The points
+     * are centred around their average and scaled by the greatest
+     * absolute coordinate, which preserves the aspect ratio of the
+     * gesture.
+     *
+     * @param points List of points the gesture contains
+     * @return List of normalised points
+     * @throws IllegalArgumentException If the list is empty
+     */
+    public static List<DecimalPoint> normalisePoints(List<DecimalPoint> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Gesture must contain at least one point.");
+        }
+
+        double avgX = points.stream().mapToDouble(p -> p.getX()).average().getAsDouble();
+        double avgY = points.stream().mapToDouble(p -> p.getY()).average().getAsDouble();
+
+        List<DecimalPoint> normalisedPoints = new ArrayList<>(points.size());
+        double max = 0;
+        for (DecimalPoint p : points) {
+            DecimalPoint normalised = new DecimalPoint(p.getX() - avgX, p.getY() - avgY);
+            max = Math.max(max, Math.max(Math.abs(normalised.getX()),
+                    Math.abs(normalised.getY())));
+            normalisedPoints.add(normalised);
+        }
+
+        for (DecimalPoint point : normalisedPoints) {
+            point.setX(point.getX() / max);
+            point.setY(point.getY() / max);
+        }
+
+        return normalisedPoints;
+    }
+
+    /**
+     * Normalises the given points in place in the same way as
+     * {@link #normalisePoints(List)}, without creating any objects.
+     *
+     * @param xs X coordinates
+     * @param ys Y coordinates
+     * @param length Number of points
+     * @throws IllegalArgumentException If there are no points
+     */
+    public static void normalisePoints(double[] xs, double[] ys, int length) {
+        if (length == 0) {
+            throw new IllegalArgumentException("Gesture must contain at least one point.");
+        }
+
+        double avgX = 0;
+        double avgY = 0;
+        for (int i = 0; i < length; i++) {
+            avgX += xs[i];
+            avgY += ys[i];
+        }
+        avgX /= length;
+        avgY /= length;
+
+        double max = 0;
+        for (int i = 0; i < length; i++) {
+            xs[i] -= avgX;
+            ys[i] -= avgY;
+            max = Math.max(max, Math.max(Math.abs(xs[i]), Math.abs(ys[i])));
+        }
+
+        if (max > 0) {
+            for (int i = 0; i < length; i++) {
+                xs[i] /= max;
+                ys[i] /= max;
+            }
+        }
+    }
+
+}
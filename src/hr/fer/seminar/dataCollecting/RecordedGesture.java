@@ -0,0 +1,162 @@
+package hr.fer.seminar.dataCollecting;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Normalised gesture recorded during a data collecting session together
+ * with its unique identifier and the time it was recorded. A gesture of
+ * several strokes keeps the index of the first point of every stroke
+ * but the first one.
+ *
+ * Identifiers consist of a random number chosen once per process in the
+ * upper 32 bits and a sequence number in the lower 32 bits, so they are
+ * unique within a process and, with overwhelming probability, between
+ * processes, regardless of how quickly the gestures are recorded.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class RecordedGesture {
+
+    /** Random part of the identifiers of this process. */
+    private static final long SESSION = (long) new SecureRandom().nextInt() << 32;
+    /** Sequence number of the last identifier. */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /** Unique identifier. */
+    private final long id;
+    /** Time the gesture was recorded in milliseconds since the epoch. */
+    private final long time;
+    /** Name of the gesture. */
+    private final String gesture;
+    /** X coordinates of the normalised points. */
+    private final double[] xs;
+    /** Y coordinates of the normalised points. */
+    private final double[] ys;
+    /** Index of the first point of every stroke but the first one. */
+    private final int[] strokeStarts;
+
+    /**
+     * Creates a new recorded gesture of a single stroke. The arrays are
+     * not copied and must not be modified afterwards.
+     *
+     * @param id Unique identifier
+     * @param time Time the gesture was recorded in milliseconds since
+     *        the epoch
+     * @param gesture Name of the gesture
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @throws IllegalArgumentException If the numbers of coordinates
+     *         differ
+     */
+    public RecordedGesture(long id, long time, String gesture, double[] xs, double[] ys) {
+        this(id, time, gesture, xs, ys, new int[0]);
+    }
+
+    /**
+     * Creates a new recorded gesture. The arrays are not copied and
+     * must not be modified afterwards.
+     *
+     * @param id Unique identifier
+     * @param time Time the gesture was recorded in milliseconds since
+     *        the epoch
+     * @param gesture Name of the gesture
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @throws IllegalArgumentException If the numbers of coordinates
+     *         differ or the stroke starts are not valid (see
+     *         {@link StrokeBuffer#areValidStrokeStarts(int[], int)})
+     */
+    public RecordedGesture(long id, long time, String gesture, double[] xs, double[] ys,
+            int[] strokeStarts) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Numbers of x and y coordinates differ.");
+        }
+        if (!StrokeBuffer.areValidStrokeStarts(strokeStarts, xs.length)) {
+            throw new IllegalArgumentException("Invalid stroke starts.");
+        }
+        this.id = id;
+        this.time = time;
+        this.gesture = gesture;
+        this.xs = xs;
+        this.ys = ys;
+        this.strokeStarts = strokeStarts;
+    }
+
+    /**
+     * Returns a new identifier unique within the process.
+     *
+     * @return Unique identifier
+     */
+    public static long nextId() {
+        return SESSION | (SEQUENCE.incrementAndGet() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the unique identifier.
+     *
+     * @return Identifier
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the time the gesture was recorded.
+     *
+     * @return Time in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the name of the gesture.
+     *
+     * @return Name of the gesture
+     */
+    public String getGesture() {
+        return gesture;
+    }
+
+    /**
+     * Returns the x coordinates of the normalised points.
+     *
+     * @return X coordinates
+     */
+    public double[] getXs() {
+        return xs;
+    }
+
+    /**
+     * Returns the y coordinates of the normalised points.
+     *
+     * @return Y coordinates
+     */
+    public double[] getYs() {
+        return ys;
+    }
+
+    /**
+     * Returns the index of the first point of every stroke but the
+     * first one.
+     *
+     * @return Stroke starts, empty for a single stroke
+     */
+    public int[] getStrokeStarts() {
+        return strokeStarts;
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return Number of points
+     */
+    public int size() {
+        return xs.length;
+    }
+
+}
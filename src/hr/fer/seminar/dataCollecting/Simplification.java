@@ -0,0 +1,304 @@
+package hr.fer.seminar.dataCollecting;
+
+/**
+ * Utility class containing methods for simplifying dense strokes, for
+ * example the ones drawn on a tablet reporting hundreds of points per
+ * second, before they are resampled. All the methods work in place on
+ * arrays of coordinates and keep the first and the last point.
+ *
+ * {@link #radialDistance(double[], double[], int, double)} runs in
+ * linear time and removes the points crowded around the previous kept
+ * point. {@link #douglasPeucker(double[], double[], int, double)}
+ * removes the points close to the line between their neighbours; it
+ * runs in O(n log n) time on average, but in quadratic time in the
+ * worst case. Neither pass removes much of a stroke whose noise is
+ * greater than the tolerance, and the radial distance pass then
+ * mispredicts a branch on most of the points, so
+ * {@link #simplify(double[], double[], int, double)} first evenly
+ * decimates the stroke to at most {@link #POINT_BUDGET} points. The
+ * time of the simplification is then bounded by the budget and does not
+ * grow with the density of the stroke. Gestures of several strokes are
+ * simplified stroke by stroke, so the ends of every stroke are kept and
+ * no segment is assumed between two strokes.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class Simplification {
+
+    /**
+     * Greatest number of points of a gesture left by the decimation
+     * which precedes the other passes of the simplification. It is
+     * still far more than the number of the representative points
+     * extracted afterwards.
+     */
+    public static final int POINT_BUDGET = 256;
+
+    /** Stack of the ranges of the current thread reused by every call. */
+    private static final ThreadLocal<int[]> STACK = ThreadLocal
+            .withInitial(() -> new int[POINT_BUDGET]);
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private Simplification() {
+
+    }
+
+    /**
+     * Simplifies the given stroke by the radial distance pass followed
+     * by the Ramer-Douglas-Peucker algorithm, both with the given
+     * tolerance. A stroke of more than {@link #POINT_BUDGET} points is
+     * evenly decimated to the budget first.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param length Number of points in the arrays
+     * @param tolerance Greatest distance of a removed point from the
+     *        simplified stroke
+     * @return Number of the remaining points, which are moved to the
+     *         start of the arrays
+     */
+    public static int simplify(double[] xs, double[] ys, int length, double tolerance) {
+        int remaining = decimate(xs, ys, 0, length, 0, POINT_BUDGET);
+        remaining = radialDistance(xs, ys, remaining, tolerance);
+        return douglasPeucker(xs, ys, remaining, tolerance);
+    }
+
+    /**
+     * Simplifies every stroke of the given gesture in the same way as
+     * {@link #simplify(double[], double[], int, double)} and moves the
+     * remaining points of all the strokes to the start of the arrays.
+     * Every stroke gets the share of the {@link #POINT_BUDGET} matching
+     * its share of the points, but at least its two ends.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param length Number of points in the arrays
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, updated to the indices of the remaining
+     *        points
+     * @param tolerance Greatest distance of a removed point from the
+     *        simplified stroke
+     * @return Number of the remaining points
+     */
+    public static int simplify(double[] xs, double[] ys, int length, int[] strokeStarts,
+            double tolerance) {
+        int kept = 0;
+        for (int stroke = 0; stroke <= strokeStarts.length; stroke++) {
+            int start = stroke == 0 ? 0 : strokeStarts[stroke - 1];
+            int end = stroke == strokeStarts.length ? length : strokeStarts[stroke];
+
+            int budget = (int) Math.max(2, (long) POINT_BUDGET * (end - start) / length);
+            int remaining = decimate(xs, ys, start, end, kept, budget);
+            remaining = radialDistance(xs, ys, kept, kept + remaining, kept, tolerance);
+            remaining = douglasPeucker(xs, ys, kept, kept + remaining, tolerance);
+            if (stroke > 0) {
+                strokeStarts[stroke - 1] = kept;
+            }
+            kept += remaining;
+        }
+        return kept;
+    }
+
+    /**
+     * Removes every point closer than the given tolerance to the last
+     * kept point. The last point of the stroke is always kept.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param length Number of points in the arrays
+     * @param tolerance Smallest distance between two kept points
+     * @return Number of the remaining points, which are moved to the
+     *         start of the arrays
+     */
+    public static int radialDistance(double[] xs, double[] ys, int length, double tolerance) {
+        return radialDistance(xs, ys, 0, length, 0, tolerance);
+    }
+
+    /**
+     * Removes every point of the given range closer than the given
+     * tolerance to the last kept point and moves the kept points to the
+     * given index, which must not be after the start of the range.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param start Index of the first point of the range
+     * @param end Index after the last point of the range
+     * @param target Index the kept points are moved to
+     * @param tolerance Smallest distance between two kept points
+     * @return Number of the remaining points
+     */
+    private static int radialDistance(double[] xs, double[] ys, int start, int end,
+            int target, double tolerance) {
+        int length = end - start;
+        if (length <= 2) {
+            for (int i = 0; i < length; i++) {
+                xs[target + i] = xs[start + i];
+                ys[target + i] = ys[start + i];
+            }
+            return length;
+        }
+
+        double squaredTolerance = tolerance * tolerance;
+        xs[target] = xs[start];
+        ys[target] = ys[start];
+        int kept = target + 1;
+        for (int i = start + 1; i < end - 1; i++) {
+            double dx = xs[i] - xs[kept - 1];
+            double dy = ys[i] - ys[kept - 1];
+            if (dx * dx + dy * dy >= squaredTolerance) {
+                xs[kept] = xs[i];
+                ys[kept] = ys[i];
+                kept++;
+            }
+        }
+        xs[kept] = xs[end - 1];
+        ys[kept] = ys[end - 1];
+        return kept + 1 - target;
+    }
+
+    /**
+     * Keeps at most the given number of points of the given range,
+     * evenly spread over the range and including its ends, and moves
+     * them to the given index, which must not be after the start of the
+     * range. Only the kept points are visited.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param start Index of the first point of the range
+     * @param end Index after the last point of the range
+     * @param target Index the kept points are moved to
+     * @param budget Greatest number of the remaining points, at least 2
+     * @return Number of the remaining points
+     */
+    private static int decimate(double[] xs, double[] ys, int start, int end, int target,
+            int budget) {
+        int length = end - start;
+        int kept = Math.min(length, budget);
+        // the indices of the kept points grow at least as fast as the
+        // ones they are moved to, so no point is overwritten before it
+        // is moved
+        for (int i = 0; i < kept; i++) {
+            int source = kept == length ? start + i
+                    : start + (int) ((long) i * (length - 1) / (budget - 1));
+            xs[target + i] = xs[source];
+            ys[target + i] = ys[source];
+        }
+        return kept;
+    }
+
+    /**
+     * Simplifies the given stroke by the Ramer-Douglas-Peucker
+     * algorithm: the point furthest from the segment between the first
+     * and the last point is kept if its distance exceeds the given
+     * tolerance, and both halves are simplified in the same way, while
+     * all the points between the ends are removed otherwise. The ranges
+     * are kept on an explicit stack reused by the calls of the current
+     * thread, so long strokes do not overflow the call stack and no
+     * memory is allocated unless the stroke is longer than every
+     * earlier one.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param length Number of points in the arrays
+     * @param tolerance Greatest distance of a removed point from the
+     *        simplified stroke
+     * @return Number of the remaining points, which are moved to the
+     *         start of the arrays
+     */
+    public static int douglasPeucker(double[] xs, double[] ys, int length, double tolerance) {
+        return douglasPeucker(xs, ys, 0, length, tolerance);
+    }
+
+    /**
+     * Simplifies the points of the given range by the
+     * Ramer-Douglas-Peucker algorithm and moves the remaining points to
+     * the start of the range.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param start Index of the first point of the range
+     * @param end Index after the last point of the range
+     * @param tolerance Greatest distance of a removed point from the
+     *        simplified stroke
+     * @return Number of the remaining points
+     */
+    private static int douglasPeucker(double[] xs, double[] ys, int start, int end,
+            double tolerance) {
+        int length = end - start;
+        if (length <= 2) {
+            return length;
+        }
+
+        // the ranges are simplified from left to right, so the kept
+        // points are moved to their place as soon as they are known and
+        // only the last point of every waiting range is on the stack;
+        // its indices are relative to the start of the range and grow
+        // towards its bottom, so it never holds more than all the points
+        int[] stack = STACK.get();
+        if (stack.length < length) {
+            stack = new int[length];
+            STACK.set(stack);
+        }
+        int top = 0;
+        stack[top++] = length - 1;
+        int first = 0;
+        int kept = 1;
+        double squaredTolerance = tolerance * tolerance;
+
+        while (top > 0) {
+            int last = stack[top - 1];
+
+            double ax = xs[start + first];
+            double ay = ys[start + first];
+            double dx = xs[start + last] - ax;
+            double dy = ys[start + last] - ay;
+            double squaredLength = dx * dx + dy * dy;
+
+            // squared distances from the segment between the ends are
+            // compared multiplied by its squared length, which avoids a
+            // division per point
+            int furthest = -1;
+            double furthestDistance = squaredLength == 0 ? squaredTolerance
+                    : squaredTolerance * squaredLength;
+            for (int i = first + 1; i < last; i++) {
+                double px = xs[start + i] - ax;
+                double py = ys[start + i] - ay;
+                double dot = px * dx + py * dy;
+                double distance;
+                if (squaredLength == 0) {
+                    distance = px * px + py * py;
+                } else if (dot <= 0) {
+                    distance = (px * px + py * py) * squaredLength;
+                } else if (dot >= squaredLength) {
+                    double qx = px - dx;
+                    double qy = py - dy;
+                    distance = (qx * qx + qy * qy) * squaredLength;
+                } else {
+                    double cross = px * dy - py * dx;
+                    distance = cross * cross;
+                }
+                if (distance > furthestDistance) {
+                    furthest = i;
+                    furthestDistance = distance;
+                }
+            }
+
+            if (furthest >= 0) {
+                stack[top++] = furthest;
+            } else {
+                // every point before the last one has already been read
+                xs[start + kept] = xs[start + last];
+                ys[start + kept] = ys[start + last];
+                kept++;
+                first = last;
+                top--;
+            }
+        }
+
+        return kept;
+    }
+
+}
@@ -0,0 +1,353 @@
+package hr.fer.seminar.dataCollecting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only buffer of the points of a drawn gesture, written by a
+ * single thread (the event dispatch thread receiving the mouse events)
+ * and read by any number of other threads.
+ *
+ * The coordinates are stored in fixed size chunks of primitive values
+ * which are never moved or overwritten, and the number of points is
+ * published through a volatile field after the coordinates are
+ * written. A reader therefore takes a {@link Snapshot} of the points
+ * added so far without locking and without copying them, and the
+ * snapshot stays valid while the writer keeps adding points or clears
+ * the buffer: clearing starts new chunks instead of reusing the old
+ * ones.
+ *
+ * A gesture may consist of several strokes, for example a letter which
+ * is crossed after it is written. The buffer keeps the index of the
+ * first point of every stroke but the first one in the same way as the
+ * points, so a snapshot knows where the pen was lifted and the gaps
+ * between the strokes are never mistaken for drawn segments.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class StrokeBuffer {
+
+    /** Binary logarithm of the number of points in a chunk. */
+    private static final int CHUNK_BITS = 9;
+    /** Number of points in a chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** Mask of the index of a point within its chunk. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Chunks of the current gesture; the x and y coordinates of a point
+     * are stored one after the other. Replaced when the directory grows
+     * and when the buffer is cleared.
+     */
+    private volatile double[][] chunks = new double[1][];
+    /** Number of published points. */
+    private volatile int size;
+    /**
+     * Index of the first point of every stroke but the first one.
+     * Replaced when it grows and when the buffer is cleared.
+     */
+    private volatile int[] strokeStarts = new int[4];
+    /** Number of published stroke starts. */
+    private volatile int numOfStrokeStarts;
+    /** Whether the next added point starts a new stroke. */
+    private boolean strokeEnded;
+
+    /**
+     * Adds a point to the buffer. Must be called only from the writing
+     * thread.
+     *
+     * @param x X coordinate of the point
+     * @param y Y coordinate of the point
+     */
+    public void add(double x, double y) {
+        int index = size;
+        int chunkIndex = index >>> CHUNK_BITS;
+
+        if (strokeEnded) {
+            strokeEnded = false;
+            if (index > 0) {
+                // published before the point, so a reader which sees the
+                // point also sees the start of its stroke
+                int[] starts = strokeStarts;
+                int count = numOfStrokeStarts;
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count] = index;
+                strokeStarts = starts;
+                numOfStrokeStarts = count + 1;
+            }
+        }
+
+        double[][] current = chunks;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            chunks = current;
+        }
+        double[] chunk = current[chunkIndex];
+        if (chunk == null) {
+            chunk = new double[2 * CHUNK_SIZE];
+            current[chunkIndex] = chunk;
+        }
+
+        int offset = 2 * (index & CHUNK_MASK);
+        chunk[offset] = x;
+        chunk[offset + 1] = y;
+        size = index + 1;
+    }
+
+    /**
+     * Ends the current stroke, so the next added point starts a new one.
+     * Must be called only from the writing thread.
+     */
+    public void endStroke() {
+        strokeEnded = true;
+    }
+
+    /**
+     * Removes all the points. The snapshots taken before remain
+     * unchanged. Must be called only from the writing thread.
+     */
+    public void clear() {
+        size = 0;
+        numOfStrokeStarts = 0;
+        strokeStarts = new int[4];
+        strokeEnded = false;
+        chunks = new double[1][];
+    }
+
+    /**
+     * Returns the number of points added so far.
+     *
+     * @return Number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the points added so far. May be called from any thread.
+     *
+     * @return Snapshot of the points
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            double[][] current = chunks;
+            int[] starts = strokeStarts;
+            int length = size;
+            int count = Math.min(numOfStrokeStarts, starts.length);
+            // the size belongs to the chunks and the stroke starts only if
+            // they were not replaced meanwhile
+            if (chunks == current && strokeStarts == starts) {
+                // strokes started after the size was read are left out
+                while (count > 0 && starts[count - 1] >= length) {
+                    count--;
+                }
+                return new Snapshot(current, length, starts, count);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given array can hold the stroke starts of a
+     * gesture with the given number of points: every index starts a
+     * non-empty stroke following another non-empty one.
+     *
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one
+     * @param size Number of points
+     * @return True if the indices are increasing and in range
+     *         [1, size - 1]
+     */
+    public static boolean areValidStrokeStarts(int[] strokeStarts, int size) {
+        int previous = 0;
+        for (int start : strokeStarts) {
+            if (start <= previous || start >= size) {
+                return false;
+            }
+            previous = start;
+        }
+        return true;
+    }
+
+    /**
+     * Immutable view of the points which were in the buffer when the
+     * snapshot was taken.
+     */
+    public static final class Snapshot {
+        /** Chunks containing the points. */
+        private final double[][] chunks;
+        /** Number of points. */
+        private final int size;
+        /** Index of the first point of every stroke but the first one. */
+        private final int[] strokeStarts;
+        /** Number of the stroke starts belonging to the snapshot. */
+        private final int numOfStrokeStarts;
+
+        /**
+         * Creates a new snapshot.
+         *
+         * @param chunks Chunks containing the points
+         * @param size Number of points
+         * @param strokeStarts Index of the first point of every stroke
+         *        but the first one
+         * @param numOfStrokeStarts Number of the stroke starts belonging
+         *        to the snapshot
+         */
+        private Snapshot(double[][] chunks, int size, int[] strokeStarts,
+                int numOfStrokeStarts) {
+            this.chunks = chunks;
+            this.size = size;
+            this.strokeStarts = strokeStarts;
+            this.numOfStrokeStarts = numOfStrokeStarts;
+        }
+
+        /**
+         * Returns the number of points.
+         *
+         * @return Number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Checks whether the snapshot contains no points.
+         *
+         * @return True if there are no points
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Returns the number of strokes.
+         *
+         * @return Number of strokes or 0 if there are no points
+         */
+        public int getNumOfStrokes() {
+            return size == 0 ? 0 : numOfStrokeStarts + 1;
+        }
+
+        /**
+         * Returns the index of the first point of the given stroke.
+         *
+         * @param stroke Index of the stroke
+         * @return Index of the first point
+         * @throws IndexOutOfBoundsException If there is no such stroke
+         */
+        public int getStrokeStart(int stroke) {
+            checkStroke(stroke);
+            return stroke == 0 ? 0 : strokeStarts[stroke - 1];
+        }
+
+        /**
+         * Returns the index following the last point of the given
+         * stroke.
+         *
+         * @param stroke Index of the stroke
+         * @return Index after the last point
+         * @throws IndexOutOfBoundsException If there is no such stroke
+         */
+        public int getStrokeEnd(int stroke) {
+            checkStroke(stroke);
+            return stroke == numOfStrokeStarts ? size : strokeStarts[stroke];
+        }
+
+        /**
+         * Returns the index of the first point of every stroke but the
+         * first one, in the form used by
+         * {@link hr.fer.seminar.recognition.GestureExample}.
+         *
+         * @return New array of the stroke starts, empty for a single
+         *         stroke
+         */
+        public int[] getStrokeStarts() {
+            return Arrays.copyOf(strokeStarts, numOfStrokeStarts);
+        }
+
+        /**
+         * Returns the x coordinate of the point with the given index.
+         *
+         * @param index Index of the point
+         * @return X coordinate
+         * @throws IndexOutOfBoundsException If there is no such point
+         */
+        public double getX(int index) {
+            checkIndex(index);
+            return chunks[index >>> CHUNK_BITS][2 * (index & CHUNK_MASK)];
+        }
+
+        /**
+         * Returns the y coordinate of the point with the given index.
+         *
+         * @param index Index of the point
+         * @return Y coordinate
+         * @throws IndexOutOfBoundsException If there is no such point
+         */
+        public double getY(int index) {
+            checkIndex(index);
+            return chunks[index >>> CHUNK_BITS][2 * (index & CHUNK_MASK) + 1];
+        }
+
+        /**
+         * Copies the coordinates of the points to the given arrays.
+         *
+         * @param xs Array of at least {@link #size()} elements the x
+         *        coordinates are stored to
+         * @param ys Array of at least {@link #size()} elements the y
+         *        coordinates are stored to
+         */
+        public void copyTo(double[] xs, double[] ys) {
+            for (int start = 0; start < size; start += CHUNK_SIZE) {
+                double[] chunk = chunks[start >>> CHUNK_BITS];
+                int end = Math.min(size - start, CHUNK_SIZE);
+                for (int i = 0; i < end; i++) {
+                    xs[start + i] = chunk[2 * i];
+                    ys[start + i] = chunk[2 * i + 1];
+                }
+            }
+        }
+
+        /**
+         * Creates a list of the points.
+         *
+         * @return New list of the points
+         */
+        public List<DecimalPoint> toDecimalPoints() {
+            List<DecimalPoint> points = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                points.add(new DecimalPoint(getX(i), getY(i)));
+            }
+            return points;
+        }
+
+        /**
+         * Checks that a stroke with the given index exists.
+         *
+         * @param stroke Index of the stroke
+         * @throws IndexOutOfBoundsException If there is no such stroke
+         */
+        private void checkStroke(int stroke) {
+            if (stroke < 0 || stroke >= getNumOfStrokes()) {
+                throw new IndexOutOfBoundsException("Stroke: " + stroke + ", strokes: "
+                        + getNumOfStrokes());
+            }
+        }
+
+        /**
+         * Checks that a point with the given index exists.
+         *
+         * @param index Index of the point
+         * @throws IndexOutOfBoundsException If there is no such point
+         */
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+        }
+    }
+
+}
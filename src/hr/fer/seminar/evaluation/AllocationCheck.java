@@ -0,0 +1,104 @@
+package hr.fer.seminar.evaluation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.TrainingContext;
+import hr.fer.seminar.neuralNetwork.TrainingListener;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+
+/**
+ * Headless check that training does not allocate memory in its epochs
+ * once it is warmed up. The tool trains a network with a single
+ * {@link TrainingContext}, first for the given number of epochs to
+ * warm up, and then measures the bytes allocated by the current thread
+ * during a training of one epoch and during a training of the given
+ * number of epochs. The difference divided by the number of additional
+ * epochs is the allocation per epoch, without the constant cost of
+ * starting a training.
+ *
+ * The check prints the allocation per epoch and exits with status 1
+ * if it is above the threshold, so it can be run by a build. It needs
+ * a JVM which measures the allocation of a thread.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --train       directory with learning examples (default ./learningExamples)
+ * --points      number of representative points (default 10)
+ * --hidden      number of hidden layer neurons (default 5)
+ * --rate        learning rate (default 1)
+ * --warmup      number of epochs trained before measuring (default 5000)
+ * --epochs      number of measured epochs (default 5000)
+ * --threshold   greatest allowed number of bytes per epoch (default 1)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class AllocationCheck {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private AllocationCheck() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Allocation of a thread can not be measured by this JVM.");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        DataSet dataSet = DataSet.load(arguments.getPath("train", "./learningExamples"),
+                vocabulary, arguments.getInt("points", 10));
+        NeuralNetwork network = new NeuralNetwork(dataSet.getNumOfInputs(),
+                arguments.getInt("hidden", 5), vocabulary.size(), WeightInitializer.XAVIER, 0);
+        TrainingContext context = new TrainingContext(network, dataSet.size());
+        int rate = arguments.getInt("rate", 1);
+        int epochs = arguments.getInt("epochs", 5000);
+        double threshold = arguments.getDouble("threshold", 1);
+
+        NeuralNetworkTrainer.train(network, dataSet.getInputs(), dataSet.getExpectedOutputs(),
+                arguments.getInt("warmup", 5000), rate, context, TrainingListener.NONE);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        NeuralNetworkTrainer.train(network, dataSet.getInputs(), dataSet.getExpectedOutputs(),
+                1, rate, context, TrainingListener.NONE);
+        long single = threads.getThreadAllocatedBytes(thread) - before;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        NeuralNetworkTrainer.train(network, dataSet.getInputs(), dataSet.getExpectedOutputs(),
+                epochs, rate, context, TrainingListener.NONE);
+        long all = threads.getThreadAllocatedBytes(thread) - before;
+
+        double perEpoch = (double) (all - single) / Math.max(1, epochs - 1);
+        System.out.println(String.format(Locale.ROOT,
+                "%d bytes for 1 epoch, %d bytes for %d epochs, %.3f bytes per epoch", single,
+                all, epochs, perEpoch));
+        if (perEpoch > threshold) {
+            System.out.println(String.format(Locale.ROOT,
+                    "FAILED: more than %.3f bytes allocated per epoch", threshold));
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+}
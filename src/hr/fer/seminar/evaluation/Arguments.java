@@ -0,0 +1,173 @@
+package hr.fer.seminar.evaluation;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Simple parser of command line arguments given in the form
+ * '--name=value' or '--name value'. An option given without a value is
+ * treated as a flag. Arguments which are not options are ignored.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class Arguments {
+
+    /** Values of all the given options mapped by option name. */
+    private final Map<String, String> options = new HashMap<>();
+
+    /**
+     * Parses the given command line arguments.
+     *
+     * @param args Command line arguments
+     */
+    public Arguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+
+            String option = args[i].substring(2);
+            int separator = option.indexOf('=');
+            if (separator >= 0) {
+                options.put(option.substring(0, separator), option.substring(separator + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(option, args[++i]);
+            } else {
+                options.put(option, "");
+            }
+        }
+    }
+
+    /**
+     * Checks whether the option with the given name was given.
+     *
+     * @param name Option name
+     * @return True if the option was given
+     */
+    public boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    /**
+     * Returns the value of the given option.
+     *
+     * @param name Option name
+     * @param defaultValue Value returned if the option was not given
+     * @return Value of the option
+     */
+    public String getString(String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns the value of the given option as a path.
+     *
+     * @param name Option name
+     * @param defaultValue Value returned if the option was not given
+     * @return Value of the option
+     */
+    public Path getPath(String name, String defaultValue) {
+        return Paths.get(getString(name, defaultValue));
+    }
+
+    /**
+     * Returns the value of the given option as an integer.
+     *
+     * @param name Option name
+     * @param defaultValue Value returned if the option was not given
+     * @return Value of the option
+     * @throws IllegalArgumentException If the value is not an integer
+     */
+    public int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " expects an integer.");
+        }
+    }
+
+    /**
+     * Returns the value of the given option as a decimal number.
+     *
+     * @param name Option name
+     * @param defaultValue Value returned if the option was not given
+     * @return Value of the option
+     * @throws IllegalArgumentException If the value is not a number
+     */
+    public double getDouble(String name, double defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " expects a number.");
+        }
+    }
+
+    /**
+     * Returns the value of the given option as a comma separated list
+     * of integers.
+     *
+     * @param name Option name
+     * @param defaultValues Values returned if the option was not given
+     * @return Values of the option
+     * @throws IllegalArgumentException If a value is not an integer
+     */
+    public int[] getIntList(String name, int... defaultValues) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValues;
+        }
+
+        String[] parts = value.split(",");
+        int[] values = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Option --" + name + " expects a comma separated list of integers.");
+        }
+        return values;
+    }
+
+    /**
+     * Returns the value of the given option as a comma separated list
+     * of decimal numbers.
+     *
+     * @param name Option name
+     * @param defaultValues Values returned if the option was not given
+     * @return Values of the option
+     * @throws IllegalArgumentException If a value is not a number
+     */
+    public double[] getDoubleList(String name, double... defaultValues) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValues;
+        }
+
+        String[] parts = value.split(",");
+        double[] values = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Option --" + name + " expects a comma separated list of numbers.");
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,180 @@
+package hr.fer.seminar.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import hr.fer.seminar.dataCollecting.DecimalPoint;
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.CascadeRecognizer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureRecognizer;
+import hr.fer.seminar.recognition.RecognitionMetrics;
+
+/**
+ * Headless tool which trains a small and a full {@link NeuralNetwork}
+ * and compares the accuracy and the mean latency of recognising the
+ * validation examples with each of them alone and with a
+ * {@link CascadeRecognizer} in which the small network answers first
+ * and escalates to the full network when none of its outputs exceeds
+ * the given precision. Every precision of the small network gives one
+ * row of the table.
+ *
+ * Latencies cover the whole recognition of the normalised points,
+ * including the extraction of the representative points.
+ *
+ * Supported options (lists are comma separated):
+ *
+ * <pre>
+ * --train         directory with learning examples (default ./learningExamples)
+ * --validation    directory with validation examples (default ./validationExamples)
+ * --points        number of points of the full network (default 10)
+ * --hidden        number of hidden neurons of the full network (default 5)
+ * --small-points  number of points of the small network (default 5)
+ * --small-hidden  number of hidden neurons of the small network (default 3)
+ * --epochs        number of training epochs (default 5000)
+ * --rate          learning rate (default 1)
+ * --init          scheme of the initial weights, uniform, xavier or he
+ *                 (default xavier)
+ * --seed          seed of the initial weights (default 0)
+ * --precisions    precisions of the small network (default 0.9,0.97,0.99)
+ * --repeat        number of times every example is recognised when
+ *                 measuring latency (default 1000)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class CascadeEvaluation {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private CascadeEvaluation() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+
+        int epochs = arguments.getInt("epochs", 5000);
+        int rate = arguments.getInt("rate", 1);
+        WeightInitializer initializer = WeightInitializer.of(arguments.getString("init",
+                "xavier"));
+        int seed = arguments.getInt("seed", 0);
+        int repeat = arguments.getInt("repeat", 1000);
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        List<GestureExample> learning = ToolSupport.load(
+                arguments.getPath("train", "./learningExamples"), vocabulary);
+        List<GestureExample> validation = ToolSupport.load(
+                arguments.getPath("validation", "./validationExamples"), vocabulary);
+        int numOfOutputs = vocabulary.size();
+
+        NeuralNetwork full = train(learning, arguments.getInt("points", 10),
+                arguments.getInt("hidden", 5), numOfOutputs, epochs, rate, initializer, seed);
+        NeuralNetwork small = train(learning, arguments.getInt("small-points", 5),
+                arguments.getInt("small-hidden", 3), numOfOutputs, epochs, rate, initializer,
+                seed);
+
+        // stages keep their latencies out of the shared default metrics,
+        // the cascades record only the latency of every answer
+        RecognitionMetrics metrics = new RecognitionMetrics(false);
+        RecognitionMetrics cascadeMetrics = new RecognitionMetrics(true);
+        GestureRecognizer fullStage = new GestureRecognizer(full, Evaluation.PRECISION, metrics);
+
+        List<String> names = new ArrayList<>();
+        List<CascadeRecognizer> cascades = new ArrayList<>();
+        names.add("full");
+        cascades.add(new CascadeRecognizer(Collections.singletonList(fullStage),
+                cascadeMetrics));
+        names.add("small");
+        cascades.add(new CascadeRecognizer(Collections.singletonList(
+                new GestureRecognizer(small, Evaluation.PRECISION, metrics)), cascadeMetrics));
+        for (double precision : arguments.getDoubleList("precisions", 0.9, 0.97, 0.99)) {
+            names.add(String.format(Locale.ROOT, "cascade@%.3f", precision));
+            cascades.add(new CascadeRecognizer(Arrays.asList(
+                    new GestureRecognizer(small, precision, metrics), fullStage),
+                    cascadeMetrics));
+        }
+
+        List<List<DecimalPoint>> gestures = new ArrayList<>();
+        for (GestureExample example : validation) {
+            List<DecimalPoint> points = new ArrayList<>(example.size());
+            for (int i = 0; i < example.size(); i++) {
+                points.add(new DecimalPoint(example.getXs()[i], example.getYs()[i]));
+            }
+            gestures.add(points);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-15s %8s %12s %9s", "recognizer",
+                "accuracy", "first_stage", "mean_us"));
+        for (int c = 0; c < cascades.size(); c++) {
+            CascadeRecognizer cascade = cascades.get(c);
+
+            int correct = 0;
+            for (int i = 0; i < gestures.size(); i++) {
+                int expected = validation.get(i).getLabel();
+                if (cascade.recognizeNormalised(gestures.get(i)).getGesture() == expected) {
+                    correct++;
+                }
+            }
+
+            // the first pass warms up the recognizers
+            for (int pass = 0; pass <= repeat; pass++) {
+                if (pass == 1) {
+                    cascade.resetStatistics();
+                }
+                for (List<DecimalPoint> gesture : gestures) {
+                    cascade.recognizeNormalised(gesture);
+                }
+            }
+
+            long answers = 0;
+            for (int stage = 0; stage < cascade.getNumOfStages(); stage++) {
+                answers += cascade.getAnswers(stage);
+            }
+            System.out.println(String.format(Locale.ROOT, "%-15s %8.3f %11.1f%% %9.2f",
+                    names.get(c), (double) correct / gestures.size(),
+                    answers == 0 ? 0 : 100.0 * cascade.getAnswers(0) / answers,
+                    cascade.getMeanLatency() / 1e3));
+        }
+    }
+
+    /**
+     * Trains a new network on the given examples.
+     *
+     * @param examples Learning examples
+     * @param numOfPoints Number of representative points
+     * @param numOfHidden Number of hidden layer neurons
+     * @param numOfOutputs Number of output neurons
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param initializer Scheme of the initial weights
+     * @param seed Seed of the initial weights
+     * @return Trained network
+     */
+    private static NeuralNetwork train(List<GestureExample> examples, int numOfPoints,
+            int numOfHidden, int numOfOutputs, int numOfEpochs, int learningRate,
+            WeightInitializer initializer, long seed) {
+        DataSet dataSet = DataSet.of(examples, numOfPoints, numOfOutputs);
+        NeuralNetwork network = new NeuralNetwork(dataSet.getNumOfInputs(), numOfHidden,
+                numOfOutputs, initializer, seed);
+        NeuralNetworkTrainer.train(network, dataSet.getInputs(), dataSet.getExpectedOutputs(),
+                numOfEpochs, learningRate);
+        return network;
+    }
+
+}
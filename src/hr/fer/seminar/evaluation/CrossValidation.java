@@ -0,0 +1,394 @@
+package hr.fer.seminar.evaluation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.ExampleProvider;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.TrainingListener;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.AugmentedExamples;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureLoader;
+
+/**
+ * Headless tool which estimates the accuracy of a {@link NeuralNetwork}
+ * configuration using k-fold cross-validation. The examples are split
+ * into k folds with approximately the same number of examples of
+ * every gesture. Every fold is used once for validation while a new
+ * network is trained on the remaining folds.
+ *
+ * Folds are trained in parallel, every fold on its own network. The
+ * examples are loaded only once and all the folds share the same
+ * read-only copy of them.
+ *
+ * With the 'augment' option every learning example is accompanied by
+ * the given number of randomly transformed variants, generated anew in
+ * every epoch (see {@link AugmentedExamples}). Validation always uses
+ * only the original examples.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --data     directory with examples (default ./learningExamples)
+ * --folds    number of folds (default 5)
+ * --points   number of representative points (default 10)
+ * --hidden   number of hidden layer neurons (default 5)
+ * --epochs   number of training epochs (default 5000)
+ * --rate     learning rate (default 1)
+ * --threads  number of training threads (default number of CPUs)
+ * --seed     seed used for splitting the examples, for the initial
+ *            weights and for the augmentation (default 0)
+ * --init     scheme of the initial weights, uniform, xavier or he
+ *            (default xavier)
+ * --augment  number of variants of every learning example generated
+ *            in every epoch (default 0)
+ * --log      file the training log of every fold is written to, the
+ *            number of the fold is appended to the file name (optional)
+ * --log-format     format of the training log, csv or json (default csv)
+ * --log-interval   only every n-th epoch is logged (default 100)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class CrossValidation {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private CrossValidation() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     * @throws InterruptedException If the validation was interrupted
+     * @throws IOException If the training log could not be written
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Arguments arguments = new Arguments(args);
+
+        int numOfPoints = arguments.getInt("points", 10);
+        int numOfFolds = arguments.getInt("folds", 5);
+        Path data = arguments.getPath("data", "./learningExamples");
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        List<GestureExample> examples = GestureLoader.loadExamples(data, vocabulary);
+        if (examples == null) {
+            throw new IllegalArgumentException("Unable to load examples from " + data + ".");
+        }
+        DataSet dataSet = DataSet.of(examples, numOfPoints, vocabulary.size());
+
+        TrainingLogWriter[] logs = new TrainingLogWriter[Math.max(numOfFolds, 0)];
+        if (arguments.has("log")) {
+            Path log = arguments.getPath("log", "");
+            TrainingLogWriter.Format format = TrainingLogWriter.Format
+                    .of(arguments.getString("log-format", "csv"));
+            for (int fold = 0; fold < logs.length; fold++) {
+                Path foldLog = log.resolveSibling(log.getFileName() + "-fold" + (fold + 1));
+                logs[fold] = new TrainingLogWriter(foldLog, format,
+                        arguments.getInt("log-interval", 100));
+            }
+        }
+
+        long start = System.nanoTime();
+        List<FoldResult> results;
+        try {
+            results = run(dataSet, examples, arguments.getInt("augment", 0), numOfFolds,
+                    arguments.getInt("hidden", 5), arguments.getInt("epochs", 5000),
+                    arguments.getInt("rate", 1),
+                    WeightInitializer.of(arguments.getString("init", "xavier")),
+                    arguments.getInt("threads", Runtime.getRuntime().availableProcessors()),
+                    arguments.getInt("seed", 0),
+                    fold -> logs[fold] == null ? TrainingListener.NONE : logs[fold]);
+        } finally {
+            for (TrainingLogWriter log : logs) {
+                if (log != null) {
+                    log.close();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%4s %6s %6s %8s %8s %10s", "fold", "train", "test",
+                "accuracy", "top", "train_ms"));
+        double accuracySum = 0;
+        double topAccuracySum = 0;
+        long trainingTimeSum = 0;
+        for (FoldResult result : results) {
+            System.out.println(String.format("%4d %6d %6d %8.3f %8.3f %10.1f", result.fold + 1,
+                    result.trainSize, result.testSize, result.accuracy, result.topAccuracy,
+                    result.trainingTime / 1e6));
+            accuracySum += result.accuracy;
+            topAccuracySum += result.topAccuracy;
+            trainingTimeSum += result.trainingTime;
+        }
+
+        double meanAccuracy = accuracySum / results.size();
+        double variance = 0;
+        for (FoldResult result : results) {
+            variance += Math.pow(result.accuracy - meanAccuracy, 2);
+        }
+        double deviation = Math.sqrt(variance / results.size());
+
+        System.out.println(String.format("accuracy %.3f +- %.3f, top %.3f", meanAccuracy,
+                deviation, topAccuracySum / results.size()));
+        System.out.println(String.format("training time %.1f ms total, %.1f ms wall clock",
+                trainingTimeSum / 1e6, elapsed / 1e6));
+    }
+
+    /**
+     * Runs k-fold cross-validation of the given network configuration
+     * on the given dataset.
+     *
+     * @param dataSet Examples used for training and validation
+     * @param numOfFolds Number of folds
+     * @param numOfHidden Number of hidden layer neurons
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param threads Number of training threads
+     * @param seed Seed used for splitting the examples into folds
+     * @param listeners Returns the listener notified during training of
+     *        the fold with the given index
+     * @return Results of every fold
+     * @throws IllegalArgumentException If the number of folds is not
+     *         in range [2, number of examples]
+     * @throws InterruptedException If the validation was interrupted
+     */
+    public static List<FoldResult> run(DataSet dataSet, int numOfFolds, int numOfHidden,
+            int numOfEpochs, int learningRate, int threads, long seed,
+            IntFunction<TrainingListener> listeners) throws InterruptedException {
+        return run(dataSet, Collections.emptyList(), 0, numOfFolds, numOfHidden, numOfEpochs,
+                learningRate, WeightInitializer.UNIFORM, threads, seed, listeners);
+    }
+
+    /**
+     * Runs k-fold cross-validation of the given network configuration
+     * on the given dataset, training on augmented examples.
+     *
+     * @param dataSet Examples used for training and validation
+     * @param examples Examples with all their points, in the same order
+     *        as in the dataset, used for the augmentation
+     * @param variants Number of variants of every learning example
+     *        generated in every epoch, 0 for no augmentation
+     * @param numOfFolds Number of folds
+     * @param numOfHidden Number of hidden layer neurons
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param initializer Scheme of the initial weights
+     * @param threads Number of training threads
+     * @param seed Seed used for splitting the examples into folds and,
+     *        increased by the index of the fold, for the initial weights
+     * @param listeners Returns the listener notified during training of
+     *        the fold with the given index
+     * @return Results of every fold
+     * @throws IllegalArgumentException If the number of folds is not
+     *         in range [2, number of examples]
+     * @throws InterruptedException If the validation was interrupted
+     */
+    public static List<FoldResult> run(DataSet dataSet, List<GestureExample> examples,
+            int variants, int numOfFolds, int numOfHidden, int numOfEpochs, int learningRate,
+            WeightInitializer initializer, int threads, long seed,
+            IntFunction<TrainingListener> listeners)
+            throws InterruptedException {
+
+        if (variants > 0 && examples.size() != dataSet.size()) {
+            throw new IllegalArgumentException("Examples do not match the dataset.");
+        }
+        if (numOfFolds < 2 || numOfFolds > dataSet.size()) {
+            throw new IllegalArgumentException("Invalid number of folds: " + numOfFolds + ".");
+        }
+
+        int[] folds = assignFolds(dataSet, numOfFolds, seed);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<FoldResult>> futures = new ArrayList<>();
+            for (int fold = 0; fold < numOfFolds; fold++) {
+                int currentFold = fold;
+                TrainingListener listener = listeners.apply(fold);
+                futures.add(executor.submit(() -> trainFold(dataSet, examples, variants, seed,
+                        folds, currentFold, numOfHidden, numOfEpochs, learningRate, initializer,
+                        listener)));
+            }
+
+            List<FoldResult> results = new ArrayList<>();
+            for (Future<FoldResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Training a fold failed.", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Assigns every example to a fold. The examples are shuffled and
+     * then dealt to the folds gesture by gesture so every fold contains
+     * approximately the same number of examples of every gesture.
+     *
+     * @param dataSet Examples
+     * @param numOfFolds Number of folds
+     * @param seed Seed used for shuffling
+     * @return Index of the fold of every example
+     */
+    private static int[] assignFolds(DataSet dataSet, int numOfFolds, long seed) {
+        int size = dataSet.size();
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        Random random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        double[][] expectedOutputs = dataSet.getExpectedOutputs();
+        int[] folds = new int[size];
+        int next = 0;
+        for (int gesture = 0; gesture < dataSet.getNumOfOutputs(); gesture++) {
+            for (int i : order) {
+                if (Evaluation.indexOfMax(expectedOutputs[i]) == gesture) {
+                    folds[i] = next++ % numOfFolds;
+                }
+            }
+        }
+        return folds;
+    }
+
+    /**
+     * Trains a new network on all the folds except the given one and
+     * evaluates it on the given fold.
+     *
+     * @param dataSet Examples
+     * @param examples Examples with all their points
+     * @param variants Number of variants of every learning example
+     * @param seed Seed used for the augmentation and the initial weights
+     * @param folds Index of the fold of every example
+     * @param fold Fold used for validation
+     * @param numOfHidden Number of hidden layer neurons
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param initializer Scheme of the initial weights
+     * @param listener Listener notified after every epoch
+     * @return Result of the fold
+     */
+    private static FoldResult trainFold(DataSet dataSet, List<GestureExample> examples,
+            int variants, long seed, int[] folds, int fold, int numOfHidden, int numOfEpochs,
+            int learningRate, WeightInitializer initializer, TrainingListener listener) {
+        int testSize = 0;
+        for (int f : folds) {
+            if (f == fold) {
+                testSize++;
+            }
+        }
+
+        int[] trainIndices = new int[folds.length - testSize];
+        int[] testIndices = new int[testSize];
+        for (int i = 0, train = 0, test = 0; i < folds.length; i++) {
+            if (folds[i] == fold) {
+                testIndices[test++] = i;
+            } else {
+                trainIndices[train++] = i;
+            }
+        }
+
+        DataSet trainSet = dataSet.subset(trainIndices);
+        DataSet testSet = dataSet.subset(testIndices);
+
+        ExampleProvider trainExamples;
+        if (variants > 0) {
+            List<GestureExample> trainGestures = new ArrayList<>(trainIndices.length);
+            for (int i : trainIndices) {
+                trainGestures.add(examples.get(i));
+            }
+            trainExamples = new AugmentedExamples(trainGestures, dataSet.getNumOfPoints(),
+                    dataSet.getNumOfOutputs(), variants, seed + fold);
+        } else {
+            trainExamples = ExampleProvider.of(trainSet.getInputs(),
+                    trainSet.getExpectedOutputs());
+        }
+
+        NeuralNetwork network = new NeuralNetwork(dataSet.getNumOfInputs(), numOfHidden,
+                dataSet.getNumOfOutputs(), initializer, seed + fold);
+        long start = System.nanoTime();
+        NeuralNetworkTrainer.train(network, trainExamples, numOfEpochs, learningRate, listener);
+        long trainingTime = System.nanoTime() - start;
+
+        return new FoldResult(fold, trainSet.size(), testSet.size(),
+                Evaluation.accuracy(network, testSet, Evaluation.PRECISION),
+                Evaluation.topAccuracy(network, testSet), trainingTime);
+    }
+
+    /**
+     * Result of training and validating a single fold.
+     */
+    public static class FoldResult {
+        /** Index of the fold. */
+        private final int fold;
+        /** Number of learning examples. */
+        private final int trainSize;
+        /** Number of validation examples. */
+        private final int testSize;
+        /** Accuracy on the fold using the precision. */
+        private final double accuracy;
+        /** Accuracy on the fold using the greatest output. */
+        private final double topAccuracy;
+        /** Training time in nanoseconds. */
+        private final long trainingTime;
+
+        /**
+         * Creates a new fold result.
+         *
+         * @param fold Index of the fold
+         * @param trainSize Number of learning examples
+         * @param testSize Number of validation examples
+         * @param accuracy Accuracy using the precision
+         * @param topAccuracy Accuracy using the greatest output
+         * @param trainingTime Training time in nanoseconds
+         */
+        public FoldResult(int fold, int trainSize, int testSize, double accuracy,
+                double topAccuracy, long trainingTime) {
+            this.fold = fold;
+            this.trainSize = trainSize;
+            this.testSize = testSize;
+            this.accuracy = accuracy;
+            this.topAccuracy = topAccuracy;
+            this.trainingTime = trainingTime;
+        }
+
+        /**
+         * Returns the accuracy on the fold using the precision.
+         *
+         * @return Accuracy
+         */
+        public double getAccuracy() {
+            return accuracy;
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+package hr.fer.seminar.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.dataCollecting.Normalisation;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureFeatures;
+
+/**
+ * Headless tool which compares networks getting the coordinates of the
+ * representative points with networks getting their features (see
+ * {@link GestureFeatures}). For every number of points and of hidden
+ * neurons both kinds of networks are cross-validated on the learning
+ * and the validation examples together: the examples are split into
+ * folds, and the networks trained on all the other folds are evaluated
+ * on every fold rotated by every given angle.
+ *
+ * For every configuration the tool prints the number of inputs and
+ * weights, the accuracy at every angle and the mean latency of turning
+ * the representative points into the outputs, the extraction of the
+ * features included.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --train       directory with learning examples (default ./learningExamples)
+ * --validation  directory with validation examples (default ./validationExamples)
+ * --points      comma separated numbers of representative points
+ *               (default 10,6)
+ * --hidden      comma separated numbers of hidden layer neurons
+ *               (default 20,10,5)
+ * --bins        number of bins of the direction histogram, fewer than
+ *               the points (default 4)
+ * --folds       number of folds (default 4)
+ * --epochs      number of training epochs (default 5000)
+ * --rate        learning rate (default 1)
+ * --init        scheme of the initial weights, uniform, xavier or he
+ *               (default xavier)
+ * --seed        seed of the initial weights (default 0)
+ * --precision   output needed for a gesture to be recognised (default 0.97)
+ * --rotations   comma separated angles in degrees the validation
+ *               examples are rotated by (default 0,15,30)
+ * --repeat      number of passes over the examples when measuring
+ *               latency (default 1000)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class FeatureComparison {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private FeatureComparison() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        List<GestureExample> examples = new ArrayList<>(
+                ToolSupport.load(arguments.getPath("train", "./learningExamples"), vocabulary));
+        examples.addAll(ToolSupport.load(arguments.getPath("validation", "./validationExamples"),
+                vocabulary));
+        double[] rotations = arguments.getDoubleList("rotations", 0, 15, 30);
+        int numOfFolds = arguments.getInt("folds", 4);
+        int bins = arguments.getInt("bins", 4);
+        int repeat = arguments.getInt("repeat", 1000);
+        double precision = arguments.getDouble("precision", Evaluation.PRECISION);
+        WeightInitializer initializer = WeightInitializer.of(arguments.getString("init",
+                "xavier"));
+
+        List<List<GestureExample>> rotated = new ArrayList<>();
+        for (double rotation : rotations) {
+            rotated.add(rotate(examples, Math.toRadians(rotation)));
+        }
+
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT,
+                "%-11s %6s %6s %6s %7s", "inputs", "points", "count", "hidden", "weights"));
+        for (double rotation : rotations) {
+            header.append(String.format(Locale.ROOT, " %7s", "acc@" + (int) rotation));
+        }
+        header.append(String.format(Locale.ROOT, " %10s", "latency_us"));
+        System.out.println(String.format(Locale.ROOT, "%d examples, %d folds", examples.size(),
+                numOfFolds));
+        System.out.println(header);
+
+        for (int numOfPoints : arguments.getIntList("points", 10, 6)) {
+            GestureFeatures features = new GestureFeatures(numOfPoints, bins);
+            List<DataSet> coordinates = new ArrayList<>();
+            for (List<GestureExample> variants : rotated) {
+                coordinates.add(DataSet.of(variants, numOfPoints, vocabulary.size()));
+            }
+
+            for (int hidden : arguments.getIntList("hidden", 20, 10, 5)) {
+                for (GestureFeatures extractor : new GestureFeatures[] { null, features }) {
+                    List<DataSet> dataSets = new ArrayList<>();
+                    for (DataSet dataSet : coordinates) {
+                        dataSets.add(extractor == null ? dataSet
+                                : dataSet.withFeatures(extractor));
+                    }
+
+                    int[] correct = new int[rotations.length];
+                    NeuralNetwork network = null;
+                    for (int fold = 0; fold < numOfFolds; fold++) {
+                        network = new NeuralNetwork(dataSets.get(0).getNumOfInputs(), hidden,
+                                vocabulary.size(), initializer, arguments.getInt("seed", 0)
+                                        + fold);
+                        DataSet trainSet = dataSets.get(0).subset(
+                                fold(examples.size(), numOfFolds, fold, false));
+                        NeuralNetworkTrainer.train(network, trainSet.getInputs(),
+                                trainSet.getExpectedOutputs(), arguments.getInt("epochs",
+                                        5000), arguments.getInt("rate", 1));
+
+                        int[] testIndices = fold(examples.size(), numOfFolds, fold, true);
+                        for (int r = 0; r < rotations.length; r++) {
+                            DataSet testSet = dataSets.get(r).subset(testIndices);
+                            correct[r] += Math.round(Evaluation.accuracy(network, testSet,
+                                    precision) * testSet.size());
+                        }
+                    }
+
+                    StringBuilder row = new StringBuilder(String.format(Locale.ROOT,
+                            "%-11s %6d %6d %6d %7d",
+                            extractor == null ? "coordinates" : "features", numOfPoints,
+                            dataSets.get(0).getNumOfInputs(), hidden,
+                            numberOfWeights(network)));
+                    for (int count : correct) {
+                        row.append(String.format(Locale.ROOT, " %7.3f",
+                                (double) count / examples.size()));
+                    }
+                    row.append(String.format(Locale.ROOT, " %10.3f",
+                            measure(network, extractor, coordinates.get(0), repeat) / 1e3));
+                    System.out.println(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of the examples in the given fold or of the
+     * examples in all the other folds. Every k-th example belongs to
+     * the same fold.
+     *
+     * @param numOfExamples Number of examples
+     * @param numOfFolds Number of folds
+     * @param fold Index of the fold
+     * @param inFold Whether the indices of the fold or of the others are
+     *        returned
+     * @return Indices of the examples
+     */
+    private static int[] fold(int numOfExamples, int numOfFolds, int fold, boolean inFold) {
+        int[] indices = new int[numOfExamples];
+        int count = 0;
+        for (int i = 0; i < numOfExamples; i++) {
+            if ((i % numOfFolds == fold) == inFold) {
+                indices[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Rotates the given examples around their centre by the given angle
+     * and normalises them again.
+     *
+     * @param examples Examples
+     * @param angle Angle in radians
+     * @return Rotated examples
+     */
+    private static List<GestureExample> rotate(List<GestureExample> examples, double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        List<GestureExample> rotated = new ArrayList<>(examples.size());
+        for (GestureExample example : examples) {
+            int length = example.size();
+            double[] xs = new double[length];
+            double[] ys = new double[length];
+            for (int i = 0; i < length; i++) {
+                double x = example.getXs()[i];
+                double y = example.getYs()[i];
+                xs[i] = x * cos - y * sin;
+                ys[i] = x * sin + y * cos;
+            }
+            Normalisation.normalisePoints(xs, ys, length);
+            rotated.add(new GestureExample(xs, ys, example.getLabel(),
+                    example.getStrokeStarts()));
+        }
+        return rotated;
+    }
+
+    /**
+     * Returns the number of weights of the given network, thresholds
+     * included.
+     *
+     * @param network Neural network
+     * @return Number of weights
+     */
+    private static int numberOfWeights(NeuralNetwork network) {
+        return (network.getInputLayerSize() + 1) * network.getHiddenLayerSize()
+                + (network.getHiddenLayerSize() + 1) * network.getOutputLayerSize();
+    }
+
+    /**
+     * Measures the mean latency of calculating the outputs for the
+     * representative points of every example, after as many passes to
+     * warm up.
+     *
+     * @param network Neural network
+     * @param features Extractor of the inputs or null for coordinates
+     * @param dataSet Coordinates of the representative points
+     * @param repeat Number of recorded passes over the examples
+     * @return Mean latency in nanoseconds
+     */
+    private static double measure(NeuralNetwork network, GestureFeatures features,
+            DataSet dataSet, int repeat) {
+        double[][] coordinates = dataSet.getInputs();
+        int[][] strokes = dataSet.getStrokes();
+        double[] input = features == null ? null : new double[features.size()];
+        double[] hidden = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[network.getOutputLayerSize()];
+        long time = ToolSupport.measureTime(coordinates.length, repeat, repeat, i -> {
+            network.calculateOutputs(features == null ? coordinates[i]
+                    : features.extract(coordinates[i], strokes[i], input), hidden, outputs);
+            return Evaluation.indexOfMax(outputs);
+        });
+        return (double) time / repeat / dataSet.size();
+    }
+
+}
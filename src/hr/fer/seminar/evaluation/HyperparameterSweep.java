@@ -0,0 +1,314 @@
+package hr.fer.seminar.evaluation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+
+/**
+ * Headless tool which trains a {@link NeuralNetwork} for every
+ * combination of the given numbers of points, hidden layer neurons,
+ * epochs and learning rates, evaluates every network on the
+ * validation examples and writes a table of configurations ranked by
+ * accuracy.
+ *
+ * Configurations are trained concurrently on a bounded thread pool.
+ * The examples are loaded only once for every number of points and
+ * the loaded datasets are shared by all the configurations using it.
+ *
+ * Supported options (lists are comma separated):
+ *
+ * <pre>
+ * --points      numbers of representative points (default 5,10,20)
+ * --hidden      numbers of hidden layer neurons (default 3,5,10)
+ * --epochs      numbers of training epochs (default 1000,5000)
+ * --rates       learning rates (default 1,3,5)
+ * --threads     number of training threads (default number of CPUs)
+ * --init        scheme of the initial weights, uniform, xavier or he
+ *               (default xavier)
+ * --seed        seed of the initial weights of every network (default 0)
+ * --train       directory with learning examples (default ./learningExamples)
+ * --validation  directory with validation examples (default ./validationExamples)
+ * --output      file the ranked table is written to (optional)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class HyperparameterSweep {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private HyperparameterSweep() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     * @throws IOException If the results could not be written
+     * @throws InterruptedException If the sweep was interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Arguments arguments = new Arguments(args);
+
+        int[] points = arguments.getIntList("points", 5, 10, 20);
+        int[] hidden = arguments.getIntList("hidden", 3, 5, 10);
+        int[] epochs = arguments.getIntList("epochs", 1000, 5000);
+        int[] rates = arguments.getIntList("rates", 1, 3, 5);
+        int threads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+        Path trainDirectory = arguments.getPath("train", "./learningExamples");
+        Path validationDirectory = arguments.getPath("validation", "./validationExamples");
+
+        List<Configuration> configurations = new ArrayList<>();
+        for (int numOfPoints : points) {
+            for (int numOfHidden : hidden) {
+                for (int numOfEpochs : epochs) {
+                    for (int learningRate : rates) {
+                        configurations.add(new Configuration(numOfPoints, numOfHidden,
+                                numOfEpochs, learningRate));
+                    }
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = run(configurations, trainDirectory, validationDirectory,
+                WeightInitializer.of(arguments.getString("init", "xavier")),
+                arguments.getInt("seed", 0), threads);
+        long elapsed = System.nanoTime() - start;
+
+        List<String> table = formatTable(results);
+        table.add(String.format("%d configurations on %d threads in %.1f s",
+                configurations.size(), threads, elapsed / 1e9));
+        for (String line : table) {
+            System.out.println(line);
+        }
+
+        if (arguments.has("output")) {
+            Files.write(arguments.getPath("output", ""), table, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Trains and evaluates all the given configurations and returns the
+     * results ranked from the best to the worst.
+     *
+     * @param configurations Configurations to be evaluated
+     * @param trainDirectory Directory with learning examples
+     * @param validationDirectory Directory with validation examples
+     * @param initializer Scheme of the initial weights
+     * @param seed Seed of the initial weights of every network, so the
+     *        configurations start from comparable weights
+     * @param threads Number of training threads
+     * @return Ranked results
+     * @throws IllegalArgumentException If the examples could not be
+     *         loaded
+     * @throws InterruptedException If the sweep was interrupted
+     */
+    public static List<Result> run(List<Configuration> configurations, Path trainDirectory,
+            Path validationDirectory, WeightInitializer initializer, long seed, int threads)
+            throws InterruptedException {
+
+        // the examples are read once, only the representative points
+        // are chosen for every number of points
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        List<GestureExample> trainExamples = ToolSupport.load(trainDirectory, vocabulary);
+        List<GestureExample> validationExamples = ToolSupport.load(validationDirectory, vocabulary);
+        int numOfOutputs = vocabulary.size();
+
+        Map<Integer, DataSet> trainSets = new HashMap<>();
+        Map<Integer, DataSet> validationSets = new HashMap<>();
+        for (Configuration configuration : configurations) {
+            int numOfPoints = configuration.numOfPoints;
+            if (!trainSets.containsKey(numOfPoints)) {
+                trainSets.put(numOfPoints,
+                        DataSet.of(trainExamples, numOfPoints, numOfOutputs));
+                validationSets.put(numOfPoints,
+                        DataSet.of(validationExamples, numOfPoints, numOfOutputs));
+            }
+        }
+
+        // bounded queue, the submitting thread trains a configuration
+        // itself whenever all the workers are busy and the queue is full
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * 2),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+
+        try {
+            for (Configuration configuration : configurations) {
+                DataSet trainSet = trainSets.get(configuration.numOfPoints);
+                DataSet validationSet = validationSets.get(configuration.numOfPoints);
+                completionService.submit(() -> evaluate(configuration, trainSet, validationSet,
+                        initializer, seed));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < configurations.size(); i++) {
+                try {
+                    results.add(completionService.take().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Training a configuration failed.",
+                            e.getCause());
+                }
+            }
+
+            Collections.sort(results, Result.RANKING);
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Trains a new network with the given configuration and evaluates
+     * it on the validation set.
+     *
+     * @param configuration Configuration of the network
+     * @param trainSet Learning examples
+     * @param validationSet Validation examples
+     * @param initializer Scheme of the initial weights
+     * @param seed Seed of the initial weights
+     * @return Result of the evaluation
+     */
+    private static Result evaluate(Configuration configuration, DataSet trainSet,
+            DataSet validationSet, WeightInitializer initializer, long seed) {
+        NeuralNetwork network = new NeuralNetwork(trainSet.getNumOfInputs(),
+                configuration.numOfHidden, trainSet.getNumOfOutputs(), initializer, seed);
+
+        long start = System.nanoTime();
+        NeuralNetworkTrainer.train(network, trainSet.getInputs(), trainSet.getExpectedOutputs(),
+                configuration.numOfEpochs, configuration.learningRate);
+        long trainingTime = System.nanoTime() - start;
+
+        return new Result(configuration,
+                Evaluation.accuracy(network, validationSet, Evaluation.PRECISION),
+                Evaluation.topAccuracy(network, validationSet), trainingTime);
+    }
+
+    /**
+     * Formats the given results as a table with one row per
+     * configuration.
+     *
+     * @param results Ranked results
+     * @return Lines of the table
+     */
+    private static List<String> formatTable(List<Result> results) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%4s %6s %6s %6s %4s %8s %8s %10s", "rank", "points",
+                "hidden", "epochs", "rate", "accuracy", "top", "train_ms"));
+
+        int rank = 1;
+        for (Result result : results) {
+            Configuration c = result.configuration;
+            lines.add(String.format("%4d %6d %6d %6d %4d %8.3f %8.3f %10.1f", rank++,
+                    c.numOfPoints, c.numOfHidden, c.numOfEpochs, c.learningRate,
+                    result.accuracy, result.topAccuracy, result.trainingTime / 1e6));
+        }
+        return lines;
+    }
+
+    /**
+     * Hyperparameters of a single network trained during the sweep.
+     */
+    public static class Configuration {
+        /** Number of representative points. */
+        private final int numOfPoints;
+        /** Number of hidden layer neurons. */
+        private final int numOfHidden;
+        /** Number of training epochs. */
+        private final int numOfEpochs;
+        /** Learning rate. */
+        private final int learningRate;
+
+        /**
+         * Creates a new configuration.
+         *
+         * @param numOfPoints Number of representative points
+         * @param numOfHidden Number of hidden layer neurons
+         * @param numOfEpochs Number of training epochs
+         * @param learningRate Learning rate
+         */
+        public Configuration(int numOfPoints, int numOfHidden, int numOfEpochs,
+                int learningRate) {
+            this.numOfPoints = numOfPoints;
+            this.numOfHidden = numOfHidden;
+            this.numOfEpochs = numOfEpochs;
+            this.learningRate = learningRate;
+        }
+    }
+
+    /**
+     * Result of evaluating a single configuration.
+     */
+    public static class Result {
+        /**
+         * Orders the results by accuracy, then by the accuracy of the
+         * greatest output and then by training time.
+         */
+        private static final Comparator<Result> RANKING = Comparator
+                .comparingDouble((Result r) -> -r.accuracy)
+                .thenComparingDouble(r -> -r.topAccuracy)
+                .thenComparingLong(r -> r.trainingTime);
+
+        /** Evaluated configuration. */
+        private final Configuration configuration;
+        /** Accuracy on the validation set using the precision. */
+        private final double accuracy;
+        /** Accuracy on the validation set using the greatest output. */
+        private final double topAccuracy;
+        /** Training time in nanoseconds. */
+        private final long trainingTime;
+
+        /**
+         * Creates a new result.
+         *
+         * @param configuration Evaluated configuration
+         * @param accuracy Accuracy using the precision
+         * @param topAccuracy Accuracy using the greatest output
+         * @param trainingTime Training time in nanoseconds
+         */
+        public Result(Configuration configuration, double accuracy, double topAccuracy,
+                long trainingTime) {
+            this.configuration = configuration;
+            this.accuracy = accuracy;
+            this.topAccuracy = topAccuracy;
+            this.trainingTime = trainingTime;
+        }
+
+        /**
+         * Returns the accuracy on the validation set using the
+         * precision.
+         *
+         * @return Accuracy
+         */
+        public double getAccuracy() {
+            return accuracy;
+        }
+    }
+
+}
@@ -0,0 +1,578 @@
+package hr.fer.seminar.evaluation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import hr.fer.seminar.dataCollecting.ExampleFiles;
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+import hr.fer.seminar.neuralNetwork.NetworkSerializer;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureFeatures;
+import hr.fer.seminar.recognition.GestureLoader;
+import hr.fer.seminar.recognition.GestureRecognizer;
+import hr.fer.seminar.recognition.LatencyHistogram;
+import hr.fer.seminar.recognition.ModelRegistry;
+import hr.fer.seminar.recognition.RecognitionMetrics;
+import hr.fer.seminar.recognition.RecognitionServer;
+
+/**
+ * Headless tool which replays the recorded gestures against the
+ * recognition at the given rates of requests, to find out how many
+ * requests a server handles within the needed latency.
+ *
+ * The load is open-loop: the requests are scheduled at fixed intervals
+ * regardless of how long the previous ones took, and sent by the given
+ * number of client threads. The latency of a request is measured from
+ * the time it was scheduled, not from the time it was sent, so the
+ * time a request waits because the recognition fell behind is included
+ * (the correction of the coordinated omission). The time from sending
+ * a request to its response is reported separately as the service
+ * time. Requests which are not sent until the run took twice as long
+ * as planned are dropped and counted with the time they waited.
+ *
+ * The gestures are recognised either in process, by a
+ * {@link GestureRecognizer} called by the client threads, or over HTTP
+ * by a {@link RecognitionServer} started on the loopback interface.
+ * Every run prints the achieved throughput, the share of the correctly
+ * recognised gestures and the percentiles of the latency. The results
+ * can be written to a CSV file and compared with the results of an
+ * earlier run written in the same way.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --data            comma separated directories with the replayed gestures
+ *                   (default alpha,beta,gamma,epsilon,learningExamples)
+ * --train           directory with learning examples (default ./learningExamples)
+ * --load            file of a model used instead of training one (optional)
+ * --points          number of representative points (default 10)
+ * --hidden          number of hidden layer neurons (default 20)
+ * --epochs          number of training epochs (default 5000)
+ * --rate            learning rate (default 1)
+ * --init            scheme of the initial weights, uniform, xavier or he
+ *                   (default xavier)
+ * --seed            seed of the weights and of the order of the gestures
+ *                   (default 0)
+ * --precision       output needed for a gesture to be recognised (default 0.97)
+ * --target          inprocess, http or both (default inprocess)
+ * --qps             comma separated target rates in requests per second,
+ *                   0 for as many as the threads send (default 1000,5000,20000)
+ * --threads         number of client threads (default 8)
+ * --server-threads  number of threads of the HTTP server (default 8)
+ * --duration        recorded seconds of every run (default 10)
+ * --warmup          seconds of requests sent before recording (default 2)
+ * --output          CSV file the results are written to (optional)
+ * --baseline        CSV file of an earlier run compared with (optional)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class LoadTest {
+
+    /** Columns of the CSV file with the results. */
+    private static final String[] COLUMNS = { "target", "qps", "threads", "requests", "errors",
+        "dropped", "throughput", "accuracy", "mean_us", "p50_us", "p90_us", "p99_us",
+        "p999_us", "max_us", "service_p50_us", "service_p99_us" };
+    /** Columns compared with the baseline. */
+    private static final String[] COMPARED = { "throughput", "accuracy", "p50_us", "p99_us",
+        "p999_us", "max_us" };
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private LoadTest() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     * @throws IOException If a model, the gestures or the results could
+     *         not be read or written
+     * @throws InterruptedException If the thread was interrupted while
+     *         waiting for the client threads
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Arguments arguments = new Arguments(args);
+        int threads = arguments.getInt("threads", 8);
+        double duration = arguments.getDouble("duration", 10);
+        double warmup = arguments.getDouble("warmup", 2);
+        String targets = arguments.getString("target", "inprocess");
+
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        NeuralNetwork network;
+        GestureFeatures features = null;
+        if (arguments.has("load")) {
+            Path model = arguments.getPath("load", "");
+            network = NetworkSerializer.load(model);
+            if (Files.exists(ModelRegistry.vocabularyFile(model))) {
+                vocabulary = GestureVocabulary.load(ModelRegistry.vocabularyFile(model));
+            }
+            if (Files.exists(ModelRegistry.featuresFile(model))) {
+                features = GestureFeatures.load(ModelRegistry.featuresFile(model));
+            }
+        } else {
+            DataSet trainSet = DataSet.load(arguments.getPath("train", "./learningExamples"),
+                    vocabulary, arguments.getInt("points", 10));
+            network = new NeuralNetwork(trainSet.getNumOfInputs(), arguments.getInt("hidden",
+                    20), vocabulary.size(), WeightInitializer.of(arguments.getString("init",
+                            "xavier")), arguments.getInt("seed", 0));
+            NeuralNetworkTrainer.train(network, trainSet.getInputs(),
+                    trainSet.getExpectedOutputs(), arguments.getInt("epochs", 5000),
+                    arguments.getInt("rate", 1));
+        }
+        GestureRecognizer recognizer = new GestureRecognizer.Builder(network,
+                arguments.getDouble("precision", Evaluation.PRECISION))
+                        .metrics(new RecognitionMetrics(false)).features(features).build();
+
+        List<GestureExample> examples = new ArrayList<>();
+        for (String directory : arguments.getString("data",
+                "alpha,beta,gamma,epsilon,learningExamples").split(",")) {
+            List<GestureExample> loaded = GestureLoader.loadExamples(Paths.get(directory.trim()),
+                    vocabulary);
+            if (loaded == null) {
+                throw new IOException("Unable to load gestures from " + directory + ".");
+            }
+            examples.addAll(loaded);
+        }
+        Workload workload = new Workload(examples, new Random(arguments.getInt("seed", 0)));
+
+        // connections beyond this number are closed after every request
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(threads));
+        }
+        // read by the JDK server once, before the first server is created
+        if (System.getProperty(RecognitionServer.NO_DELAY) == null) {
+            System.setProperty(RecognitionServer.NO_DELAY, "true");
+        }
+
+        System.out.println(String.format(Locale.ROOT,
+                "%d gestures, %d client threads, %.1f s per run after %.1f s of warm-up",
+                workload.size(), threads, duration, warmup));
+        System.out.println(String.format(Locale.ROOT,
+                "%-9s %7s %9s %6s %7s %10s %8s %9s %9s %9s %9s %9s %9s", "target", "qps",
+                "requests", "errors", "dropped", "throughput", "accuracy", "p50_us", "p90_us",
+                "p99_us", "p99.9_us", "max_us", "svc_p99"));
+
+        List<Map<String, String>> results = new ArrayList<>();
+        for (double qps : arguments.getDoubleList("qps", 1000, 5000, 20000)) {
+            if (targets.equals("inprocess") || targets.equals("both")) {
+                Target target = index -> recognizer.recognize(workload.strokes[index])
+                        .getGesture();
+                results.add(report("inprocess", run(target, workload, qps, threads, duration,
+                        warmup), qps, threads));
+            }
+            if (targets.equals("http") || targets.equals("both")) {
+                try (RecognitionServer server = new RecognitionServer(recognizer, vocabulary,
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                        arguments.getInt("server-threads", 8))) {
+                    server.start();
+                    URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(),
+                            server.getPort(), RecognitionServer.PATH);
+                    GestureVocabulary names = vocabulary;
+                    Target target = index -> post(url, workload.bodies[index], names);
+                    results.add(report("http", run(target, workload, qps, threads, duration,
+                            warmup), qps, threads));
+                }
+            }
+        }
+
+        if (arguments.has("output")) {
+            writeResults(arguments.getPath("output", ""), results);
+        }
+        if (arguments.has("baseline")) {
+            compare(readResults(arguments.getPath("baseline", "")), results);
+        }
+    }
+
+    /**
+     * Sends requests for the gestures of the workload at the given rate
+     * from the given number of threads.
+     *
+     * @param target Target the requests are sent to
+     * @param workload Replayed gestures
+     * @param qps Number of requests per second or 0 to send the next
+     *        request as soon as a thread receives a response
+     * @param threads Number of client threads
+     * @param duration Number of recorded seconds
+     * @param warmup Number of seconds of requests sent before recording
+     * @return Result of the run
+     * @throws InterruptedException If the thread was interrupted while
+     *         waiting for the client threads
+     */
+    private static Result run(Target target, Workload workload, double qps, int threads,
+            double duration, double warmup) throws InterruptedException {
+        // without a rate every request is scheduled when it is sent
+        boolean throttled = qps > 0;
+        double interval = throttled ? 1e9 / qps : 0;
+        long total = throttled ? (long) (qps * (warmup + duration)) : Long.MAX_VALUE;
+        Result result = new Result();
+        AtomicLong next = new AtomicLong();
+
+        long start = System.nanoTime() + 10_000_000;
+        long recording = start + (long) (warmup * 1e9);
+        long end = recording + (long) (duration * 1e9);
+        long deadline = start + (long) (2 * (warmup + duration) * 1e9);
+        Thread[] clients = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            clients[t] = new Thread(() -> {
+                long request;
+                while ((request = next.getAndIncrement()) < total) {
+                    long scheduled = throttled ? start + (long) (request * interval)
+                            : Math.max(start, System.nanoTime());
+                    if (!throttled && scheduled >= end) {
+                        break;
+                    }
+                    long sent;
+                    while ((sent = System.nanoTime()) < scheduled) {
+                        LockSupport.parkNanos(scheduled - sent);
+                    }
+                    boolean recorded = scheduled >= recording;
+                    if (sent > deadline) {
+                        if (recorded) {
+                            result.dropped.increment();
+                            result.latency.record(sent - scheduled);
+                        }
+                        continue;
+                    }
+
+                    int index = (int) (request % workload.size());
+                    int gesture;
+                    try {
+                        gesture = target.send(index);
+                    } catch (IOException | RuntimeException e) {
+                        gesture = Integer.MIN_VALUE;
+                    }
+                    long received = System.nanoTime();
+                    if (!recorded) {
+                        continue;
+                    }
+
+                    result.latency.record(received - scheduled);
+                    result.service.record(received - sent);
+                    result.firstSent.accumulateAndGet(sent, Math::min);
+                    result.lastReceived.accumulateAndGet(received, Math::max);
+                    if (gesture == Integer.MIN_VALUE) {
+                        result.errors.increment();
+                    } else if (gesture == workload.labels[index]) {
+                        result.correct.increment();
+                    }
+                }
+            }, "load-test-" + t);
+            clients[t].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        return result;
+    }
+
+    /**
+     * Posts the given body to the given URL and returns the recognised
+     * gesture.
+     *
+     * @param url URL of the recognition endpoint
+     * @param body Body of the request
+     * @param vocabulary Vocabulary the names are turned into labels with
+     * @return Label of the recognised gesture or
+     *         {@link hr.fer.seminar.recognition.Recognition#UNKNOWN}
+     * @throws IOException If the request failed
+     */
+    private static int post(URL url, byte[] body, GestureVocabulary vocabulary)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body);
+        }
+
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                readFully(error);
+            }
+            throw new IOException("Status " + status + " from " + url + ".");
+        }
+
+        String response = readFully(connection.getInputStream());
+        for (String line : response.split("\n")) {
+            if (line.startsWith(ExampleFiles.LABEL_PREFIX)) {
+                return vocabulary.labelOf(line.substring(ExampleFiles.LABEL_PREFIX.length()));
+            }
+        }
+        throw new IOException("Response of " + url + " contains no label.");
+    }
+
+    /**
+     * Reads the given stream to its end and closes it, so the
+     * connection can be reused.
+     *
+     * @param input Stream
+     * @return Read text
+     * @throws IOException If reading fails
+     */
+    private static String readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        try (InputStream stream = input) {
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Prints the result of a run and returns its values by the columns
+     * of the CSV file.
+     *
+     * @param name Name of the target
+     * @param result Result of the run
+     * @param qps Target number of requests per second
+     * @param threads Number of client threads
+     * @return Values of the columns
+     */
+    private static Map<String, String> report(String name, Result result, double qps,
+            int threads) {
+        LatencyHistogram latency = result.latency;
+        long requests = latency.getCount();
+        long sent = requests - result.dropped.sum();
+        double elapsed = (result.lastReceived.get() - result.firstSent.get()) / 1e9;
+        double throughput = sent == 0 || elapsed <= 0 ? 0 : sent / elapsed;
+        double accuracy = sent == 0 ? 0 : (double) result.correct.sum() / sent;
+
+        System.out.println(String.format(Locale.ROOT,
+                "%-9s %7.0f %9d %6d %7d %10.0f %8.3f %9.0f %9.0f %9.0f %9.0f %9.0f %9.0f", name,
+                qps, requests, result.errors.sum(), result.dropped.sum(), throughput, accuracy,
+                latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(90) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3,
+                latency.getMax() / 1e3, result.service.getValueAtPercentile(99) / 1e3));
+
+        Object[] values = { name, qps, threads, requests, result.errors.sum(),
+            result.dropped.sum(), throughput, accuracy, latency.getMean() / 1e3,
+            latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(90) / 1e3,
+            latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3,
+            latency.getMax() / 1e3, result.service.getValueAtPercentile(50) / 1e3,
+            result.service.getValueAtPercentile(99) / 1e3 };
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            row.put(COLUMNS[i], values[i] instanceof Double
+                    ? String.format(Locale.ROOT, "%.3f", values[i])
+                    : String.valueOf(values[i]));
+        }
+        return row;
+    }
+
+    /**
+     * Writes the given results to a CSV file with a header line.
+     *
+     * @param file File the results are written to
+     * @param results Values of the columns of every run
+     * @throws IOException If writing fails
+     */
+    private static void writeResults(Path file, List<Map<String, String>> results)
+            throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.join(",", COLUMNS));
+        for (Map<String, String> row : results) {
+            String[] values = new String[COLUMNS.length];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                values[i] = row.get(COLUMNS[i]);
+            }
+            lines.add(String.join(",", values));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        System.out.println("results written to " + file);
+    }
+
+    /**
+     * Reads the results written by
+     * {@link #writeResults(Path, List)}.
+     *
+     * @param file File with the results
+     * @return Values of the columns of every run
+     * @throws IOException If reading fails or the file is empty
+     */
+    private static List<Map<String, String>> readResults(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IOException(file + " contains no results.");
+        }
+        String[] header = lines.get(0).split(",");
+        List<Map<String, String>> results = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] values = line.split(",");
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < Math.min(header.length, values.length); i++) {
+                row.put(header[i], values[i]);
+            }
+            results.add(row);
+        }
+        return results;
+    }
+
+    /**
+     * Prints the relative change of the compared columns of every run
+     * against the run of the baseline with the same target and rate.
+     *
+     * @param baseline Results of the baseline
+     * @param results Results of this run
+     */
+    private static void compare(List<Map<String, String>> baseline,
+            List<Map<String, String>> results) {
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-9s %7s",
+                "vs base", "qps"));
+        for (String column : COMPARED) {
+            header.append(String.format(Locale.ROOT, " %11s", column));
+        }
+        System.out.println(header);
+
+        for (Map<String, String> row : results) {
+            Map<String, String> base = null;
+            for (Map<String, String> candidate : baseline) {
+                if (row.get("target").equals(candidate.get("target"))
+                        && Double.parseDouble(row.get("qps")) == Double.parseDouble(
+                                candidate.get("qps"))) {
+                    base = candidate;
+                }
+            }
+            if (base == null) {
+                continue;
+            }
+
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-9s %7.0f",
+                    row.get("target"), Double.parseDouble(row.get("qps"))));
+            for (String column : COMPARED) {
+                double before = Double.parseDouble(base.get(column));
+                double after = Double.parseDouble(row.get(column));
+                line.append(before == 0 ? String.format(Locale.ROOT, " %11s", "n/a")
+                        : String.format(Locale.ROOT, " %+10.1f%%", 100 * (after - before)
+                                / before));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Recognition the requests are sent to.
+     */
+    private interface Target {
+        /**
+         * Recognises the gesture with the given index of the workload.
+         *
+         * @param index Index of the gesture
+         * @return Label of the recognised gesture
+         * @throws IOException If the request failed
+         */
+        int send(int index) throws IOException;
+    }
+
+    /**
+     * Replayed gestures in a random order, prepared for both targets
+     * before the runs so the preparation is not measured.
+     */
+    private static final class Workload {
+        /** Snapshots of the points of the gestures. */
+        private final StrokeBuffer.Snapshot[] strokes;
+        /** Bodies of the HTTP requests of the gestures. */
+        private final byte[][] bodies;
+        /** Labels of the gestures. */
+        private final int[] labels;
+
+        /**
+         * Creates the workload from the given examples.
+         *
+         * @param examples Replayed examples
+         * @param random Generator of the order of the gestures
+         */
+        private Workload(List<GestureExample> examples, Random random) {
+            List<GestureExample> shuffled = new ArrayList<>(examples);
+            Collections.shuffle(shuffled, random);
+
+            strokes = new StrokeBuffer.Snapshot[shuffled.size()];
+            bodies = new byte[shuffled.size()][];
+            labels = new int[shuffled.size()];
+            for (int i = 0; i < shuffled.size(); i++) {
+                GestureExample example = shuffled.get(i);
+                StrokeBuffer buffer = new StrokeBuffer();
+                int stroke = 0;
+                int[] strokeStarts = example.getStrokeStarts();
+                for (int j = 0; j < example.size(); j++) {
+                    if (stroke < strokeStarts.length && strokeStarts[stroke] == j) {
+                        buffer.endStroke();
+                        stroke++;
+                    }
+                    buffer.add(example.getXs()[j], example.getYs()[j]);
+                }
+                strokes[i] = buffer.snapshot();
+                bodies[i] = RecognitionServer.encode(example.getXs(), example.getYs(),
+                        strokeStarts);
+                labels[i] = example.getLabel();
+            }
+        }
+
+        /**
+         * Returns the number of gestures.
+         *
+         * @return Number of gestures
+         */
+        private int size() {
+            return labels.length;
+        }
+    }
+
+    /**
+     * Measurements of a single run, recorded by all the client threads.
+     */
+    private static final class Result {
+        /** Latencies from the scheduled times in nanoseconds. */
+        private final LatencyHistogram latency = new LatencyHistogram();
+        /** Latencies from the times the requests were sent. */
+        private final LatencyHistogram service = new LatencyHistogram();
+        /** Number of failed requests. */
+        private final LongAdder errors = new LongAdder();
+        /** Number of requests which were not sent before the deadline. */
+        private final LongAdder dropped = new LongAdder();
+        /** Number of correctly recognised gestures. */
+        private final LongAdder correct = new LongAdder();
+        /** Time the first recorded request was sent. */
+        private final AtomicLong firstSent = new AtomicLong(Long.MAX_VALUE);
+        /** Time the last recorded response was received. */
+        private final AtomicLong lastReceived = new AtomicLong(Long.MIN_VALUE);
+    }
+
+}
@@ -0,0 +1,146 @@
+package hr.fer.seminar.evaluation;
+
+import java.util.Locale;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.SparseNeuralNetwork;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+
+/**
+ * Headless tool which trains a network once, prunes copies of it to
+ * the given sparsities and reports, for every sparsity, the memory
+ * taken by the weights in the dense and in the compressed sparse row
+ * layout, the validation accuracy and its drop compared to the
+ * unpruned network, and the mean inference latency of the dense and
+ * the sparse network together with the speedup.
+ *
+ * Latencies are measured on the representative points, so they cover
+ * only the network. The sparse layout pays for the index of every
+ * stored weight, so it is smaller and faster only above a certain
+ * sparsity, which the report shows for the given layer sizes.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --train       directory with learning examples (default ./learningExamples)
+ * --validation  directory with validation examples (default ./validationExamples)
+ * --points      number of representative points (default 10)
+ * --hidden      number of hidden layer neurons (default 5)
+ * --epochs      number of training epochs (default 5000)
+ * --rate        learning rate (default 1)
+ * --init        scheme of the initial weights, uniform, xavier or he
+ *               (default xavier)
+ * --seed        seed of the initial weights (default 0)
+ * --sparsities  comma separated shares of pruned weights
+ *               (default 0,0.25,0.5,0.75,0.9)
+ * --repeat      number of times every example is classified when
+ *               measuring latency (default 1000)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class PruningReport {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private PruningReport() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+
+        int numOfPoints = arguments.getInt("points", 10);
+        int repeat = arguments.getInt("repeat", 1000);
+        double[] sparsities = arguments.getDoubleList("sparsities", 0, 0.25, 0.5, 0.75, 0.9);
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        DataSet trainSet = DataSet.load(arguments.getPath("train", "./learningExamples"),
+                vocabulary, numOfPoints);
+        DataSet validationSet = DataSet.load(
+                arguments.getPath("validation", "./validationExamples"), vocabulary,
+                numOfPoints);
+
+        NeuralNetwork trained = new NeuralNetwork(numOfPoints * 2,
+                arguments.getInt("hidden", 5), vocabulary.size(),
+                WeightInitializer.of(arguments.getString("init", "xavier")),
+                arguments.getInt("seed", 0));
+        NeuralNetworkTrainer.train(trained, trainSet.getInputs(), trainSet.getExpectedOutputs(),
+                arguments.getInt("epochs", 5000), arguments.getInt("rate", 1));
+        double baseline = Evaluation.topAccuracy(trained, validationSet);
+
+        System.out.println(String.format(Locale.ROOT,
+                "%d inputs, %d hidden, %d outputs, %d validation examples",
+                trained.getInputLayerSize(), trained.getHiddenLayerSize(),
+                trained.getOutputLayerSize(), validationSet.size()));
+        System.out.println(String.format(Locale.ROOT,
+                "%8s %8s %9s %9s %8s %8s %9s %9s %8s", "sparsity", "weights", "dense_b",
+                "sparse_b", "accuracy", "drop", "dense_us", "sparse_us", "speedup"));
+        for (double sparsity : sparsities) {
+            NeuralNetwork network = new NeuralNetwork(trained);
+            NeuralNetworkTrainer.prune(network, sparsity);
+            SparseNeuralNetwork sparse = new SparseNeuralNetwork(network);
+
+            double accuracy = Evaluation.topAccuracy(network, validationSet);
+            double denseLatency = measure(network::calculateOutputs, network, validationSet,
+                    repeat);
+            double sparseLatency = measure(sparse::calculateOutputs, network, validationSet,
+                    repeat);
+
+            System.out.println(String.format(Locale.ROOT,
+                    "%8.3f %8d %9d %9d %8.3f %8.3f %9.3f %9.3f %8.2f", sparse.getSparsity(),
+                    sparse.getNumberOfWeights(), SparseNeuralNetwork.getMemorySize(network),
+                    sparse.getMemorySize(), accuracy, baseline - accuracy, denseLatency / 1e3,
+                    sparseLatency / 1e3, denseLatency / sparseLatency));
+        }
+    }
+
+    /**
+     * Measures the mean latency of calculating the outputs of every
+     * example the given number of times. The same number of passes is
+     * made before the measurement to warm up the network.
+     *
+     * @param inference Calculation of the outputs
+     * @param network Network whose layer sizes are used for the buffers
+     * @param dataSet Examples
+     * @param repeat Number of recorded passes over the examples
+     * @return Mean latency in nanoseconds
+     */
+    private static double measure(Inference inference, NeuralNetwork network, DataSet dataSet,
+            int repeat) {
+        double[][] inputs = dataSet.getInputs();
+        double[] hidden = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[network.getOutputLayerSize()];
+        return ToolSupport.measureLatencies(inputs.length, repeat, repeat, i -> {
+            inference.calculateOutputs(inputs[i], hidden, outputs);
+            return Evaluation.indexOfMax(outputs);
+        }).getMean();
+    }
+
+    /**
+     * Calculates the outputs of a dense or a sparse network.
+     */
+    private interface Inference {
+        /**
+         * Calculates the outputs of the network for the given inputs.
+         *
+         * @param inputs Inputs of the network
+         * @param hiddenLayerOutputs Array for the outputs of the hidden
+         *        layer
+         * @param outputs Array for the outputs of the network
+         */
+        void calculateOutputs(double[] inputs, double[] hiddenLayerOutputs, double[] outputs);
+    }
+
+}
@@ -0,0 +1,215 @@
+package hr.fer.seminar.evaluation;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.AugmentedExamples;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureLoader;
+import hr.fer.seminar.recognition.LatencyHistogram;
+import hr.fer.seminar.recognition.Recognition;
+import hr.fer.seminar.recognition.TemplateRecognizer;
+
+/**
+ * Headless tool which compares the accuracy and the latency of
+ * recognising the validation examples with a trained
+ * {@link NeuralNetwork}, with a {@link TemplateRecognizer} using the
+ * learning examples as templates, with a linear scan of the same
+ * templates and with the network falling back to the templates when
+ * it is not certain enough.
+ *
+ * Latencies are measured on the representative points, so they cover
+ * only the classification and not the preprocessing shared by all the
+ * recognizers. The template set can be enlarged with augmented variants
+ * of the learning examples to see how the search scales with the number
+ * of templates.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --train       directory with learning examples (default ./learningExamples)
+ * --validation  directory with validation examples (default ./validationExamples)
+ * --points      number of representative points (default 10)
+ * --hidden      number of hidden layer neurons (default 5)
+ * --epochs      number of training epochs (default 5000)
+ * --rate        learning rate (default 1)
+ * --init        scheme of the initial weights, uniform, xavier or he
+ *               (default xavier)
+ * --seed        seed of the initial weights (default 0)
+ * --variants    number of augmented variants of every learning example
+ *               added to the templates (default 0)
+ * --repeat      number of times every example is recognised when
+ *               measuring latency (default 1000)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class RecognizerBenchmark {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private RecognizerBenchmark() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+
+        int numOfPoints = arguments.getInt("points", 10);
+        int repeat = arguments.getInt("repeat", 1000);
+        Path trainDirectory = arguments.getPath("train", "./learningExamples");
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        List<GestureExample> examples = GestureLoader.loadExamples(trainDirectory, vocabulary);
+        if (examples == null) {
+            throw new IllegalArgumentException(
+                    "Unable to load examples from " + trainDirectory + ".");
+        }
+        DataSet validationSet = DataSet.load(
+                arguments.getPath("validation", "./validationExamples"), vocabulary,
+                numOfPoints);
+        int numOfOutputs = vocabulary.size();
+        DataSet trainSet = DataSet.of(examples, numOfPoints, numOfOutputs);
+
+        NeuralNetwork network = new NeuralNetwork(numOfPoints * 2,
+                arguments.getInt("hidden", 5), numOfOutputs,
+                WeightInitializer.of(arguments.getString("init", "xavier")),
+                arguments.getInt("seed", 0));
+        NeuralNetworkTrainer.train(network, trainSet.getInputs(), trainSet.getExpectedOutputs(),
+                arguments.getInt("epochs", 5000), arguments.getInt("rate", 1));
+
+        DataSet templateSet = trainSet;
+        int variants = arguments.getInt("variants", 0);
+        if (variants > 0) {
+            AugmentedExamples augmented = new AugmentedExamples(examples, numOfPoints,
+                    numOfOutputs, variants, 0);
+            templateSet = new DataSet(augmented.getInputs(0), augmented.getExpectedOutputs(),
+                    numOfPoints);
+        }
+        TemplateRecognizer templates = new TemplateRecognizer(templateSet);
+
+        // the benchmark runs on a single thread, so the buffers are shared
+        double[] hidden = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[numOfOutputs];
+        Classifier[] classifiers = {
+            input -> {
+                network.calculateOutputs(input, hidden, outputs);
+                return Evaluation.classify(outputs, Evaluation.PRECISION);
+            },
+            input -> templates.recognize(input).getGesture(),
+            linearScan(templateSet),
+            input -> {
+                network.calculateOutputs(input, hidden, outputs);
+                int gesture = Evaluation.classify(outputs, Evaluation.PRECISION);
+                return gesture != Recognition.UNKNOWN ? gesture
+                        : templates.recognize(input).getGesture();
+            }
+        };
+        String[] names = { "network", "templates", "linear-scan", "network+fallback" };
+
+        System.out.println(String.format(Locale.ROOT, "%d templates, %d validation examples",
+                templateSet.size(), validationSet.size()));
+        System.out.println(String.format(Locale.ROOT, "%-18s %8s %9s %9s %9s %9s",
+                "recognizer", "accuracy", "mean_us", "p50_us", "p99_us", "max_us"));
+        for (int i = 0; i < classifiers.length; i++) {
+            double accuracy = accuracy(classifiers[i], validationSet);
+            LatencyHistogram latency = measure(classifiers[i], validationSet, repeat);
+            System.out.println(String.format(Locale.ROOT,
+                    "%-18s %8.3f %9.2f %9.2f %9.2f %9.2f", names[i], accuracy,
+                    latency.getMean() / 1e3, latency.getValueAtPercentile(50) / 1e3,
+                    latency.getValueAtPercentile(99) / 1e3, latency.getMax() / 1e3));
+        }
+    }
+
+    /**
+     * Creates a classifier which compares the input with every template
+     * and returns the gesture of the nearest one.
+     *
+     * @param templateSet Templates
+     * @return Classifier scanning all the templates
+     */
+    private static Classifier linearScan(DataSet templateSet) {
+        double[][] inputs = templateSet.getInputs();
+        double[][] expectedOutputs = templateSet.getExpectedOutputs();
+
+        return input -> {
+            int nearest = 0;
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < inputs.length; i++) {
+                double sum = 0;
+                for (int j = 0; j < input.length; j++) {
+                    double difference = input[j] - inputs[i][j];
+                    sum += difference * difference;
+                }
+                if (sum < nearestDistance) {
+                    nearestDistance = sum;
+                    nearest = i;
+                }
+            }
+            return Evaluation.indexOfMax(expectedOutputs[nearest]);
+        };
+    }
+
+    /**
+     * Calculates the share of the examples classified correctly.
+     *
+     * @param classifier Classifier
+     * @param dataSet Examples
+     * @return Accuracy in range [0, 1]
+     */
+    private static double accuracy(Classifier classifier, DataSet dataSet) {
+        int correct = 0;
+        for (int i = 0; i < dataSet.size(); i++) {
+            int expected = Evaluation.indexOfMax(dataSet.getExpectedOutputs()[i]);
+            if (classifier.classify(dataSet.getInputs()[i]) == expected) {
+                correct++;
+            }
+        }
+        return (double) correct / dataSet.size();
+    }
+
+    /**
+     * Measures the latency of classifying every example the given
+     * number of times. The first pass is not recorded, it only warms up
+     * the classifier.
+     *
+     * @param classifier Classifier
+     * @param dataSet Examples
+     * @param repeat Number of recorded passes over the examples
+     * @return Histogram of the latencies in nanoseconds
+     */
+    private static LatencyHistogram measure(Classifier classifier, DataSet dataSet,
+            int repeat) {
+        double[][] inputs = dataSet.getInputs();
+        return ToolSupport.measureLatencies(inputs.length, 1, repeat,
+                i -> classifier.classify(inputs[i]));
+    }
+
+    /**
+     * Classifies the representative points of a gesture.
+     */
+    private interface Classifier {
+        /**
+         * Returns the gesture with the given representative points.
+         *
+         * @param input Coordinates of the representative points
+         * @return Index of the gesture or {@link Recognition#UNKNOWN}
+         */
+        int classify(double[] input);
+    }
+
+}
@@ -0,0 +1,156 @@
+package hr.fer.seminar.evaluation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hr.fer.seminar.dataCollecting.ExampleFiles;
+import hr.fer.seminar.dataCollecting.GestureRecorder;
+
+/**
+ * Tool which converts the segments written by {@link GestureRecorder}
+ * to the layout the examples are loaded from, writing every recorded
+ * gesture to its own file in the directory of the gesture (see
+ * {@link ExampleFiles}). Gestures whose file already exists are
+ * skipped, so the segments can be compacted again after new ones were
+ * added.
+ *
+ * The newest segment of every recorder may still be being written, so
+ * it is compacted but never deleted; it is deleted by a compaction
+ * after its recorder started a newer segment.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --recordings  directory with the segments (default ./recordings)
+ * --output      directory the directories of the gestures are created
+ *               in (default .)
+ * --delete      delete every segment but the newest one of every
+ *               recorder after it was compacted
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class RecordingCompactor {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private RecordingCompactor() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     * @throws IOException If reading a segment or writing a gesture
+     *         fails
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+
+        Path recordings = arguments.getPath("recordings", "./recordings");
+        Path output = arguments.getPath("output", ".");
+        boolean delete = arguments.has("delete");
+
+        int written = 0;
+        int skipped = 0;
+        List<Path> segments = listSegments(recordings);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            int[] counts = compact(segment, output);
+            written += counts[0];
+            skipped += counts[1];
+
+            // the next segment of the same recorder follows in the sorted
+            // order, the last segment of a recorder may still be open
+            boolean newest = i + 1 == segments.size()
+                    || !recorderOf(segments.get(i + 1)).equals(recorderOf(segment));
+            if (delete && !newest) {
+                Files.delete(segment);
+            }
+        }
+
+        System.out.println("Compacted " + segments.size() + " segments: " + written
+                + " gestures written, " + skipped + " already existed.");
+    }
+
+    /**
+     * Returns the segments in the given directory in the order they
+     * were written.
+     *
+     * @param directory Directory with the segments
+     * @return Sorted list of the segments
+     * @throws IOException If the directory could not be read
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                "*" + GestureRecorder.SEGMENT_EXTENSION)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Returns the part of the name of the given segment which is the same
+     * for all the segments of one recorder, that is the name without the
+     * number of the segment and the extension.
+     *
+     * @param segment Segment file
+     * @return Prefix of the segments of the recorder
+     */
+    private static String recorderOf(Path segment) {
+        String name = segment.getFileName().toString();
+        int end = name.length() - GestureRecorder.SEGMENT_EXTENSION.length();
+        int start = end;
+        while (start > 0 && Character.isDigit(name.charAt(start - 1))) {
+            start--;
+        }
+        return name.substring(0, start);
+    }
+
+    /**
+     * Writes all the gestures of the given segment to the files of the
+     * gestures within the given directory.
+     *
+     * @param segment Segment file
+     * @param output Directory the directories of the gestures are
+     *        created in
+     * @return Number of written gestures and number of gestures whose
+     *         file already existed
+     * @throws IOException If reading the segment or writing a gesture
+     *         fails
+     */
+    public static int[] compact(Path segment, Path output) throws IOException {
+        int[] counts = new int[2];
+        try {
+            GestureRecorder.readSegment(segment, gesture -> {
+                try {
+                    ExampleFiles.write(output, gesture);
+                    counts[0]++;
+                } catch (FileAlreadyExistsException e) {
+                    counts[1]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,248 @@
+package hr.fer.seminar.evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.dataCollecting.Normalisation;
+import hr.fer.seminar.dataCollecting.Simplification;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureLoader;
+import hr.fer.seminar.recognition.GestureRecognizer;
+import hr.fer.seminar.recognition.RecognitionMetrics;
+
+/**
+ * Headless tool which measures how the simplification of dense strokes
+ * (see {@link Simplification}) changes the latency and the accuracy of
+ * the recognition. A network is trained on the learning examples and
+ * every validation example is turned into dense synthetic strokes, as
+ * if it was drawn on a tablet: its points are interpolated along the
+ * gesture with a varying speed, scaled to the given size in pixels and
+ * disturbed by noise.
+ *
+ * For every tolerance the tool prints the mean number of points left
+ * after the simplification, the mean latency of the whole recognition
+ * of a stroke, the accuracy and the share of the strokes recognised as
+ * without the simplification.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --train       directory with learning examples (default ./learningExamples)
+ * --validation  directory with validation examples (default ./validationExamples)
+ * --points      number of representative points (default 10)
+ * --hidden      number of hidden layer neurons (default 20)
+ * --epochs      number of training epochs (default 5000)
+ * --rate        learning rate (default 1)
+ * --init        scheme of the initial weights, uniform, xavier or he
+ *               (default xavier)
+ * --seed        seed of the weights and of the strokes (default 0)
+ * --density     number of points of a synthetic stroke (default 5000)
+ * --variants    number of synthetic strokes per example (default 10)
+ * --size        size of a synthetic stroke in pixels (default 500)
+ * --noise       standard deviation of the noise in pixels (default 0.3)
+ * --tolerances  comma separated tolerances relative to the normalised
+ *               range (default 0,0.002,0.005,0.01,0.02)
+ * --repeat      number of times every stroke is recognised when
+ *               measuring latency (default 20)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class SimplificationBenchmark {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private SimplificationBenchmark() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+
+        int numOfPoints = arguments.getInt("points", 10);
+        int repeat = arguments.getInt("repeat", 20);
+        int seed = arguments.getInt("seed", 0);
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        DataSet trainSet = DataSet.load(arguments.getPath("train", "./learningExamples"),
+                vocabulary, numOfPoints);
+        List<GestureExample> validation = GestureLoader.loadExamples(
+                arguments.getPath("validation", "./validationExamples"), vocabulary);
+        if (validation == null) {
+            throw new IllegalArgumentException("Unable to load validation examples.");
+        }
+
+        NeuralNetwork network = new NeuralNetwork(trainSet.getNumOfInputs(),
+                arguments.getInt("hidden", 20), vocabulary.size(),
+                WeightInitializer.of(arguments.getString("init", "xavier")), seed);
+        NeuralNetworkTrainer.train(network, trainSet.getInputs(), trainSet.getExpectedOutputs(),
+                arguments.getInt("epochs", 5000), arguments.getInt("rate", 1));
+
+        Random random = new Random(seed);
+        List<StrokeBuffer.Snapshot> strokes = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        for (GestureExample example : validation) {
+            for (int i = 0; i < arguments.getInt("variants", 10); i++) {
+                strokes.add(denseStroke(example, arguments.getInt("density", 5000),
+                        arguments.getDouble("size", 500), arguments.getDouble("noise", 0.3),
+                        random));
+                labels.add(example.getLabel());
+            }
+        }
+
+        RecognitionMetrics metrics = new RecognitionMetrics(false);
+        int[] reference = null;
+        System.out.println(String.format(Locale.ROOT, "%d strokes of %d points", strokes.size(),
+                strokes.get(0).size()));
+        System.out.println(String.format(Locale.ROOT, "%9s %8s %10s %8s %8s", "tolerance",
+                "points", "latency_us", "accuracy", "agree"));
+        for (double tolerance : arguments.getDoubleList("tolerances", 0, 0.002, 0.005, 0.01,
+                0.02)) {
+            GestureRecognizer recognizer = new GestureRecognizer.Builder(network,
+                    Evaluation.PRECISION).metrics(metrics).simplification(tolerance).build();
+
+            int[] gestures = new int[strokes.size()];
+            int correct = 0;
+            long remaining = 0;
+            for (int i = 0; i < strokes.size(); i++) {
+                gestures[i] = recognizer.recognize(strokes.get(i)).getGesture();
+                if (gestures[i] == labels.get(i)) {
+                    correct++;
+                }
+                remaining += remainingPoints(strokes.get(i), tolerance);
+            }
+            if (reference == null) {
+                reference = gestures;
+            }
+            int agreeing = 0;
+            for (int i = 0; i < gestures.length; i++) {
+                if (gestures[i] == reference[i]) {
+                    agreeing++;
+                }
+            }
+
+            System.out.println(String.format(Locale.ROOT, "%9.4f %8.1f %10.2f %8.3f %8.3f",
+                    tolerance, (double) remaining / strokes.size(),
+                    measure(recognizer, strokes, repeat) / 1e3,
+                    (double) correct / strokes.size(), (double) agreeing / strokes.size()));
+        }
+    }
+
+    /**
+     * Creates a dense stroke following the points of the given example.
+     * The stroke is sampled at the given number of points along the
+     * gesture with a speed varying between the half and one and a half
+     * of the average one, scaled to the given size and disturbed by
+     * Gaussian noise. The pen is lifted between the strokes of the
+     * example.
+     *
+     * @param example Example the stroke follows
+     * @param density Number of points of the stroke
+     * @param size Size of the stroke in pixels
+     * @param noise Standard deviation of the noise in pixels
+     * @param random Generator of the speed and the noise
+     * @return Snapshot of the stroke
+     */
+    private static StrokeBuffer.Snapshot denseStroke(GestureExample example, int density,
+            double size, double noise, Random random) {
+        double[] xs = example.getXs();
+        double[] ys = example.getYs();
+        int[] strokeStarts = example.getStrokeStarts();
+        double[] distances = new double[xs.length];
+        int stroke = 0;
+        for (int i = 1; i < xs.length; i++) {
+            // the gap between two strokes has no length
+            if (stroke < strokeStarts.length && strokeStarts[stroke] == i) {
+                distances[i] = distances[i - 1];
+                stroke++;
+            } else {
+                distances[i] = distances[i - 1] + Math.hypot(xs[i] - xs[i - 1],
+                        ys[i] - ys[i - 1]);
+            }
+        }
+        stroke = 0;
+        double length = distances[xs.length - 1];
+
+        double phase = random.nextDouble() * 2 * Math.PI;
+        StrokeBuffer buffer = new StrokeBuffer();
+        int segment = 0;
+        for (int k = 0; k < density; k++) {
+            double t = density == 1 ? 0 : (double) k / (density - 1);
+            // monotonic warp of the time: the pen slows down and speeds up
+            double warped = t + 0.5 * (Math.sin(2 * Math.PI * t + phase) - Math.sin(phase))
+                    / (2 * Math.PI);
+            double target = Math.max(0, Math.min(1, warped)) * length;
+
+            while (segment < xs.length - 2 && distances[segment + 1] < target) {
+                segment++;
+            }
+            while (stroke < strokeStarts.length && strokeStarts[stroke] <= segment) {
+                buffer.endStroke();
+                stroke++;
+            }
+            double x = xs[segment];
+            double y = ys[segment];
+            if (segment + 1 < xs.length) {
+                double span = distances[segment + 1] - distances[segment];
+                double ratio = span == 0 ? 0 : (target - distances[segment]) / span;
+                x += ratio * (xs[segment + 1] - xs[segment]);
+                y += ratio * (ys[segment + 1] - ys[segment]);
+            }
+            buffer.add(x * size / 2 + random.nextGaussian() * noise,
+                    y * size / 2 + random.nextGaussian() * noise);
+        }
+        return buffer.snapshot();
+    }
+
+    /**
+     * Returns the number of points of the given stroke left by the
+     * simplification done by the recognizer.
+     *
+     * @param stroke Stroke
+     * @param tolerance Tolerance relative to the normalised range
+     * @return Number of the remaining points
+     */
+    private static int remainingPoints(StrokeBuffer.Snapshot stroke, double tolerance) {
+        double[] xs = new double[stroke.size()];
+        double[] ys = new double[stroke.size()];
+        stroke.copyTo(xs, ys);
+        if (tolerance == 0) {
+            return xs.length;
+        }
+        Normalisation.normalisePoints(xs, ys, xs.length);
+        return Simplification.simplify(xs, ys, xs.length, tolerance);
+    }
+
+    /**
+     * Measures the mean latency of recognising every stroke the given
+     * number of times, after as many passes to warm up the recognizer.
+     *
+     * @param recognizer Recognizer
+     * @param strokes Strokes
+     * @param repeat Number of recorded passes over the strokes
+     * @return Mean latency in nanoseconds
+     */
+    private static double measure(GestureRecognizer recognizer,
+            List<StrokeBuffer.Snapshot> strokes, int repeat) {
+        long time = ToolSupport.measureTime(strokes.size(), repeat, repeat,
+                i -> recognizer.recognize(strokes.get(i)).getGesture());
+        return (double) time / repeat / strokes.size();
+    }
+
+}
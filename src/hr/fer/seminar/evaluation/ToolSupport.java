@@ -0,0 +1,134 @@
+package hr.fer.seminar.evaluation;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureLoader;
+import hr.fer.seminar.recognition.LatencyHistogram;
+
+/**
+ * Helper methods shared by the evaluation tools for loading examples
+ * and measuring the latency of an operation.
+ *
+ * The measuring methods run the operation on every item the given
+ * number of times to warm it up before the recorded passes. The results
+ * of the operation are summed and kept in use, so the JIT compiler can
+ * not remove the measured calculation.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class ToolSupport {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private ToolSupport() {
+
+    }
+
+    /**
+     * Loads all the examples from the given directory.
+     *
+     * @param directory Directory with examples
+     * @param vocabulary Vocabulary of the gestures
+     * @return Loaded examples
+     * @throws IllegalArgumentException If the examples could not be
+     *         loaded
+     */
+    public static List<GestureExample> load(Path directory, GestureVocabulary vocabulary) {
+        List<GestureExample> examples = GestureLoader.loadExamples(directory, vocabulary);
+        if (examples == null) {
+            throw new IllegalArgumentException("Unable to load examples from " + directory + ".");
+        }
+        return examples;
+    }
+
+    /**
+     * Measures the time of running the operation on every item the given
+     * number of times.
+     *
+     * @param size Number of items
+     * @param warmup Number of passes over the items before the
+     *        measurement
+     * @param repeat Number of recorded passes over the items
+     * @param operation Measured operation
+     * @return Time of the recorded passes in nanoseconds
+     */
+    public static long measureTime(int size, int warmup, int repeat, Operation operation) {
+        int checksum = 0;
+        long start = 0;
+        for (int pass = -warmup; pass < repeat; pass++) {
+            if (pass == 0) {
+                start = System.nanoTime();
+            }
+            for (int i = 0; i < size; i++) {
+                checksum += operation.run(i);
+            }
+        }
+        long time = System.nanoTime() - start;
+
+        keep(checksum);
+        return time;
+    }
+
+    /**
+     * Measures the latency of every run of the operation on every item
+     * the given number of times.
+     *
+     * @param size Number of items
+     * @param warmup Number of passes over the items before the
+     *        measurement
+     * @param repeat Number of recorded passes over the items
+     * @param operation Measured operation
+     * @return Histogram of the latencies in nanoseconds
+     */
+    public static LatencyHistogram measureLatencies(int size, int warmup, int repeat,
+            Operation operation) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int checksum = 0;
+        for (int pass = -warmup; pass < repeat; pass++) {
+            for (int i = 0; i < size; i++) {
+                long start = System.nanoTime();
+                checksum += operation.run(i);
+                long latency = System.nanoTime() - start;
+                if (pass >= 0) {
+                    histogram.record(latency);
+                }
+            }
+        }
+
+        keep(checksum);
+        return histogram;
+    }
+
+    /**
+     * Keeps the given sum of the results in use so the calculation of
+     * the results is not removed.
+     *
+     * @param checksum Sum of the results
+     */
+    private static void keep(int checksum) {
+        if (checksum == Integer.MIN_VALUE) {
+            System.out.println(checksum);
+        }
+    }
+
+    /**
+     * Operation whose latency is measured.
+     */
+    public interface Operation {
+        /**
+         * Runs the operation on the item with the given index.
+         *
+         * @param index Index of the item
+         * @return Result of the operation, such as the index of the
+         *         recognised gesture
+         */
+        int run(int index);
+    }
+
+}
@@ -0,0 +1,114 @@
+package hr.fer.seminar.evaluation;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import hr.fer.seminar.neuralNetwork.EpochStatistics;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.TrainingListener;
+
+/**
+ * {@link TrainingListener} which writes the statistics of the training
+ * epochs to a file, one line per reported epoch, either as CSV with a
+ * header line or as JSON objects (one object per line).
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class TrainingLogWriter implements TrainingListener, Closeable {
+
+    /**
+     * Supported formats of the log.
+     */
+    public enum Format {
+        /** Comma separated values with a header line. */
+        CSV,
+        /** One JSON object per line. */
+        JSON;
+
+        /**
+         * Returns the format with the given name, ignoring case.
+         *
+         * @param name Name of the format
+         * @return Format
+         * @throws IllegalArgumentException If there is no such format
+         */
+        public static Format of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /** Writer the log is written to. */
+    private final Writer writer;
+    /** Format of the log. */
+    private final Format format;
+    /** Only every n-th epoch (and the last one) is written. */
+    private final int interval;
+
+    /**
+     * Creates a new log writer which writes to the given file.
+     *
+     * @param file File the log is written to
+     * @param format Format of the log
+     * @param interval Only every n-th epoch and the last epoch are
+     *        written
+     * @throws IOException If the file could not be opened
+     */
+    public TrainingLogWriter(Path file, Format format, int interval) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8), format, interval);
+    }
+
+    /**
+     * Creates a new log writer which writes to the given writer.
+     *
+     * @param writer Writer the log is written to
+     * @param format Format of the log
+     * @param interval Only every n-th epoch and the last epoch are
+     *        written
+     * @throws IOException If the header could not be written
+     */
+    public TrainingLogWriter(Writer writer, Format format, int interval) throws IOException {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        this.format = format;
+        this.interval = Math.max(1, interval);
+
+        if (format == Format.CSV) {
+            this.writer.write("epoch,loss,accuracy,epoch_ms,elapsed_ms,examples_per_second,"
+                    + "allocated_bytes\n");
+        }
+    }
+
+    @Override
+    public void epochFinished(NeuralNetwork network, EpochStatistics statistics) {
+        int epoch = statistics.getEpoch();
+        if (epoch % interval != 0 && epoch != statistics.getNumOfEpochs()) {
+            return;
+        }
+
+        String pattern = format == Format.CSV ? "%d,%.6f,%.4f,%.3f,%.3f,%.1f,%d\n"
+                : "{\"epoch\":%d,\"loss\":%.6f,\"accuracy\":%.4f,\"epochMs\":%.3f,"
+                        + "\"elapsedMs\":%.3f,\"examplesPerSecond\":%.1f,"
+                        + "\"allocatedBytes\":%d}\n";
+        try {
+            writer.write(String.format(Locale.ROOT, pattern, epoch, statistics.getLoss(),
+                    statistics.getAccuracy(), statistics.getEpochTime() / 1e6,
+                    statistics.getElapsedTime() / 1e6, statistics.getExamplesPerSecond(),
+                    statistics.getAllocatedBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
@@ -0,0 +1,276 @@
+package hr.fer.seminar.evaluation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.NetworkSerializer;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.TrainingListener;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+import hr.fer.seminar.recognition.DataSet;
+import hr.fer.seminar.recognition.Evaluation;
+import hr.fer.seminar.recognition.GestureExample;
+import hr.fer.seminar.recognition.GestureFeatures;
+import hr.fer.seminar.recognition.ModelRegistry;
+
+/**
+ * Headless tool which trains a {@link NeuralNetwork} on the examples
+ * from a directory, evaluates it on the examples from another one and
+ * saves it. It prints the accuracy, the confusion matrix, the time
+ * spent loading, training and evaluating and the training and
+ * inference throughput.
+ *
+ * With the 'load' option an existing model is evaluated instead of
+ * training a new one. Together with the 'fine-tune' option the loaded
+ * model is fine-tuned on the examples from the given directory mixed
+ * with a replay sample of the learning examples (see
+ * {@link NeuralNetworkTrainer#fineTune}), which takes far fewer epochs
+ * than training from random weights. Gestures which the model does not
+ * know get new outputs. The model is saved with
+ * {@link NetworkSerializer} and the vocabulary of its gestures is saved
+ * next to it (see {@link ModelRegistry#vocabularyFile(Path)}), so the
+ * labels of its outputs are known when it is loaded again, also by a
+ * {@link ModelRegistry}.
+ *
+ * With the 'bins' option a new network is trained on the features of
+ * the gestures (see {@link GestureFeatures}) instead of the
+ * coordinates of their representative points. The extractor is saved
+ * next to the model (see {@link ModelRegistry#featuresFile(Path)}) and
+ * used again whenever the model is loaded.
+ *
+ * The tool does not use any AWT or Swing classes, so it runs on
+ * headless machines and starts without initialising the toolkit.
+ *
+ * Supported options:
+ *
+ * <pre>
+ * --train       directory with learning examples (default ./learningExamples)
+ * --validation  directory with validation examples (default ./validationExamples)
+ * --points      number of representative points (default 10)
+ * --bins        number of bins of the direction histogram of the
+ *               features the network is trained on, fewer than the
+ *               points (optional, the coordinates are used without it)
+ * --hidden      number of hidden layer neurons (default 5)
+ * --epochs      number of training epochs (default 5000, 2000 when
+ *               fine-tuning)
+ * --rate        learning rate (default 1, 5 when fine-tuning)
+ * --init        scheme of the initial weights, uniform, xavier or he
+ *               (default xavier)
+ * --seed        seed of the initial weights (default 0)
+ * --precision   output needed for a gesture to be recognised (default 0.97)
+ * --repeat      number of passes over the validation examples when
+ *               measuring inference throughput (default 100)
+ * --model       file the trained model is saved to (optional)
+ * --load        file of a model evaluated instead of training (optional)
+ * --fine-tune   directory with new examples the loaded model is
+ *               fine-tuned on (optional)
+ * --replay      greatest number of learning examples replayed when
+ *               fine-tuning (default 200)
+ * </pre>
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class TrainingTool {
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private TrainingTool() {
+
+    }
+
+    /**
+     * Method run on program start.
+     *
+     * @param args Command line arguments
+     * @throws IOException If the model could not be loaded or saved
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        double precision = arguments.getDouble("precision", Evaluation.PRECISION);
+        int repeat = arguments.getInt("repeat", 100);
+
+        NeuralNetwork network = null;
+        GestureVocabulary vocabulary = GestureVocabulary.createDefault();
+        GestureFeatures features = null;
+        if (arguments.has("load")) {
+            Path model = arguments.getPath("load", "");
+            network = NetworkSerializer.load(model);
+            if (Files.exists(ModelRegistry.vocabularyFile(model))) {
+                vocabulary = GestureVocabulary.load(ModelRegistry.vocabularyFile(model));
+            }
+            if (Files.exists(ModelRegistry.featuresFile(model))) {
+                features = GestureFeatures.load(ModelRegistry.featuresFile(model));
+            }
+        } else if (arguments.has("bins")) {
+            features = new GestureFeatures(arguments.getInt("points", 10),
+                    arguments.getInt("bins", 0));
+        }
+        boolean fineTune = arguments.has("fine-tune");
+        if (fineTune && network == null) {
+            throw new IllegalArgumentException("Fine-tuning needs a model given with 'load'.");
+        }
+        int numOfPoints = features != null ? features.getNumOfPoints()
+                : network != null ? network.getInputLayerSize() / 2
+                        : arguments.getInt("points", 10);
+
+        long start = System.nanoTime();
+        List<GestureExample> newExamples = fineTune
+                ? ToolSupport.load(arguments.getPath("fine-tune", ""), vocabulary) : null;
+        List<GestureExample> trainExamples = network != null && !fineTune ? null
+                : ToolSupport.load(arguments.getPath("train", "./learningExamples"), vocabulary);
+        List<GestureExample> validationExamples = ToolSupport.load(
+                arguments.getPath("validation", "./validationExamples"), vocabulary);
+        int numOfOutputs = vocabulary.size();
+        DataSet validationSet = inputsOf(validationExamples, numOfPoints, numOfOutputs,
+                features);
+        DataSet trainSet = inputsOf(trainExamples, numOfPoints, numOfOutputs, features);
+        DataSet newSet = inputsOf(newExamples, numOfPoints, numOfOutputs, features);
+        long loadTime = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.ROOT, "loaded %d learning, %d new and %d "
+                + "validation examples of %d gestures in %.1f ms",
+                trainSet == null ? 0 : trainSet.size(), newSet == null ? 0 : newSet.size(),
+                validationSet.size(), numOfOutputs, loadTime / 1e6));
+
+        if (fineTune) {
+            int replay = Math.min(arguments.getInt("replay", 200), trainSet.size());
+            start = System.nanoTime();
+            network = NeuralNetworkTrainer.fineTune(network, newSet.getInputs(),
+                    newSet.getExpectedOutputs(), trainSet.getInputs(),
+                    trainSet.getExpectedOutputs(), replay,
+                    arguments.getInt("epochs", NeuralNetworkTrainer.FINE_TUNE_EPOCHS),
+                    arguments.getInt("rate", NeuralNetworkTrainer.FINE_TUNE_RATE),
+                    arguments.getInt("seed", 0), TrainingListener.NONE);
+            long trainingTime = System.nanoTime() - start;
+
+            System.out.println(String.format(Locale.ROOT,
+                    "fine-tuned on %d new and %d replayed examples in %.1f ms", newSet.size(),
+                    replay, trainingTime / 1e6));
+        } else if (network == null) {
+            network = new NeuralNetwork(trainSet.getNumOfInputs(), arguments.getInt("hidden", 5),
+                    numOfOutputs, WeightInitializer.of(arguments.getString("init", "xavier")),
+                    arguments.getInt("seed", 0));
+
+            start = System.nanoTime();
+            int epochs = NeuralNetworkTrainer.train(network, trainSet.getInputs(),
+                    trainSet.getExpectedOutputs(), arguments.getInt("epochs", 5000),
+                    arguments.getInt("rate", 1));
+            long trainingTime = System.nanoTime() - start;
+
+            System.out.println(String.format(Locale.ROOT,
+                    "trained %d epochs in %.1f ms, %.0f epochs/s, %.0f examples/s", epochs,
+                    trainingTime / 1e6, epochs / (trainingTime / 1e9),
+                    (double) epochs * trainSet.size() / (trainingTime / 1e9)));
+        } else if (network.getOutputLayerSize() != numOfOutputs) {
+            throw new IllegalArgumentException("Model has " + network.getOutputLayerSize()
+                    + " outputs, but the examples have " + numOfOutputs + " gestures.");
+        }
+
+        start = System.nanoTime();
+        double accuracy = Evaluation.accuracy(network, validationSet, precision);
+        double topAccuracy = Evaluation.topAccuracy(network, validationSet);
+        int[][] matrix = Evaluation.confusionMatrix(network, validationSet, precision);
+        long evaluationTime = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.ROOT,
+                "accuracy %.3f (precision %.2f), top %.3f, evaluated in %.1f ms", accuracy,
+                precision, topAccuracy, evaluationTime / 1e6));
+        printConfusionMatrix(matrix, vocabulary);
+
+        long inferenceTime = measure(network, validationSet, repeat);
+        long inferences = (long) repeat * validationSet.size();
+        System.out.println(String.format(Locale.ROOT,
+                "inference %.0f examples/s, %.2f us per example",
+                inferences / (inferenceTime / 1e9), inferenceTime / 1e3 / inferences));
+
+        if (arguments.has("model")) {
+            Path model = arguments.getPath("model", "");
+            NetworkSerializer.save(network, model);
+            vocabulary.save(ModelRegistry.vocabularyFile(model));
+            if (features != null) {
+                features.save(ModelRegistry.featuresFile(model));
+            } else {
+                Files.deleteIfExists(ModelRegistry.featuresFile(model));
+            }
+            System.out.println("model saved to " + model);
+        }
+    }
+
+    /**
+     * Creates the dataset of the given examples with the inputs the
+     * network gets.
+     *
+     * @param examples Examples or null
+     * @param numOfPoints Number of representative points
+     * @param numOfOutputs Number of output neurons
+     * @param features Extractor of the inputs or null for coordinates
+     * @return Dataset of the examples or null if there are no examples
+     */
+    private static DataSet inputsOf(List<GestureExample> examples, int numOfPoints,
+            int numOfOutputs, GestureFeatures features) {
+        if (examples == null) {
+            return null;
+        }
+        DataSet dataSet = DataSet.of(examples, numOfPoints, numOfOutputs);
+        return features == null ? dataSet : dataSet.withFeatures(features);
+    }
+
+    /**
+     * Prints the given confusion matrix with a row for every expected
+     * gesture and a column for every recognised gesture.
+     *
+     * @param matrix Confusion matrix
+     * @param vocabulary Vocabulary of the gestures
+     */
+    private static void printConfusionMatrix(int[][] matrix, GestureVocabulary vocabulary) {
+        int width = 8;
+        for (String name : vocabulary.getNames()) {
+            width = Math.max(width, name.length());
+        }
+        String cell = "%" + (width + 1) + "s";
+
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, cell, ""));
+        for (int j = 0; j < matrix.length; j++) {
+            header.append(String.format(Locale.ROOT, cell, vocabulary.nameOf(j)));
+        }
+        header.append(String.format(Locale.ROOT, cell, "unknown"));
+        System.out.println(header);
+
+        for (int i = 0; i < matrix.length; i++) {
+            StringBuilder row = new StringBuilder(String.format(Locale.ROOT, cell,
+                    vocabulary.nameOf(i)));
+            for (int count : matrix[i]) {
+                row.append(String.format(Locale.ROOT, cell, count));
+            }
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * Measures the time of calculating the outputs for all the examples
+     * the given number of times.
+     *
+     * @param network Neural network
+     * @param dataSet Examples
+     * @param repeat Number of passes over the examples
+     * @return Time in nanoseconds
+     */
+    private static long measure(NeuralNetwork network, DataSet dataSet, int repeat) {
+        double[][] inputs = dataSet.getInputs();
+        double[] hidden = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[network.getOutputLayerSize()];
+        return ToolSupport.measureTime(inputs.length, 0, repeat, i -> {
+            network.calculateOutputs(inputs[i], hidden, outputs);
+            return Evaluation.indexOfMax(outputs);
+        });
+    }
+
+}
@@ -0,0 +1,124 @@
+package hr.fer.seminar.neuralNetwork;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * State of an unfinished training of a {@link NeuralNetwork} from
+ * which the training can be resumed: the network after the last
+ * finished epoch, the number of that epoch and the parameters of the
+ * Backpropagation algorithm.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class Checkpoint {
+
+    /** Value written at the start of every checkpoint file. */
+    private static final int MAGIC = 0x47434B31;
+
+    /** Network after the last finished epoch. */
+    private final NeuralNetwork network;
+    /** Number of finished epochs. */
+    private final int epoch;
+    /** Total number of epochs of the training. */
+    private final int numOfEpochs;
+    /** Learning rate of the algorithm. */
+    private final int learningRate;
+
+    /**
+     * Creates a new checkpoint. The network is not copied.
+     *
+     * @param network Network after the last finished epoch
+     * @param epoch Number of finished epochs
+     * @param numOfEpochs Total number of epochs of the training
+     * @param learningRate Learning rate of the algorithm
+     */
+    public Checkpoint(NeuralNetwork network, int epoch, int numOfEpochs, int learningRate) {
+        this.network = network;
+        this.epoch = epoch;
+        this.numOfEpochs = numOfEpochs;
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * Saves the checkpoint to the given file. The file is replaced only
+     * after the checkpoint has been completely written, so a crash while
+     * saving leaves the previous checkpoint intact.
+     *
+     * @param file File the checkpoint is saved to
+     * @throws IOException If writing fails
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = NetworkSerializer.temporaryFile(file);
+        try (DataOutputStream output = NetworkSerializer.openOutput(temporary)) {
+            output.writeInt(MAGIC);
+            output.writeInt(epoch);
+            output.writeInt(numOfEpochs);
+            output.writeInt(learningRate);
+            NetworkSerializer.write(network, output);
+        }
+        NetworkSerializer.replace(temporary, file);
+    }
+
+    /**
+     * Loads a checkpoint from the given file.
+     *
+     * @param file File containing the checkpoint
+     * @return Loaded checkpoint
+     * @throws IOException If reading fails or the file does not contain
+     *         a checkpoint
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        try (DataInputStream input = NetworkSerializer.openInput(file)) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " does not contain a training checkpoint.");
+            }
+            int epoch = input.readInt();
+            int numOfEpochs = input.readInt();
+            int learningRate = input.readInt();
+            NeuralNetwork network = NetworkSerializer.read(input);
+
+            return new Checkpoint(network, epoch, numOfEpochs, learningRate);
+        }
+    }
+
+    /**
+     * Returns the network after the last finished epoch.
+     *
+     * @return Neural network
+     */
+    public NeuralNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Returns the number of finished epochs.
+     *
+     * @return Number of finished epochs
+     */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the total number of epochs of the training.
+     *
+     * @return Number of epochs
+     */
+    public int getNumOfEpochs() {
+        return numOfEpochs;
+    }
+
+    /**
+     * Returns the learning rate of the algorithm.
+     *
+     * @return Learning rate
+     */
+    public int getLearningRate() {
+        return learningRate;
+    }
+
+}
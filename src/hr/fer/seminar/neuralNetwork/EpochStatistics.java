@@ -0,0 +1,172 @@
+package hr.fer.seminar.neuralNetwork;
+
+/**
+ * Statistics of a single epoch of training a {@link NeuralNetwork},
+ * reported to a {@link TrainingListener}. The loss and the accuracy are
+ * calculated from the outputs of the network before the weights were
+ * updated in the epoch.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class EpochStatistics {
+
+    /** Number of the epoch, starting from 1. */
+    private final int epoch;
+    /** Total number of epochs of the training. */
+    private final int numOfEpochs;
+    /** Number of learning examples. */
+    private final int numOfExamples;
+    /** Learning rate of the algorithm. */
+    private final int learningRate;
+    /** Mean squared error of the outputs. */
+    private final double loss;
+    /** Share of the examples with the greatest output expected. */
+    private final double accuracy;
+    /** Duration of the epoch in nanoseconds. */
+    private final long epochTime;
+    /** Time since the start of the training in nanoseconds. */
+    private final long elapsedTime;
+    /**
+     * Number of bytes allocated by the training thread during the
+     * epoch or -1 if the JVM does not support measuring it.
+     */
+    private final long allocatedBytes;
+
+    /**
+     * Creates new epoch statistics.
+     *
+     * @param epoch Number of the epoch, starting from 1
+     * @param numOfEpochs Total number of epochs of the training
+     * @param numOfExamples Number of learning examples
+     * @param learningRate Learning rate of the algorithm
+     * @param loss Mean squared error of the outputs
+     * @param accuracy Share of the examples with the greatest output
+     *        expected
+     * @param epochTime Duration of the epoch in nanoseconds
+     * @param elapsedTime Time since the start of the training in
+     *        nanoseconds
+     * @param allocatedBytes Number of bytes allocated during the epoch
+     *        or -1 if unknown
+     */
+    public EpochStatistics(int epoch, int numOfEpochs, int numOfExamples, int learningRate,
+            double loss, double accuracy, long epochTime, long elapsedTime,
+            long allocatedBytes) {
+        this.epoch = epoch;
+        this.numOfEpochs = numOfEpochs;
+        this.numOfExamples = numOfExamples;
+        this.learningRate = learningRate;
+        this.loss = loss;
+        this.accuracy = accuracy;
+        this.epochTime = epochTime;
+        this.elapsedTime = elapsedTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Returns the number of the epoch, starting from 1.
+     *
+     * @return Number of the epoch
+     */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the total number of epochs of the training.
+     *
+     * @return Number of epochs
+     */
+    public int getNumOfEpochs() {
+        return numOfEpochs;
+    }
+
+    /**
+     * Returns the number of learning examples.
+     *
+     * @return Number of examples
+     */
+    public int getNumOfExamples() {
+        return numOfExamples;
+    }
+
+    /**
+     * Returns the learning rate of the algorithm.
+     *
+     * @return Learning rate
+     */
+    public int getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * Returns the mean squared error of the outputs.
+     *
+     * @return Loss
+     */
+    public double getLoss() {
+        return loss;
+    }
+
+    /**
+     * Returns the share of the learning examples for which the greatest
+     * output of the network belongs to the expected gesture.
+     *
+     * @return Accuracy in range [0,1]
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Returns the duration of the epoch.
+     *
+     * @return Duration in nanoseconds
+     */
+    public long getEpochTime() {
+        return epochTime;
+    }
+
+    /**
+     * Returns the time since the start of the training.
+     *
+     * @return Elapsed time in nanoseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns the number of learning examples processed per second in
+     * the epoch.
+     *
+     * @return Throughput
+     */
+    public double getExamplesPerSecond() {
+        return epochTime == 0 ? 0 : numOfExamples * 1e9 / epochTime;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the training thread
+     * during the epoch.
+     *
+     * @return Allocated bytes or -1 if unknown
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the allocation rate of the training thread during the
+     * epoch.
+     *
+     * @return Allocated bytes per second or -1 if unknown
+     */
+    public double getAllocationRate() {
+        if (allocatedBytes < 0) {
+            return -1;
+        }
+        return epochTime == 0 ? 0 : allocatedBytes * 1e9 / epochTime;
+    }
+
+}
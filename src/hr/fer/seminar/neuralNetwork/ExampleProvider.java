@@ -0,0 +1,52 @@
+package hr.fer.seminar.neuralNetwork;
+
+/**
+ * Source of the learning examples used by {@link NeuralNetworkTrainer}
+ * which can give different inputs in every epoch, for example variants
+ * of the original examples generated on the fly. The number of
+ * examples and the expected outputs must be the same in every epoch.
+ * 
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public interface ExampleProvider {
+
+    /**
+     * Returns the inputs used in the given epoch. The returned array may
+     * be reused and overwritten in the following epochs.
+     * 
+     * @param epoch Index of the epoch, starting from 0
+     * @return Set of inputs
+     */
+    double[][] getInputs(int epoch);
+
+    /**
+     * Returns the expected outputs for the inputs of every epoch.
+     * 
+     * @return Set of expected outputs
+     */
+    double[][] getExpectedOutputs();
+
+    /**
+     * Returns a provider which gives the same examples in every epoch.
+     * 
+     * @param inputs Set of inputs
+     * @param expectedOutputs Set of expected outputs
+     * @return Provider of the given examples
+     */
+    static ExampleProvider of(double[][] inputs, double[][] expectedOutputs) {
+        return new ExampleProvider() {
+
+            @Override
+            public double[][] getInputs(int epoch) {
+                return inputs;
+            }
+
+            @Override
+            public double[][] getExpectedOutputs() {
+                return expectedOutputs;
+            }
+        };
+    }
+
+}
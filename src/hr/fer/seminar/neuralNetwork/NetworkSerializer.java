@@ -0,0 +1,199 @@
+package hr.fer.seminar.neuralNetwork;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility class containing methods for writing the weights of a
+ * {@link NeuralNetwork} in a compact binary form and reading them back.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class NetworkSerializer {
+
+    /** Value written at the start of every serialised network. */
+    private static final int MAGIC = 0x474E4E31;
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private NetworkSerializer() {
+
+    }
+
+    /**
+     * Writes the given network to the given output.
+     *
+     * @param network Neural network
+     * @param output Output the network is written to
+     * @throws IOException If writing fails
+     */
+    public static void write(NeuralNetwork network, DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        writeWeights(network.getHiddenLayerWeights(), output);
+        writeWeights(network.getOutputLayerWeights(), output);
+    }
+
+    /**
+     * Reads a network from the given input.
+     *
+     * @param input Input the network is read from
+     * @return Neural network
+     * @throws IOException If reading fails or the input does not
+     *         contain a network
+     */
+    public static NeuralNetwork read(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Input does not contain a neural network.");
+        }
+        double[][] hiddenLayerWeights = readWeights(input);
+        double[][] outputLayerWeights = readWeights(input);
+
+        try {
+            return new NeuralNetwork(hiddenLayerWeights, outputLayerWeights);
+        } catch (NeuralNetworkException e) {
+            throw new IOException("Invalid neural network: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves the given network to the given file. The network is first
+     * written to a temporary file which then replaces the given file,
+     * so the file always contains a complete network.
+     *
+     * @param network Neural network
+     * @param file File the network is saved to
+     * @throws IOException If writing fails
+     */
+    public static void save(NeuralNetwork network, Path file) throws IOException {
+        Path temporary = temporaryFile(file);
+        try (DataOutputStream output = openOutput(temporary)) {
+            write(network, output);
+        }
+        replace(temporary, file);
+    }
+
+    /**
+     * Loads a network from the given file.
+     *
+     * @param file File containing the network
+     * @return Neural network
+     * @throws IOException If reading fails or the file does not contain
+     *         a network
+     */
+    public static NeuralNetwork load(Path file) throws IOException {
+        try (DataInputStream input = openInput(file)) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Opens a buffered output to a new file, creating the parent
+     * directories if needed.
+     *
+     * @param file File to be written
+     * @return Output stream
+     * @throws IOException If the file could not be opened
+     */
+    static DataOutputStream openOutput(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        OutputStream output = Files.newOutputStream(file);
+        return new DataOutputStream(new BufferedOutputStream(output));
+    }
+
+    /**
+     * Opens a buffered input from the given file.
+     *
+     * @param file File to be read
+     * @return Input stream
+     * @throws IOException If the file could not be opened
+     */
+    static DataInputStream openInput(Path file) throws IOException {
+        InputStream input = Files.newInputStream(file);
+        return new DataInputStream(new BufferedInputStream(input));
+    }
+
+    /**
+     * Returns the temporary file used while writing the given file.
+     *
+     * @param file File to be written
+     * @return Temporary file in the same directory
+     */
+    static Path temporaryFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * Replaces the given file with the temporary file, atomically if
+     * the file system supports it.
+     *
+     * @param temporary Completely written temporary file
+     * @param file File to be replaced
+     * @throws IOException If moving the file fails
+     */
+    static void replace(Path temporary, Path file) throws IOException {
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the given weights of a layer.
+     *
+     * @param weights Weights of a layer
+     * @param output Output the weights are written to
+     * @throws IOException If writing fails
+     */
+    private static void writeWeights(double[][] weights, DataOutput output) throws IOException {
+        output.writeInt(weights.length);
+        output.writeInt(weights.length == 0 ? 0 : weights[0].length);
+        for (double[] neuronWeights : weights) {
+            for (double weight : neuronWeights) {
+                output.writeDouble(weight);
+            }
+        }
+    }
+
+    /**
+     * Reads the weights of a layer.
+     *
+     * @param input Input the weights are read from
+     * @return Weights of a layer
+     * @throws IOException If reading fails or the dimensions are
+     *         invalid
+     */
+    private static double[][] readWeights(DataInput input) throws IOException {
+        int numOfNeurons = input.readInt();
+        int numOfWeights = input.readInt();
+        if (numOfNeurons <= 0 || numOfWeights <= 0) {
+            throw new IOException("Invalid dimensions of a neuron layer.");
+        }
+
+        double[][] weights = new double[numOfNeurons][numOfWeights];
+        for (double[] neuronWeights : weights) {
+            for (int i = 0; i < numOfWeights; i++) {
+                neuronWeights[i] = input.readDouble();
+            }
+        }
+        return weights;
+    }
+
+}
@@ -1,5 +1,7 @@
 package hr.fer.seminar.neuralNetwork;
 
+import java.util.SplittableRandom;
+
 /**
  * NeuralNetwork class represents a feed forward neural network with
  * one hidden layer.
@@ -22,7 +24,9 @@ public class NeuralNetwork {
     /**
      * Creates a new feed forward neural network with the given number
      * of neurons. Weight between all the layers are initialised to
-     * random numbers in range [0,1].
+     * random numbers in range [0,1] by an unseeded generator, which
+     * saturates larger networks; new networks should rather be created
+     * with {@link WeightInitializer#XAVIER} and a seed.
      * 
      * @param inputLayerSize Number of neurons in the input layer
      * @param hiddenLayerSize Number of neurons in the hidden layer
@@ -33,6 +37,70 @@ public class NeuralNetwork {
         outputLayer = new NeuronLayer(outputLayerSize, hiddenLayerSize);
     }
 
+    /**
+     * Creates a new feed forward neural network with the given number
+     * of neurons and weights initialised by the given scheme. Networks
+     * created with the same sizes, scheme and seed have the same
+     * initial weights, so their training is reproducible.
+     * 
+     * @param inputLayerSize Number of neurons in the input layer
+     * @param hiddenLayerSize Number of neurons in the hidden layer
+     * @param outputLayerSize Number of neurons in the output layer
+     * @param initializer Scheme of the initial weights
+     * @param seed Seed of the initial weights
+     */
+    public NeuralNetwork(int inputLayerSize, int hiddenLayerSize, int outputLayerSize,
+            WeightInitializer initializer, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        hiddenLayer = new NeuronLayer(hiddenLayerSize, inputLayerSize, initializer,
+                random.split());
+        outputLayer = new NeuronLayer(outputLayerSize, hiddenLayerSize, initializer,
+                random.split());
+    }
+
+    /**
+     * Creates a new feed forward neural network with the given weights.
+     * The arrays are not copied.
+     * 
+     * @param hiddenLayerWeights Weights of the hidden layer
+     * @param outputLayerWeights Weights of the output layer
+     * @throws NeuralNetworkException If the number of weights of the
+     *         output neurons does not match the size of the hidden layer
+     */
+    public NeuralNetwork(double[][] hiddenLayerWeights, double[][] outputLayerWeights) {
+        hiddenLayer = new NeuronLayer(hiddenLayerWeights);
+        outputLayer = new NeuronLayer(outputLayerWeights);
+        if (outputLayer.getNumberOfInputs() != hiddenLayer.getSize()) {
+            throw new NeuralNetworkException(
+                    "Number of output layer inputs differs from the hidden layer size.");
+        }
+    }
+
+    /**
+     * Creates a copy of the given neural network. The weights are
+     * copied, so training one of the networks does not change the
+     * other one.
+     * 
+     * @param network Neural network to be copied
+     */
+    public NeuralNetwork(NeuralNetwork network) {
+        this(copy(network.getHiddenLayerWeights()), copy(network.getOutputLayerWeights()));
+    }
+
+    /**
+     * Creates a deep copy of the given weights.
+     * 
+     * @param weights Weights to be copied
+     * @return Copy of the weights
+     */
+    private static double[][] copy(double[][] weights) {
+        double[][] copy = new double[weights.length][];
+        for (int i = 0; i < weights.length; i++) {
+            copy[i] = weights[i].clone();
+        }
+        return copy;
+    }
+
     /**
      * Sets the inputs of the neural network to the given values.
      * 
@@ -66,6 +134,25 @@ public class NeuralNetwork {
         return outputs;
     }
 
+    /**
+     * Calculates the outputs of the neural network for the given
+     * inputs and stores the outputs of the hidden and the output layer
+     * in the given arrays. The method does not allocate any memory and
+     * does not change the inputs set to the network, so it can be used
+     * with preallocated buffers during training.
+     * 
+     * @param inputs Inputs of the neural network
+     * @param hiddenLayerOutputs Array in which the outputs of the
+     *        hidden layer are stored
+     * @param outputs Array in which the outputs of the network are
+     *        stored
+     */
+    public void calculateOutputs(double[] inputs, double[] hiddenLayerOutputs,
+            double[] outputs) {
+        hiddenLayer.calculateOutputs(inputs, hiddenLayerOutputs);
+        outputLayer.calculateOutputs(hiddenLayerOutputs, outputs);
+    }
+
     /**
      * Returns the outputs of the hidden layer.
      * 
@@ -120,4 +207,23 @@ public class NeuralNetwork {
         return outputLayer.getSize();
     }
 
+    /**
+     * Returns the number of the hidden layer neurons.
+     * 
+     * @return Number of hidden layer neurons
+     */
+    public int getHiddenLayerSize() {
+        return hiddenLayer.getSize();
+    }
+
+    /**
+     * Returns the number of the input neurons (length of the input
+     * vector).
+     * 
+     * @return Number of input neurons
+     */
+    public int getInputLayerSize() {
+        return hiddenLayer.getNumberOfInputs();
+    }
+
 }
@@ -1,5 +1,10 @@
 package hr.fer.seminar.neuralNetwork;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 /**
  * Utility class which implements methods for training an instance of
  * {@link NeuralNetwork} using the Backpropagation algorithm.
@@ -9,35 +14,482 @@ package hr.fer.seminar.neuralNetwork;
  */
 public class NeuralNetworkTrainer {
 
+    /**
+     * Default number of epochs of fine-tuning, which reaches at least the
+     * accuracy of a network trained from random weights for 5000 epochs
+     * at learning rate 1 when a new gesture is added.
+     */
+    public static final int FINE_TUNE_EPOCHS = 2000;
+    /** Default learning rate of fine-tuning. */
+    public static final int FINE_TUNE_RATE = 5;
+
     /**
      * Metoda uči predanu neuronsku mrežu na temelju datog skupa
      * uzoraka za učenje Algoritmom propagacije pogreške unatrag.
      * 
      * Method trains the given neural network using the given dataset
-     * and the Backpropagation algorithm.
+     * and the Backpropagation algorithm. The training stops early if
+     * the current thread is interrupted.
      * 
      * @param network Neural network to be trained
      * @param inputs Set of inputs
      * @param expectedOutputs Set of expected outputs
      * @param numOfEpochs Number of training epochs
      * @param learningRate Learning rate of the algorithm
+     * @return Number of finished epochs
      */
-    public static void train(NeuralNetwork network, double[][] inputs, double[][] expectedOutputs,
+    public static int train(NeuralNetwork network, double[][] inputs, double[][] expectedOutputs,
             int numOfEpochs, int learningRate) {
 
-        for (int epoch = 0; epoch < numOfEpochs; epoch++) {
-            double[][] outputs = new double[inputs.length][];
-            double[][] hiddenLayerOutputs = new double[inputs.length][];
+        return train(network, inputs, expectedOutputs, numOfEpochs, learningRate,
+                TrainingListener.NONE);
+    }
+
+    /**
+     * Trains the given neural network using the given dataset and the
+     * Backpropagation algorithm and notifies the given listener after
+     * every epoch.
+     * 
+     * @param network Neural network to be trained
+     * @param inputs Set of inputs
+     * @param expectedOutputs Set of expected outputs
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate of the algorithm
+     * @param listener Listener notified after every epoch
+     * @return Number of finished epochs
+     */
+    public static int train(NeuralNetwork network, double[][] inputs, double[][] expectedOutputs,
+            int numOfEpochs, int learningRate, TrainingListener listener) {
+
+        return train(network, inputs, expectedOutputs, numOfEpochs, learningRate,
+                new TrainingContext(network, inputs.length), listener);
+    }
+
+    /**
+     * Trains the given neural network using the given dataset and the
+     * Backpropagation algorithm. All the intermediate results are
+     * stored in the buffers of the given training context, so no
+     * memory is allocated during the epochs.
+     * 
+     * The current thread is checked for interruption before every
+     * epoch; if it has been interrupted the training stops, leaving the
+     * network as it was after the last finished epoch and the
+     * interrupted status of the thread set.
+     * 
+     * @param network Neural network to be trained
+     * @param inputs Set of inputs
+     * @param expectedOutputs Set of expected outputs
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate of the algorithm
+     * @param context Buffers used during training
+     * @param listener Listener notified after every epoch; statistics
+     *        are collected only if it differs from
+     *        {@link TrainingListener#NONE}
+     * @return Number of finished epochs
+     * @throws NeuralNetworkException If the context or the dataset do
+     *         not match the dimensions of the network
+     */
+    public static int train(NeuralNetwork network, double[][] inputs, double[][] expectedOutputs,
+            int numOfEpochs, int learningRate, TrainingContext context,
+            TrainingListener listener) {
+
+        return trainEpochs(network, ExampleProvider.of(inputs, expectedOutputs), 0, numOfEpochs,
+                learningRate, context, listener);
+    }
+
+    /**
+     * Trains the given neural network using the examples given by the
+     * given provider in every epoch and the Backpropagation algorithm.
+     * The training stops early if the current thread is interrupted.
+     * 
+     * @param network Neural network to be trained
+     * @param examples Provider of the learning examples
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate of the algorithm
+     * @param listener Listener notified after every epoch
+     * @return Number of finished epochs
+     * @throws NeuralNetworkException If the examples do not match the
+     *         dimensions of the network
+     */
+    public static int train(NeuralNetwork network, ExampleProvider examples, int numOfEpochs,
+            int learningRate, TrainingListener listener) {
+
+        return trainEpochs(network, examples, 0, numOfEpochs, learningRate,
+                new TrainingContext(network, examples.getExpectedOutputs().length), listener);
+    }
+
+    /**
+     * Resumes the training saved in the given checkpoint using the
+     * given dataset. The network of the checkpoint is trained for the
+     * remaining epochs, the numbers of the epochs reported to the
+     * listener continue from the checkpoint. The training stops early
+     * if the current thread is interrupted.
+     * 
+     * @param checkpoint Checkpoint of an unfinished training
+     * @param inputs Set of inputs
+     * @param expectedOutputs Set of expected outputs
+     * @param listener Listener notified after every epoch
+     * @return Total number of finished epochs, including the ones
+     *         finished before the checkpoint
+     * @throws NeuralNetworkException If the dataset does not match the
+     *         dimensions of the network
+     */
+    public static int resume(Checkpoint checkpoint, double[][] inputs,
+            double[][] expectedOutputs, TrainingListener listener) {
+
+        NeuralNetwork network = checkpoint.getNetwork();
+        return trainEpochs(network, ExampleProvider.of(inputs, expectedOutputs),
+                checkpoint.getEpoch(), checkpoint.getNumOfEpochs(), checkpoint.getLearningRate(),
+                new TrainingContext(network, inputs.length), listener);
+    }
+
+    /**
+     * Fine-tunes a copy of the given trained network on new examples.
+     * Instead of training a new network from random weights, the copy
+     * starts from the weights of the given network and is trained for
+     * a small number of epochs on the new examples together with a
+     * replay sample of the examples the network was trained on, which
+     * keeps it from forgetting the old gestures.
+     * 
+     * If the new examples have more outputs than the network, because
+     * they contain new gestures, output neurons for the new gestures
+     * are added to the copy and initialised with
+     * {@link WeightInitializer#XAVIER}. The replay sample is chosen
+     * randomly once and used in every epoch. The training stops early
+     * if the current thread is interrupted.
+     * 
+     * @param network Trained neural network, it is copied and never
+     *        modified
+     * @param newInputs Inputs of the new examples
+     * @param newExpectedOutputs Expected outputs of the new examples
+     * @param oldInputs Inputs of the examples the network was trained on
+     * @param oldExpectedOutputs Expected outputs of the examples the
+     *        network was trained on, with as many outputs as the new ones
+     * @param replaySize Greatest number of old examples trained on
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate of the algorithm
+     * @param seed Seed of the replay sample and of the new weights
+     * @param listener Listener notified after every epoch
+     * @return Fine-tuned copy of the network
+     * @throws NeuralNetworkException If the examples do not match the
+     *         dimensions of the network or have fewer outputs than it
+     */
+    public static NeuralNetwork fineTune(NeuralNetwork network, double[][] newInputs,
+            double[][] newExpectedOutputs, double[][] oldInputs, double[][] oldExpectedOutputs,
+            int replaySize, int numOfEpochs, int learningRate, long seed,
+            TrainingListener listener) {
+        if (newExpectedOutputs.length == 0) {
+            throw new NeuralNetworkException("There are no new examples.");
+        }
+        int numOfOutputs = newExpectedOutputs[0].length;
+        if (numOfOutputs < network.getOutputLayerSize()) {
+            throw new NeuralNetworkException("Examples have fewer outputs than the network.");
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] hiddenLayerWeights = copy(network.getHiddenLayerWeights(), 0, null);
+        double[][] outputLayerWeights = copy(network.getOutputLayerWeights(), numOfOutputs,
+                random.split());
+        NeuralNetwork tuned = new NeuralNetwork(hiddenLayerWeights, outputLayerWeights);
+
+        // replay sample: the first examples of a random permutation
+        int numOfReplayed = Math.max(0, Math.min(replaySize, oldInputs.length));
+        int[] order = new int[oldInputs.length];
+        for (int i = 0; i < order.length; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        int size = newInputs.length + numOfReplayed;
+        double[][] inputs = Arrays.copyOf(newInputs, size);
+        double[][] expectedOutputs = Arrays.copyOf(newExpectedOutputs, size);
+        for (int i = 0; i < numOfReplayed; i++) {
+            inputs[newInputs.length + i] = oldInputs[order[i]];
+            expectedOutputs[newInputs.length + i] = oldExpectedOutputs[order[i]];
+        }
+
+        train(tuned, inputs, expectedOutputs, numOfEpochs, learningRate, listener);
+        return tuned;
+    }
+
+    /**
+     * Creates a deep copy of the given weights of a layer, adding
+     * neurons initialised with {@link WeightInitializer#XAVIER} until
+     * the copy has the given number of neurons.
+     * 
+     * @param weights Weights of the layer
+     * @param numOfNeurons Number of neurons of the copy, ignored if it
+     *        is not greater than the number of neurons of the layer
+     * @param random Generator of the weights of the added neurons
+     * @return Copy of the weights
+     */
+    private static double[][] copy(double[][] weights, int numOfNeurons,
+            SplittableRandom random) {
+        double[][] copy = new double[Math.max(weights.length, numOfNeurons)][];
+        int numOfInputs = weights[0].length - 1;
+        for (int i = 0; i < copy.length; i++) {
+            if (i < weights.length) {
+                copy[i] = weights[i].clone();
+            } else {
+                copy[i] = new double[numOfInputs + 1];
+                WeightInitializer.XAVIER.initialize(copy[i], numOfInputs, copy.length, random);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Prunes the given trained neural network by setting the given
+     * share of the weights with the smallest magnitude in every layer
+     * to zero. Thresholds are never pruned. Pruned networks can be
+     * converted to a {@link SparseNeuralNetwork}, which skips the
+     * zero weights during inference.
+     * 
+     * Pruning is done separately in every layer, so the small output
+     * layer does not lose all its weights to the larger hidden layer.
+     * 
+     * @param network Trained neural network
+     * @param sparsity Share of the weights of every layer set to zero,
+     *        in range [0,1]
+     * @return Number of pruned weights, including the ones which were
+     *         already zero
+     * @throws IllegalArgumentException If the sparsity is out of range
+     */
+    public static int prune(NeuralNetwork network, double sparsity) {
+        if (!(sparsity >= 0 && sparsity <= 1)) {
+            throw new IllegalArgumentException("Sparsity must be in range [0,1].");
+        }
+
+        return pruneLayer(network.getHiddenLayerWeights(), sparsity)
+                + pruneLayer(network.getOutputLayerWeights(), sparsity);
+    }
+
+    /**
+     * Sets the given share of the weights with the smallest magnitude
+     * in the given layer to zero, skipping the thresholds.
+     * 
+     * @param weights Weights of the layer
+     * @param sparsity Share of the weights set to zero
+     * @return Number of pruned weights
+     */
+    private static int pruneLayer(double[][] weights, double sparsity) {
+        int numOfInputs = weights[0].length - 1;
+        double[] magnitudes = new double[weights.length * numOfInputs];
+        for (int i = 0; i < weights.length; i++) {
+            for (int j = 0; j < numOfInputs; j++) {
+                magnitudes[i * numOfInputs + j] = Math.abs(weights[i][j]);
+            }
+        }
+
+        int numToPrune = (int) Math.round(sparsity * magnitudes.length);
+        if (numToPrune == 0) {
+            return 0;
+        }
+        Arrays.sort(magnitudes);
+        double cutoff = magnitudes[numToPrune - 1];
+
+        // weights below the cutoff go first, equal ones only until the
+        // requested number is reached
+        int pruned = 0;
+        for (double[] neuronWeights : weights) {
+            for (int j = 0; j < numOfInputs; j++) {
+                if (Math.abs(neuronWeights[j]) < cutoff) {
+                    neuronWeights[j] = 0;
+                    pruned++;
+                }
+            }
+        }
+        for (double[] neuronWeights : weights) {
+            for (int j = 0; j < numOfInputs && pruned < numToPrune; j++) {
+                if (Math.abs(neuronWeights[j]) == cutoff) {
+                    neuronWeights[j] = 0;
+                    pruned++;
+                }
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * Trains the given network starting from the given epoch until the
+     * given number of epochs is finished or the current thread is
+     * interrupted.
+     * 
+     * @param network Neural network to be trained
+     * @param examples Provider of the learning examples
+     * @param firstEpoch Number of already finished epochs
+     * @param numOfEpochs Total number of training epochs
+     * @param learningRate Learning rate of the algorithm
+     * @param context Buffers used during training
+     * @param listener Listener notified after every epoch
+     * @return Number of finished epochs
+     */
+    private static int trainEpochs(NeuralNetwork network, ExampleProvider examples,
+            int firstEpoch, int numOfEpochs, int learningRate, TrainingContext context,
+            TrainingListener listener) {
+
+        double[][] expectedOutputs = examples.getExpectedOutputs();
+        if (!context.fits(network, expectedOutputs.length)) {
+            throw new NeuralNetworkException(
+                    "Training context does not match the network or the dataset.");
+        }
+
+        boolean collectStatistics = listener != TrainingListener.NONE;
+        // bytes allocated by measuring the allocated bytes themselves
+        long measurementOverhead = 0;
+        if (collectStatistics) {
+            long firstMeasurement = allocatedBytes();
+            measurementOverhead = allocatedBytes() - firstMeasurement;
+        }
+        long trainingStart = System.nanoTime();
+
+        for (int epoch = firstEpoch; epoch < numOfEpochs; epoch++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return epoch;
+            }
+
+            double[][] inputs = examples.getInputs(epoch);
+            if (epoch == firstEpoch) {
+                checkDataSet(network, inputs, expectedOutputs);
+            }
+
+            long epochStart = 0;
+            long allocatedAtStart = -1;
+            if (collectStatistics) {
+                epochStart = System.nanoTime();
+                allocatedAtStart = allocatedBytes();
+            }
 
             for (int i = 0; i < inputs.length; i++) {
-                network.setInputs(inputs[i]);
-                outputs[i] = network.calculateOutputs();
-                hiddenLayerOutputs[i] = network.getHiddenLayerOutputs();
+                network.calculateOutputs(inputs[i], context.hiddenLayerOutputs[i],
+                        context.outputs[i]);
             }
 
-            NeuralNetworkTrainer.updateWeights(network, inputs, expectedOutputs, outputs,
-                    hiddenLayerOutputs, learningRate);
+            NeuralNetworkTrainer.updateWeights(network, inputs, expectedOutputs, context,
+                    learningRate);
 
+            if (collectStatistics) {
+                double loss = loss(expectedOutputs, context);
+                double accuracy = accuracy(expectedOutputs, context);
+                long allocated = -1;
+                if (allocatedAtStart >= 0) {
+                    allocated = Math.max(0,
+                            allocatedBytes() - allocatedAtStart - measurementOverhead);
+                }
+                long epochEnd = System.nanoTime();
+
+                listener.epochFinished(network,
+                        new EpochStatistics(epoch + 1, numOfEpochs, inputs.length,
+                                learningRate, loss, accuracy, epochEnd - epochStart,
+                                epochEnd - trainingStart, allocated));
+            }
+        }
+
+        return Math.max(firstEpoch, numOfEpochs);
+    }
+
+    /**
+     * Calculates the mean squared error of the outputs stored in the
+     * given context.
+     * 
+     * @param expectedOutputs Set of expected outputs
+     * @param context Training context holding the outputs of the
+     *        network
+     * @return Mean squared error
+     */
+    private static double loss(double[][] expectedOutputs, TrainingContext context) {
+        double[][] outputs = context.outputs;
+        double error = 0;
+        int count = 0;
+
+        for (int i = 0; i < outputs.length; i++) {
+            for (int j = 0; j < outputs[i].length; j++) {
+                double difference = expectedOutputs[i][j] - outputs[i][j];
+                error += difference * difference;
+                count++;
+            }
+        }
+
+        return count == 0 ? 0 : error / count;
+    }
+
+    /**
+     * Calculates the share of the examples for which the greatest of
+     * the outputs stored in the given context is the expected one.
+     * 
+     * @param expectedOutputs Set of expected outputs
+     * @param context Training context holding the outputs of the
+     *        network
+     * @return Accuracy in range [0,1]
+     */
+    private static double accuracy(double[][] expectedOutputs, TrainingContext context) {
+        double[][] outputs = context.outputs;
+        int correct = 0;
+
+        for (int i = 0; i < outputs.length; i++) {
+            if (indexOfMax(outputs[i]) == indexOfMax(expectedOutputs[i])) {
+                correct++;
+            }
+        }
+
+        return outputs.length == 0 ? 0 : (double) correct / outputs.length;
+    }
+
+    /**
+     * Returns the index of the greatest value in the given array.
+     * 
+     * @param values Array of values
+     * @return Index of the greatest value
+     */
+    private static int indexOfMax(double[] values) {
+        int max = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[max]) {
+                max = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the current thread.
+     * 
+     * @return Allocated bytes or -1 if the JVM does not support
+     *         measuring them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that the given dataset can be used for training the given
+     * network.
+     * 
+     * @param network Neural network
+     * @param inputs Set of inputs
+     * @param expectedOutputs Set of expected outputs
+     * @throws NeuralNetworkException If the dimensions of the dataset
+     *         do not match the network
+     */
+    private static void checkDataSet(NeuralNetwork network, double[][] inputs,
+            double[][] expectedOutputs) {
+        if (inputs.length != expectedOutputs.length) {
+            throw new NeuralNetworkException(
+                    "Number of inputs differs from the number of expected outputs.");
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].length != network.getInputLayerSize()) {
+                throw new NeuralNetworkException("Invalid length of inputs array.");
+            }
+            if (expectedOutputs[i].length != network.getOutputLayerSize()) {
+                throw new NeuralNetworkException("Invalid length of expected outputs array.");
+            }
         }
     }
 
@@ -49,43 +501,50 @@ public class NeuralNetworkTrainer {
      * @param network Neural network
      * @param inputs Set of inputs
      * @param expectedOutputs Set of expected outputs
-     * @param outputs Outputs given by the neural network for the
-     *        given inputs
-     * @param hiddenLayerOutputs Outputs of the hidden layer for the
-     *        given inputs
+     * @param context Training context holding the outputs of the
+     *        network for the given inputs
      * @param learningRate Learning rate
      */
     private static void updateWeights(NeuralNetwork network, double[][] inputs,
-            double[][] expectedOutputs, double[][] outputs, double[][] hiddenLayerOutputs,
-            int learningRate) {
+            double[][] expectedOutputs, TrainingContext context, int learningRate) {
 
-        updateOutputLayerWeights(network, inputs, expectedOutputs, outputs, hiddenLayerOutputs,
-                learningRate);
-        updateHiddenLayerWeights(network, inputs, expectedOutputs, outputs, hiddenLayerOutputs,
-                learningRate);
+        updateOutputLayerWeights(network, inputs, expectedOutputs, context, learningRate);
+        updateHiddenLayerWeights(network, inputs, context, learningRate);
 
     }
 
     /**
      * Updates all the weights in the output layer of the given neural
      * network based on the results of training within one epoch of
-     * the Backpropagation algorithm.
+     * the Backpropagation algorithm. The error terms of the output
+     * neurons are stored in the context so they can be reused when
+     * updating the hidden layer.
      * 
      * @param network Neural network
      * @param inputs Set of inputs
      * @param expectedOutputs Set of expected outputs
-     * @param outputs Outputs given by the neural network for the
-     *        given inputs
-     * @param hiddenLayerOutputs Outputs of the hidden layer for the
-     *        given inputs
+     * @param context Training context holding the outputs of the
+     *        network for the given inputs
      * @param learningRate Learning rate
      */
     private static void updateOutputLayerWeights(NeuralNetwork network, double[][] inputs,
-            double[][] expectedOutputs, double[][] outputs, double[][] hiddenLayerOutputs,
-            int learningRate) {
+            double[][] expectedOutputs, TrainingContext context, int learningRate) {
 
         double[][] outputLayerWeights = network.getOutputLayerWeights();
-        double[][] newOutputLayerWeights = new double[outputLayerWeights.length][];
+        double[][] outputs = context.outputs;
+        double[][] hiddenLayerOutputs = context.hiddenLayerOutputs;
+        double[][] outputDeltas = context.outputDeltas;
+
+        // error term of every output neuron for every learning example
+        for (int inputNum = 0; inputNum < inputs.length; inputNum++) {
+            for (int numOfNeuron = 0; numOfNeuron < outputLayerWeights.length; numOfNeuron++) {
+                double currentOutput = outputs[inputNum][numOfNeuron];
+                double currentExpectedOutput = expectedOutputs[inputNum][numOfNeuron];
+
+                outputDeltas[inputNum][numOfNeuron] = (currentExpectedOutput - currentOutput)
+                        * currentOutput * (1 - currentOutput);
+            }
+        }
 
         // for every output neuron
         for (int numOfNeuron = 0; numOfNeuron < outputLayerWeights.length; numOfNeuron++) {
@@ -98,45 +557,55 @@ public class NeuralNetworkTrainer {
 
                 // for every learning example
                 for (int inputNum = 0; inputNum < inputs.length; inputNum++) {
-                    double currentOutput = outputs[inputNum][numOfNeuron];
-                    double currentExpectedOutput = expectedOutputs[inputNum][numOfNeuron];
                     double currentInput = weightNum == neuronWeights.length - 1 ? 1
                             : hiddenLayerOutputs[inputNum][weightNum]; // treshold
 
-                    delta += (currentExpectedOutput - currentOutput) * currentOutput
-                            * (1 - currentOutput) * currentInput;
+                    delta += outputDeltas[inputNum][numOfNeuron] * currentInput;
                 }
 
                 delta /= inputs.length;
                 neuronWeights[weightNum] += learningRate * delta;
             }
-            newOutputLayerWeights[numOfNeuron] = neuronWeights;
         }
-
-        network.updateOutputLayerWeights(newOutputLayerWeights);
     }
 
     /**
      * Updates all the weights in the hidden layer of the given neural
      * network based on the results of training within one epoch of
-     * the Backpropagation algorithm.
+     * the Backpropagation algorithm. The output layer weights must
+     * already be updated and the error terms of the output neurons
+     * stored in the context.
      * 
      * @param network Neural network
      * @param inputs Set of inputs
-     * @param expectedOutputs Set of expected outputs
-     * @param outputs Outputs given by the neural network for the
-     *        given inputs
-     * @param hiddenLayerOutputs Outputs of the hidden layer for the
-     *        given inputs
+     * @param context Training context holding the outputs of the
+     *        network and the error terms of the output neurons
      * @param learningRate Learning rate
      */
     private static void updateHiddenLayerWeights(NeuralNetwork network, double[][] inputs,
-            double[][] expectedOutputs, double[][] outputs, double[][] hiddenLayerOutputs,
-            int learningRate) {
+            TrainingContext context, int learningRate) {
 
         double[][] hiddenLayerWeights = network.getHiddenLayerWeights();
         double[][] outputLayerWeights = network.getOutputLayerWeights();
-        double[][] newHiddenLayerWeights = new double[hiddenLayerWeights.length][];
+        double[][] hiddenLayerOutputs = context.hiddenLayerOutputs;
+        double[][] outputDeltas = context.outputDeltas;
+        double[][] hiddenErrors = context.hiddenErrors;
+        int numOfOutputs = network.getOutputLayerSize();
+
+        // error propagated back to every hidden neuron for every
+        // learning example
+        for (int inputNum = 0; inputNum < inputs.length; inputNum++) {
+            for (int numOfNeuron = 0; numOfNeuron < hiddenLayerWeights.length; numOfNeuron++) {
+                double innerDeltaSum = 0;
+
+                // for every component of the output
+                for (int outputNum = 0; outputNum < numOfOutputs; outputNum++) {
+                    innerDeltaSum += outputDeltas[inputNum][outputNum]
+                            * outputLayerWeights[outputNum][numOfNeuron];
+                }
+                hiddenErrors[inputNum][numOfNeuron] = innerDeltaSum;
+            }
+        }
 
         // for every hidden layer neuron
         for (int numOfNeuron = 0; numOfNeuron < hiddenLayerWeights.length; numOfNeuron++) {
@@ -153,28 +622,14 @@ public class NeuralNetworkTrainer {
                             : inputs[inputNum][weightNum]; // treshold
                     double partialDelta = hiddenNeuronOutput * (1 - hiddenNeuronOutput)
                             * currentInput;
-                    double innerDeltaSum = 0;
-
-                    // for every component of the output
-                    int numOfOutputs = network.getOutputLayerSize();
-                    for (int outputNum = 0; outputNum < numOfOutputs; outputNum++) {
-                        double currentOutput = outputs[inputNum][outputNum];
-                        double currentExpectedOutput = expectedOutputs[inputNum][outputNum];
 
-                        innerDeltaSum += (currentExpectedOutput - currentOutput) * currentOutput
-                                * (1 - currentOutput) * outputLayerWeights[outputNum][numOfNeuron];
-                    }
-
-                    delta += partialDelta * innerDeltaSum;
+                    delta += partialDelta * hiddenErrors[inputNum][numOfNeuron];
                 }
 
                 delta /= inputs.length;
                 neuronWeights[weightNum] += learningRate * delta;
             }
-            newHiddenLayerWeights[numOfNeuron] = neuronWeights;
         }
-
-        network.updateHiddenLayerWeights(newHiddenLayerWeights);
     }
 
 }
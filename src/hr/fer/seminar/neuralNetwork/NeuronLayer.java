@@ -1,5 +1,7 @@
 package hr.fer.seminar.neuralNetwork;
 
+import java.util.SplittableRandom;
+
 /**
  * NeuronLayer class implements a single (hidden or output) layer of
  * {@link Neuron} used in {@link NeuralNetwork}.
@@ -14,6 +16,8 @@ public class NeuronLayer {
     private double[][] weights;
     /** Number of neurons in the layer. */
     private int size;
+    /** Number of inputs of every neuron in the layer. */
+    private int numberOfInputs;
 
     /**
      * Constructs a new NeuronLayer with the given number of neurons
@@ -25,21 +29,63 @@ public class NeuronLayer {
      * @param numberOfInputs Number of inputs for every neuron
      */
     public NeuronLayer(int numberOfNeurons, int numberOfInputs) {
+        this(numberOfNeurons, numberOfInputs, WeightInitializer.UNIFORM, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a new NeuronLayer with the given number of neurons
+     * in which each neuron has the given number of inputs. Weights of
+     * all the neurons are initialised by the given scheme using the
+     * given generator, which must not be used by other threads at the
+     * same time.
+     * 
+     * @param numberOfNeurons Number of neurons in the layer
+     * @param numberOfInputs Number of inputs for every neuron
+     * @param initializer Scheme of the initial weights
+     * @param random Generator of the initial weights
+     */
+    public NeuronLayer(int numberOfNeurons, int numberOfInputs, WeightInitializer initializer,
+            SplittableRandom random) {
         this.neurons = new Neuron[numberOfNeurons];
-        this.weights = new double[numberOfNeurons][numberOfInputs];
+        this.weights = new double[numberOfNeurons][];
         this.size = numberOfNeurons;
+        this.numberOfInputs = numberOfInputs;
 
         for (int i = 0; i < numberOfNeurons; i++) {
             int numOfWeights = numberOfInputs + 1;// treshold
             double[] singleNeuronWeights = new double[numOfWeights];
-            for (int j = 0; j < numOfWeights; j++) {
-                singleNeuronWeights[j] = Math.random();
-            }
+            initializer.initialize(singleNeuronWeights, numberOfInputs, numberOfNeurons, random);
             neurons[i] = new Neuron(singleNeuronWeights);
             weights[i] = singleNeuronWeights;
         }
     }
 
+    /**
+     * Constructs a new NeuronLayer with the given weights. The j-th
+     * weight of the i-th neuron is set to the value of weights[i][j]
+     * and the last weight of every neuron represents a threshold.
+     * 
+     * @param weights Weights of the neurons
+     * @throws NeuralNetworkException If the layer has no neurons or
+     *         the neurons have different numbers of weights
+     */
+    public NeuronLayer(double[][] weights) {
+        if (weights.length == 0) {
+            throw new NeuralNetworkException("Neuron layer must have at least one neuron.");
+        }
+        this.neurons = new Neuron[weights.length];
+        this.weights = weights;
+        this.size = weights.length;
+        this.numberOfInputs = weights[0].length - 1;
+
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i].length != numberOfInputs + 1) {
+                throw new NeuralNetworkException("Invalid length of weights array.");
+            }
+            neurons[i] = new Neuron(weights[i]);
+        }
+    }
+
     /**
      * Returns the number of neurons in the neuron layer.
      * 
@@ -49,6 +95,15 @@ public class NeuronLayer {
         return size;
     }
 
+    /**
+     * Returns the number of inputs of every neuron in the layer.
+     * 
+     * @return Number of inputs
+     */
+    public int getNumberOfInputs() {
+        return numberOfInputs;
+    }
+
     /**
      * Sets the inpurs of all the neurons in the layer to the given
      * values.
@@ -109,4 +164,27 @@ public class NeuronLayer {
         return outputs;
     }
 
+    /**
+     * Calculates the outputs of all the neurons in the layer for the
+     * given inputs and stores them in the given array. Unlike
+     * {@link #calculateOutputs()} this method does not allocate any
+     * memory and does not change the inputs set to the neurons.
+     * 
+     * @param inputs Input vector
+     * @param outputs Array in which the outputs are stored, its length
+     *        must be at least the number of neurons in the layer
+     */
+    public void calculateOutputs(double[] inputs, double[] outputs) {
+        for (int i = 0; i < weights.length; i++) {
+            double[] neuronWeights = weights[i];
+            double net = 0;
+            for (int j = 0; j < inputs.length; j++) {
+                net += neuronWeights[j] * inputs[j];
+            }
+            net += neuronWeights[neuronWeights.length - 1]; // treshold
+
+            outputs[i] = 1 / (1 + Math.exp(-net));
+        }
+    }
+
 }
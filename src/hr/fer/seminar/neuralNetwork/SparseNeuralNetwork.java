@@ -0,0 +1,134 @@
+package hr.fer.seminar.neuralNetwork;
+
+/**
+ * SparseNeuralNetwork class represents a feed forward neural network
+ * with one hidden layer whose weights are stored in the compressed
+ * sparse row layout (see {@link SparseNeuronLayer}). It is created from
+ * a network pruned by {@link NeuralNetworkTrainer#prune(NeuralNetwork,
+ * double)} and used only for inference, where it skips the pruned
+ * weights instead of multiplying them by zero.
+ *
+ * The network can not be modified, so it can be used from multiple
+ * threads at the same time.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class SparseNeuralNetwork {
+    /** Hidden layer. */
+    private final SparseNeuronLayer hiddenLayer;
+    /** Output layer. */
+    private final SparseNeuronLayer outputLayer;
+
+    /**
+     * Creates a new sparse neural network with the weights of the given
+     * network which differ from zero. Later changes of the given
+     * network do not change the sparse one.
+     *
+     * @param network Trained, usually pruned, neural network
+     */
+    public SparseNeuralNetwork(NeuralNetwork network) {
+        hiddenLayer = new SparseNeuronLayer(network.getHiddenLayerWeights());
+        outputLayer = new SparseNeuronLayer(network.getOutputLayerWeights());
+    }
+
+    /**
+     * Calculates the outputs of the neural network for the given
+     * inputs and stores the outputs of the hidden and the output layer
+     * in the given arrays. The method does not allocate any memory.
+     *
+     * @param inputs Inputs of the neural network
+     * @param hiddenLayerOutputs Array in which the outputs of the
+     *        hidden layer are stored
+     * @param outputs Array in which the outputs of the network are
+     *        stored
+     */
+    public void calculateOutputs(double[] inputs, double[] hiddenLayerOutputs,
+            double[] outputs) {
+        hiddenLayer.calculateOutputs(inputs, hiddenLayerOutputs);
+        outputLayer.calculateOutputs(hiddenLayerOutputs, outputs);
+    }
+
+    /**
+     * Returns the share of the weights, thresholds excluded, which are
+     * zero and therefore not stored.
+     *
+     * @return Sparsity in range [0,1]
+     */
+    public double getSparsity() {
+        long dense = (long) hiddenLayer.getSize() * hiddenLayer.getNumberOfInputs()
+                + (long) outputLayer.getSize() * outputLayer.getNumberOfInputs();
+        return 1 - (double) getNumberOfWeights() / dense;
+    }
+
+    /**
+     * Returns the number of stored weights, thresholds excluded.
+     *
+     * @return Number of weights which differ from zero
+     */
+    public int getNumberOfWeights() {
+        return hiddenLayer.getNumberOfWeights() + outputLayer.getNumberOfWeights();
+    }
+
+    /**
+     * Returns the approximate number of bytes taken by the weights of
+     * the network.
+     *
+     * @return Size of the weights in bytes
+     */
+    public long getMemorySize() {
+        return hiddenLayer.getMemorySize() + outputLayer.getMemorySize();
+    }
+
+    /**
+     * Returns the approximate number of bytes taken by the weights of
+     * the given dense network, for comparison with
+     * {@link #getMemorySize()}.
+     *
+     * @param network Dense neural network
+     * @return Size of the weights in bytes
+     */
+    public static long getMemorySize(NeuralNetwork network) {
+        return 8L * network.getHiddenLayerSize() * (network.getInputLayerSize() + 1)
+                + 8L * network.getOutputLayerSize() * (network.getHiddenLayerSize() + 1);
+    }
+
+    /**
+     * Creates a dense neural network with the weights of this network,
+     * for example to train it further or to save it.
+     *
+     * @return New dense neural network
+     */
+    public NeuralNetwork toDense() {
+        return new NeuralNetwork(hiddenLayer.toDense(), outputLayer.toDense());
+    }
+
+    /**
+     * Returns the number of the output neurons (length of the output vector).
+     *
+     * @return Number of output neurons
+     */
+    public int getOutputLayerSize() {
+        return outputLayer.getSize();
+    }
+
+    /**
+     * Returns the number of the hidden layer neurons.
+     *
+     * @return Number of hidden layer neurons
+     */
+    public int getHiddenLayerSize() {
+        return hiddenLayer.getSize();
+    }
+
+    /**
+     * Returns the number of the input neurons (length of the input
+     * vector).
+     *
+     * @return Number of input neurons
+     */
+    public int getInputLayerSize() {
+        return hiddenLayer.getNumberOfInputs();
+    }
+
+}
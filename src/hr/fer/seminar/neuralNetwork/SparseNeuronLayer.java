@@ -0,0 +1,150 @@
+package hr.fer.seminar.neuralNetwork;
+
+/**
+ * SparseNeuronLayer class implements a layer of neurons whose weights
+ * are stored in the compressed sparse row layout: only the weights
+ * which differ from zero are kept, together with the indices of their
+ * inputs, and the weights of the i-th neuron occupy the range
+ * [rowStarts[i], rowStarts[i + 1]) of the arrays. The threshold of
+ * every neuron is stored separately.
+ *
+ * The layer is used only for inference, its weights can not be changed.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class SparseNeuronLayer {
+    /** Start of the weights of every neuron, followed by their end. */
+    private final int[] rowStarts;
+    /** Index of the input of every stored weight. */
+    private final int[] columns;
+    /** Stored weights. */
+    private final double[] values;
+    /** Threshold of every neuron. */
+    private final double[] thresholds;
+    /** Number of inputs of every neuron in the layer. */
+    private final int numberOfInputs;
+
+    /**
+     * Constructs a new SparseNeuronLayer with the weights of the given
+     * dense layer which differ from zero. The j-th weight of the i-th
+     * neuron is weights[i][j] and the last weight of every neuron
+     * represents a threshold.
+     *
+     * @param weights Weights of the neurons
+     * @throws NeuralNetworkException If the layer has no neurons or
+     *         the neurons have different numbers of weights
+     */
+    public SparseNeuronLayer(double[][] weights) {
+        if (weights.length == 0) {
+            throw new NeuralNetworkException("Neuron layer must have at least one neuron.");
+        }
+        this.numberOfInputs = weights[0].length - 1;
+
+        int count = 0;
+        for (double[] neuronWeights : weights) {
+            if (neuronWeights.length != numberOfInputs + 1) {
+                throw new NeuralNetworkException("Invalid length of weights array.");
+            }
+            for (int j = 0; j < numberOfInputs; j++) {
+                if (neuronWeights[j] != 0) {
+                    count++;
+                }
+            }
+        }
+
+        this.rowStarts = new int[weights.length + 1];
+        this.columns = new int[count];
+        this.values = new double[count];
+        this.thresholds = new double[weights.length];
+        int next = 0;
+        for (int i = 0; i < weights.length; i++) {
+            rowStarts[i] = next;
+            for (int j = 0; j < numberOfInputs; j++) {
+                if (weights[i][j] != 0) {
+                    columns[next] = j;
+                    values[next] = weights[i][j];
+                    next++;
+                }
+            }
+            thresholds[i] = weights[i][numberOfInputs];
+        }
+        rowStarts[weights.length] = next;
+    }
+
+    /**
+     * Returns the number of neurons in the neuron layer.
+     *
+     * @return Number of neurons in the neuron layer
+     */
+    public int getSize() {
+        return thresholds.length;
+    }
+
+    /**
+     * Returns the number of inputs of every neuron in the layer.
+     *
+     * @return Number of inputs
+     */
+    public int getNumberOfInputs() {
+        return numberOfInputs;
+    }
+
+    /**
+     * Returns the number of stored weights, thresholds excluded.
+     *
+     * @return Number of weights which differ from zero
+     */
+    public int getNumberOfWeights() {
+        return values.length;
+    }
+
+    /**
+     * Returns the approximate number of bytes taken by the arrays of
+     * the layer.
+     *
+     * @return Size of the weights in bytes
+     */
+    public long getMemorySize() {
+        return 4L * (rowStarts.length + columns.length)
+                + 8L * (values.length + thresholds.length);
+    }
+
+    /**
+     * Returns the weights of the layer in the dense layout used by
+     * {@link NeuronLayer}, with zeros in place of the missing weights.
+     *
+     * @return New array of the weights
+     */
+    public double[][] toDense() {
+        double[][] weights = new double[thresholds.length][numberOfInputs + 1];
+        for (int i = 0; i < thresholds.length; i++) {
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++) {
+                weights[i][columns[k]] = values[k];
+            }
+            weights[i][numberOfInputs] = thresholds[i];
+        }
+        return weights;
+    }
+
+    /**
+     * Calculates the outputs of all the neurons in the layer for the
+     * given inputs and stores them in the given array. The method does
+     * not allocate any memory.
+     *
+     * @param inputs Input vector
+     * @param outputs Array in which the outputs are stored, its length
+     *        must be at least the number of neurons in the layer
+     */
+    public void calculateOutputs(double[] inputs, double[] outputs) {
+        for (int i = 0; i < thresholds.length; i++) {
+            double net = thresholds[i];
+            for (int k = rowStarts[i], end = rowStarts[i + 1]; k < end; k++) {
+                net += values[k] * inputs[columns[k]];
+            }
+
+            outputs[i] = 1 / (1 + Math.exp(-net));
+        }
+    }
+
+}
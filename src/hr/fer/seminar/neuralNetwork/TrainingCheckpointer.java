@@ -0,0 +1,145 @@
+package hr.fer.seminar.neuralNetwork;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link TrainingListener} which periodically saves a {@link Checkpoint}
+ * of the trained network to a file. The weights are copied on the
+ * training thread, but the file is written by a separate background
+ * thread, so the training is not slowed down by the disk. If a new
+ * checkpoint is taken before the previous one has been written, only
+ * the newer one is written.
+ *
+ * When closed, the checkpointer saves the last finished epoch (for
+ * example after the training has been cancelled) and waits until all
+ * the checkpoints have been written. It must be closed on the training
+ * thread after the training has stopped.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class TrainingCheckpointer implements TrainingListener, Closeable {
+
+    /** File the checkpoints are saved to. */
+    private final Path file;
+    /** Number of epochs between two checkpoints. */
+    private final int interval;
+    /** Thread writing the checkpoints. */
+    private final ExecutorService writer;
+    /** Newest checkpoint which has not been written yet. */
+    private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+
+    /** Network being trained. */
+    private NeuralNetwork network;
+    /** Statistics of the last finished epoch. */
+    private EpochStatistics lastStatistics;
+    /** Number of the last epoch a checkpoint was taken for. */
+    private int lastCheckpointEpoch;
+    /** Error which occurred while writing a checkpoint. */
+    private volatile IOException failure;
+
+    /**
+     * Creates a new checkpointer.
+     *
+     * @param file File the checkpoints are saved to
+     * @param interval Number of epochs between two checkpoints
+     */
+    public TrainingCheckpointer(Path file, int interval) {
+        this.file = file;
+        this.interval = Math.max(1, interval);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void epochFinished(NeuralNetwork network, EpochStatistics statistics) {
+        this.network = network;
+        this.lastStatistics = statistics;
+
+        if (statistics.getEpoch() % interval == 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Copies the network and schedules the copy to be written.
+     */
+    private void checkpoint() {
+        lastCheckpointEpoch = lastStatistics.getEpoch();
+        Checkpoint checkpoint = new Checkpoint(new NeuralNetwork(network),
+                lastStatistics.getEpoch(), lastStatistics.getNumOfEpochs(),
+                lastStatistics.getLearningRate());
+
+        if (pending.getAndSet(checkpoint) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Writes the newest pending checkpoint.
+     */
+    private void writePending() {
+        Checkpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.save(file);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Returns the file the checkpoints are saved to.
+     *
+     * @return Checkpoint file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Saves the last finished epoch if it has not been saved yet and
+     * waits until all the checkpoints have been written.
+     *
+     * @throws IOException If writing a checkpoint failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (lastStatistics != null && lastStatistics.getEpoch() > lastCheckpointEpoch) {
+            checkpoint();
+        }
+
+        // the training thread is usually interrupted when the training
+        // is cancelled, the last checkpoint must be written anyway
+        boolean interrupted = Thread.interrupted();
+        writer.shutdown();
+        while (true) {
+            try {
+                if (writer.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package hr.fer.seminar.neuralNetwork;
+
+/**
+ * Holds all the buffers used by {@link NeuralNetworkTrainer} during
+ * training of a {@link NeuralNetwork}. The outputs of every layer and
+ * the error terms of every neuron are allocated once, when the
+ * context is created, and are reused in every epoch so training does
+ * not produce garbage proportional to the number of epochs.
+ *
+ * A context can be reused for any number of training runs on
+ * networks and datasets of the same dimensions, but must not be
+ * shared between threads training at the same time.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class TrainingContext {
+
+    /** Number of examples the buffers are allocated for. */
+    private final int numOfExamples;
+    /** Number of input neurons. */
+    private final int inputLayerSize;
+    /** Number of hidden layer neurons. */
+    private final int hiddenLayerSize;
+    /** Number of output neurons. */
+    private final int outputLayerSize;
+
+    /** Outputs of the hidden layer for every example. */
+    final double[][] hiddenLayerOutputs;
+    /** Outputs of the network for every example. */
+    final double[][] outputs;
+    /** Error terms of the output neurons for every example. */
+    final double[][] outputDeltas;
+    /**
+     * Errors propagated back to the hidden neurons for every example
+     * (sum of the output error terms multiplied with the output layer
+     * weights).
+     */
+    final double[][] hiddenErrors;
+
+    /**
+     * Creates a new training context for a network with the given
+     * layer sizes and a dataset with the given number of examples.
+     *
+     * @param numOfExamples Number of learning examples
+     * @param inputLayerSize Number of neurons in the input layer
+     * @param hiddenLayerSize Number of neurons in the hidden layer
+     * @param outputLayerSize Number of neurons in the output layer
+     */
+    public TrainingContext(int numOfExamples, int inputLayerSize, int hiddenLayerSize,
+            int outputLayerSize) {
+        this.numOfExamples = numOfExamples;
+        this.inputLayerSize = inputLayerSize;
+        this.hiddenLayerSize = hiddenLayerSize;
+        this.outputLayerSize = outputLayerSize;
+
+        hiddenLayerOutputs = new double[numOfExamples][hiddenLayerSize];
+        outputs = new double[numOfExamples][outputLayerSize];
+        outputDeltas = new double[numOfExamples][outputLayerSize];
+        hiddenErrors = new double[numOfExamples][hiddenLayerSize];
+    }
+
+    /**
+     * Creates a new training context for the given network and a
+     * dataset with the given number of examples.
+     *
+     * @param network Neural network to be trained
+     * @param numOfExamples Number of learning examples
+     */
+    public TrainingContext(NeuralNetwork network, int numOfExamples) {
+        this(numOfExamples, network.getInputLayerSize(), network.getHiddenLayerSize(),
+                network.getOutputLayerSize());
+    }
+
+    /**
+     * Checks whether the buffers of this context can be used for
+     * training the given network on the given number of examples.
+     *
+     * @param network Neural network
+     * @param numOfExamples Number of learning examples
+     * @return True if the context matches the network and the dataset
+     */
+    public boolean fits(NeuralNetwork network, int numOfExamples) {
+        return this.numOfExamples == numOfExamples
+                && inputLayerSize == network.getInputLayerSize()
+                && hiddenLayerSize == network.getHiddenLayerSize()
+                && outputLayerSize == network.getOutputLayerSize();
+    }
+
+    /**
+     * Returns the number of examples the buffers are allocated for.
+     *
+     * @return Number of examples
+     */
+    public int getNumOfExamples() {
+        return numOfExamples;
+    }
+
+}
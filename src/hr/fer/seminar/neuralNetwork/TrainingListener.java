@@ -0,0 +1,46 @@
+package hr.fer.seminar.neuralNetwork;
+
+/**
+ * Listener notified by {@link NeuralNetworkTrainer} after every
+ * training epoch. Listeners are called on the training thread, so they
+ * should return quickly and hand off any expensive work.
+ * 
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public interface TrainingListener {
+
+    /**
+     * Listener which ignores all the notifications. The trainer does
+     * not collect any statistics when this listener is used.
+     */
+    TrainingListener NONE = (network, statistics) -> {
+    };
+
+    /**
+     * Called after the weights of the network have been updated at the
+     * end of an epoch. The network must not be modified by the
+     * listener.
+     * 
+     * @param network Neural network being trained
+     * @param statistics Statistics of the finished epoch
+     */
+    void epochFinished(NeuralNetwork network, EpochStatistics statistics);
+
+    /**
+     * Returns a listener which notifies all the given listeners in the
+     * given order.
+     * 
+     * @param listeners Listeners to be notified
+     * @return Composite listener
+     */
+    static TrainingListener all(TrainingListener... listeners) {
+        TrainingListener[] copy = listeners.clone();
+        return (network, statistics) -> {
+            for (TrainingListener listener : copy) {
+                listener.epochFinished(network, statistics);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,100 @@
+package hr.fer.seminar.neuralNetwork;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Schemes for initialising the weights of a new {@link NeuronLayer}.
+ * The random numbers are taken from the generator given to the layer,
+ * so a network created with the same seed always starts with the same
+ * weights and networks created on different threads do not share a
+ * generator.
+ *
+ * The scaled schemes draw weights symmetric around zero with a range
+ * depending on the number of inputs of the layer, so the net inputs of
+ * the neurons start near zero where the sigmoid is steepest, and set
+ * the thresholds to zero.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public enum WeightInitializer {
+    /**
+     * All the weights, thresholds included, are uniform in range
+     * [0,1]. This is the original scheme, which easily saturates the
+     * neurons of larger layers.
+     */
+    UNIFORM {
+        @Override
+        public void initialize(double[] weights, int numberOfInputs, int numberOfNeurons,
+                SplittableRandom random) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = random.nextDouble();
+            }
+        }
+    },
+    /**
+     * Xavier (Glorot) initialisation: weights are uniform in range
+     * [-r,r] where r = sqrt(6 / (inputs + neurons)). Suited to sigmoid
+     * neurons.
+     */
+    XAVIER {
+        @Override
+        public void initialize(double[] weights, int numberOfInputs, int numberOfNeurons,
+                SplittableRandom random) {
+            fill(weights, Math.sqrt(6.0 / (numberOfInputs + numberOfNeurons)), random);
+        }
+    },
+    /**
+     * He initialisation: weights are uniform in range [-r,r] where
+     * r = sqrt(6 / inputs), which keeps a larger variance than
+     * {@link #XAVIER} for layers with many outputs.
+     */
+    HE {
+        @Override
+        public void initialize(double[] weights, int numberOfInputs, int numberOfNeurons,
+                SplittableRandom random) {
+            fill(weights, Math.sqrt(6.0 / numberOfInputs), random);
+        }
+    };
+
+    /**
+     * Initialises the weights of a single neuron. The last weight is
+     * the threshold.
+     *
+     * @param weights Weights of the neuron to be initialised
+     * @param numberOfInputs Number of inputs of every neuron in the
+     *        layer
+     * @param numberOfNeurons Number of neurons in the layer
+     * @param random Generator of the random numbers
+     */
+    public abstract void initialize(double[] weights, int numberOfInputs, int numberOfNeurons,
+            SplittableRandom random);
+
+    /**
+     * Sets the weights to numbers uniform in range [-range,range] and
+     * the threshold to zero.
+     *
+     * @param weights Weights of the neuron, the last one is the threshold
+     * @param range Greatest magnitude of a weight
+     * @param random Generator of the random numbers
+     */
+    private static void fill(double[] weights, double range, SplittableRandom random) {
+        for (int i = 0; i < weights.length - 1; i++) {
+            weights[i] = random.nextDouble(-range, range);
+        }
+        weights[weights.length - 1] = 0;
+    }
+
+    /**
+     * Returns the scheme with the given name, ignoring case.
+     *
+     * @param name Name of the scheme
+     * @return Scheme
+     * @throws IllegalArgumentException If there is no such scheme
+     */
+    public static WeightInitializer of(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+}
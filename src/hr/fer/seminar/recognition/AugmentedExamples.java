@@ -0,0 +1,278 @@
+package hr.fer.seminar.recognition;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import hr.fer.seminar.dataCollecting.Normalisation;
+import hr.fer.seminar.neuralNetwork.ExampleProvider;
+
+/**
+ * {@link ExampleProvider} which in every epoch gives the original
+ * examples together with the given number of randomly transformed
+ * variants of each of them. The variants are generated from all the
+ * points of the original gestures (rotated, scaled, skewed, jittered
+ * and warped in time), normalised again and reduced to the
+ * representative points.
+ *
+ * Only the variants of the current epoch are kept in memory; they are
+ * generated in parallel into the same buffer at the start of every
+ * epoch. The variants depend only on the seed, the epoch and the
+ * example, so a training is reproducible regardless of the number of
+ * threads.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class AugmentedExamples implements ExampleProvider {
+
+    /**
+     * Ranges of the random transformations applied to the gestures.
+     */
+    public static class Transformations {
+        /** Moderate transformations which keep the gestures readable. */
+        public static final Transformations DEFAULT = new Transformations(Math.toRadians(15),
+                0.15, 0.2, 0.01, 0.3);
+
+        /** Greatest rotation in radians. */
+        private final double rotation;
+        /** Greatest relative change of the scale of each axis. */
+        private final double scale;
+        /** Greatest horizontal skew factor. */
+        private final double skew;
+        /** Standard deviation of the noise added to every coordinate. */
+        private final double jitter;
+        /**
+         * Greatest strength of the time warp, must be less than 1 so the
+         * order of the points is preserved.
+         */
+        private final double timeWarp;
+
+        /**
+         * Creates new ranges of the transformations.
+         *
+         * @param rotation Greatest rotation in radians
+         * @param scale Greatest relative change of the scale of each axis
+         * @param skew Greatest horizontal skew factor
+         * @param jitter Standard deviation of the noise added to every
+         *        coordinate of the normalised gesture
+         * @param timeWarp Greatest strength of the time warp in range
+         *        [0, 1)
+         * @throws IllegalArgumentException If the time warp is not in
+         *         range [0, 1)
+         */
+        public Transformations(double rotation, double scale, double skew, double jitter,
+                double timeWarp) {
+            if (timeWarp < 0 || timeWarp >= 1) {
+                throw new IllegalArgumentException("Time warp must be in range [0, 1).");
+            }
+            this.rotation = rotation;
+            this.scale = scale;
+            this.skew = skew;
+            this.jitter = jitter;
+            this.timeWarp = timeWarp;
+        }
+    }
+
+    /** Scratch buffers of the current thread used for one variant. */
+    private static final ThreadLocal<double[][]> SCRATCH = ThreadLocal
+            .withInitial(() -> new double[2][0]);
+
+    /** Original examples. */
+    private final List<GestureExample> examples;
+    /** Number of representative points. */
+    private final int numOfPoints;
+    /** Number of variants of every example in an epoch. */
+    private final int variants;
+    /** Seed of the random transformations. */
+    private final long seed;
+    /** Ranges of the transformations. */
+    private final Transformations transformations;
+
+    /** Inputs of the current epoch, originals first. */
+    private final double[][] inputs;
+    /** Expected outputs of all the inputs. */
+    private final double[][] expectedOutputs;
+    /** Epoch the variants in the inputs were generated for. */
+    private int generatedEpoch = -1;
+
+    /**
+     * Creates a new provider of augmented examples with the default
+     * transformations.
+     *
+     * @param examples Original examples
+     * @param numOfPoints Number of representative points
+     * @param numOfOutputs Number of outputs of the network
+     * @param variants Number of variants of every example in an epoch
+     * @param seed Seed of the random transformations
+     */
+    public AugmentedExamples(List<GestureExample> examples, int numOfPoints, int numOfOutputs,
+            int variants, long seed) {
+        this(examples, numOfPoints, numOfOutputs, variants, seed, Transformations.DEFAULT);
+    }
+
+    /**
+     * Creates a new provider of augmented examples.
+     *
+     * @param examples Original examples
+     * @param numOfPoints Number of representative points
+     * @param numOfOutputs Number of outputs of the network
+     * @param variants Number of variants of every example in an epoch
+     * @param seed Seed of the random transformations
+     * @param transformations Ranges of the transformations
+     * @throws IllegalArgumentException If the label of an example does
+     *         not fit the number of outputs
+     */
+    public AugmentedExamples(List<GestureExample> examples, int numOfPoints, int numOfOutputs,
+            int variants, long seed, Transformations transformations) {
+        this.examples = examples;
+        this.numOfPoints = numOfPoints;
+        this.variants = Math.max(0, variants);
+        this.seed = seed;
+        this.transformations = transformations;
+
+        int size = examples.size() * (1 + this.variants);
+        inputs = new double[size][numOfPoints * 2];
+        expectedOutputs = new double[size][];
+
+        double[][] rows = DataSet.expectedOutputs(numOfOutputs);
+        for (int i = 0; i < size; i++) {
+            GestureExample example = examples.get(i % examples.size());
+            expectedOutputs[i] = DataSet.expectedOutput(rows, example.getLabel());
+            if (i < examples.size()) {
+                GestureLoader.extractRepresentativePoints(example.getXs(), example.getYs(),
+                        example.size(), example.getStrokeStarts(), numOfPoints, inputs[i]);
+            }
+        }
+    }
+
+    @Override
+    public double[][] getInputs(int epoch) {
+        if (epoch != generatedEpoch) {
+            int originals = examples.size();
+            IntStream.range(originals, inputs.length).parallel()
+                    .forEach(row -> generate(epoch, row));
+            generatedEpoch = epoch;
+        }
+        return inputs;
+    }
+
+    @Override
+    public double[][] getExpectedOutputs() {
+        return expectedOutputs;
+    }
+
+    /**
+     * Generates the variant stored in the given row of the inputs.
+     *
+     * @param epoch Index of the epoch
+     * @param row Row of the inputs
+     */
+    private void generate(int epoch, int row) {
+        GestureExample example = examples.get(row % examples.size());
+        int length = example.size();
+        SplittableRandom random = new SplittableRandom(
+                seed * 0x9E3779B97F4A7C15L + epoch * 0xBF58476D1CE4E5B9L + row);
+
+        double[][] scratch = SCRATCH.get();
+        if (scratch[0].length < length) {
+            scratch[0] = new double[length];
+            scratch[1] = new double[length];
+        }
+        double[] xs = scratch[0];
+        double[] ys = scratch[1];
+
+        timeWarp(example, random, xs, ys);
+        transform(xs, ys, length, random);
+        Normalisation.normalisePoints(xs, ys, length);
+
+        GestureLoader.extractRepresentativePoints(xs, ys, length, example.getStrokeStarts(),
+                numOfPoints, inputs[row]);
+    }
+
+    /**
+     * Copies the points of the example to the given arrays, moving them
+     * along every stroke by the same random monotonous warp of time.
+     * Points never move to another stroke, so the strokes keep their
+     * points.
+     *
+     * @param example Original example
+     * @param random Source of randomness
+     * @param xs Array the x coordinates are stored to
+     * @param ys Array the y coordinates are stored to
+     */
+    private void timeWarp(GestureExample example, SplittableRandom random, double[] xs,
+            double[] ys) {
+        double[] originalXs = example.getXs();
+        double[] originalYs = example.getYs();
+        int[] strokeStarts = example.getStrokeStarts();
+        double strength = uniform(random, transformations.timeWarp);
+
+        for (int stroke = 0; stroke <= strokeStarts.length; stroke++) {
+            int start = stroke == 0 ? 0 : strokeStarts[stroke - 1];
+            int end = stroke == strokeStarts.length ? example.size() : strokeStarts[stroke];
+            int length = end - start;
+
+            for (int i = 0; i < length; i++) {
+                double u = length == 1 ? 0 : (double) i / (length - 1);
+                double position = (u + strength * u * (1 - u)) * (length - 1);
+                int lower = Math.min((int) position, length - 1);
+                int upper = Math.min(lower + 1, length - 1);
+                double fraction = position - lower;
+
+                xs[start + i] = originalXs[start + lower] + fraction
+                        * (originalXs[start + upper] - originalXs[start + lower]);
+                ys[start + i] = originalYs[start + lower] + fraction
+                        * (originalYs[start + upper] - originalYs[start + lower]);
+            }
+        }
+    }
+
+    /**
+     * Rotates, skews, scales and jitters the given points.
+     *
+     * @param xs X coordinates
+     * @param ys Y coordinates
+     * @param length Number of points
+     * @param random Source of randomness
+     */
+    private void transform(double[] xs, double[] ys, int length, SplittableRandom random) {
+        double angle = uniform(random, transformations.rotation);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double skew = uniform(random, transformations.skew);
+        double scaleX = 1 + uniform(random, transformations.scale);
+        double scaleY = 1 + uniform(random, transformations.scale);
+        double jitter = transformations.jitter;
+
+        for (int i = 0; i < length; i++) {
+            double x = xs[i] * cos - ys[i] * sin;
+            double y = xs[i] * sin + ys[i] * cos;
+            x += skew * y;
+
+            xs[i] = x * scaleX;
+            ys[i] = y * scaleY;
+
+            if (jitter != 0) {
+                // Box-Muller transform gives two independent normal values
+                double radius = jitter * Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+                double theta = 2 * Math.PI * random.nextDouble();
+                xs[i] += radius * Math.cos(theta);
+                ys[i] += radius * Math.sin(theta);
+            }
+        }
+    }
+
+    /**
+     * Returns a uniformly distributed random number in range
+     * [-bound, bound].
+     *
+     * @param random Source of randomness
+     * @param bound Greatest absolute value
+     * @return Random number
+     */
+    private static double uniform(SplittableRandom random, double bound) {
+        return bound == 0 ? 0 : (2 * random.nextDouble() - 1) * bound;
+    }
+
+}
@@ -0,0 +1,275 @@
+package hr.fer.seminar.recognition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import hr.fer.seminar.dataCollecting.DecimalPoint;
+import hr.fer.seminar.dataCollecting.Normalisation;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+
+/**
+ * Recognises gestures with a pipeline of {@link GestureRecognizer}s,
+ * usually ordered from the cheapest (few points, few hidden neurons) to
+ * the most accurate one. The gesture is given to the first stage and
+ * escalated to the next stage only if the stage did not recognise it,
+ * that is if no output of its network exceeded its precision. The
+ * result of the last stage is returned even if it did not recognise
+ * the gesture. The precision of every stage thus decides how much
+ * accuracy is traded for latency.
+ *
+ * The points are normalised only once for all the stages. A snapshot
+ * of several strokes is given to every stage with its stroke starts,
+ * so no stage spends representative points on the gaps between the
+ * strokes (see {@link GestureRecognizer#recognize(StrokeBuffer.Snapshot)}).
+ * For every
+ * stage the cascade counts the gestures it answered and, while its
+ * {@link RecognitionMetrics} are enabled, records the latency of
+ * recognising them, so the share of cheap answers and the average
+ * latency can be compared between configurations. The stages should
+ * record into the same metrics, which then hold the latencies of every
+ * call of a stage, kept apart from the metrics of the recognizers used
+ * outside the cascade.
+ *
+ * The cascade can be used from multiple threads at the same time.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class CascadeRecognizer {
+
+    /** Stages of the cascade. */
+    private final GestureRecognizer[] stages;
+    /** Number of gestures answered by every stage. */
+    private final LongAdder[] answers;
+    /** Latency of the gestures answered by every stage. */
+    private final LatencyHistogram[] latencies;
+    /** Metrics deciding whether the latencies are recorded. */
+    private final RecognitionMetrics metrics;
+
+    /**
+     * Creates a new cascade of the given stages which records latencies
+     * while the default metrics are enabled.
+     *
+     * @param stages Recognizers in the order they are tried
+     * @throws IllegalArgumentException If no stage is given
+     */
+    public CascadeRecognizer(List<GestureRecognizer> stages) {
+        this(stages, RecognitionMetrics.getDefault());
+    }
+
+    /**
+     * Creates a new cascade of the given stages.
+     *
+     * @param stages Recognizers in the order they are tried
+     * @param metrics Metrics of the cascade; the latencies of the stages
+     *        are recorded only while they are enabled
+     * @throws IllegalArgumentException If no stage is given
+     */
+    public CascadeRecognizer(List<GestureRecognizer> stages, RecognitionMetrics metrics) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("Cascade needs at least one stage.");
+        }
+
+        this.stages = stages.toArray(new GestureRecognizer[stages.size()]);
+        this.metrics = metrics;
+        this.answers = new LongAdder[this.stages.length];
+        this.latencies = new LatencyHistogram[this.stages.length];
+        for (int i = 0; i < this.stages.length; i++) {
+            answers[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Recognises the gesture containing the given points.
+     *
+     * @param points Points of the gesture as they were drawn
+     * @return Result of the stage which answered
+     */
+    public Recognition recognize(List<DecimalPoint> points) {
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+        return recognizeNormalised(Normalisation.normalisePoints(points), timed, start);
+    }
+
+    /**
+     * Recognises the gesture drawn in the given snapshot of the strokes.
+     *
+     * @param stroke Snapshot of the drawn strokes
+     * @return Result of the stage which answered
+     */
+    public Recognition recognize(StrokeBuffer.Snapshot stroke) {
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+
+        int length = stroke.size();
+        double[] xs = new double[length];
+        double[] ys = new double[length];
+        int[] strokeStarts = stroke.getStrokeStarts();
+        stroke.copyTo(xs, ys);
+        Normalisation.normalisePoints(xs, ys, length);
+
+        int stage = 0;
+        Recognition recognition = stages[0].recognizeNormalised(xs, ys, length, strokeStarts);
+        while (!recognition.isRecognized() && stage + 1 < stages.length) {
+            stage++;
+            recognition = stages[stage].recognizeNormalised(xs, ys, length, strokeStarts);
+        }
+        return answered(stage, recognition, timed, start);
+    }
+
+    /**
+     * Recognises the gesture containing the given points which have
+     * already been normalised.
+     *
+     * @param normalisedPoints Normalised points of the gesture
+     * @return Result of the stage which answered
+     */
+    public Recognition recognizeNormalised(List<DecimalPoint> normalisedPoints) {
+        boolean timed = metrics.isEnabled();
+        return recognizeNormalised(normalisedPoints, timed, timed ? System.nanoTime() : 0);
+    }
+
+    /**
+     * Recognises the gesture containing the given normalised points.
+     *
+     * @param normalisedPoints Normalised points of the gesture
+     * @param timed Whether the latency is recorded
+     * @param start Time the recognition started
+     * @return Result of the stage which answered
+     */
+    private Recognition recognizeNormalised(List<DecimalPoint> normalisedPoints, boolean timed,
+            long start) {
+        int stage = 0;
+        Recognition recognition = stages[0].recognizeNormalised(normalisedPoints);
+        while (!recognition.isRecognized() && stage + 1 < stages.length) {
+            stage++;
+            recognition = stages[stage].recognizeNormalised(normalisedPoints);
+        }
+        return answered(stage, recognition, timed, start);
+    }
+
+    /**
+     * Counts the gesture answered by the given stage and records the
+     * latency of its recognition.
+     *
+     * @param stage Stage which answered
+     * @param recognition Result of the stage
+     * @param timed Whether the latency is recorded
+     * @param start Time the recognition started
+     * @return Given result
+     */
+    private Recognition answered(int stage, Recognition recognition, boolean timed,
+            long start) {
+        answers[stage].increment();
+        if (timed) {
+            latencies[stage].record(System.nanoTime() - start);
+        }
+        return recognition;
+    }
+
+    /**
+     * Returns the number of stages.
+     *
+     * @return Number of stages
+     */
+    public int getNumOfStages() {
+        return stages.length;
+    }
+
+    /**
+     * Returns the recognizer of the given stage.
+     *
+     * @param stage Index of the stage
+     * @return Recognizer of the stage
+     */
+    public GestureRecognizer getStage(int stage) {
+        return stages[stage];
+    }
+
+    /**
+     * Returns the metrics of the cascade.
+     *
+     * @return Metrics
+     */
+    public RecognitionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of gestures answered by the given stage.
+     *
+     * @param stage Index of the stage
+     * @return Number of answered gestures
+     */
+    public long getAnswers(int stage) {
+        return answers[stage].sum();
+    }
+
+    /**
+     * Returns the latencies of the gestures answered by the given
+     * stage, measured from the start of the recognition.
+     *
+     * @param stage Index of the stage
+     * @return Histogram of the latencies in nanoseconds
+     */
+    public LatencyHistogram getLatency(int stage) {
+        return latencies[stage];
+    }
+
+    /**
+     * Returns the mean latency of all the recognised gestures.
+     *
+     * @return Mean latency in nanoseconds or 0 if no gesture was
+     *         recognised
+     */
+    public double getMeanLatency() {
+        long count = 0;
+        double sum = 0;
+        for (LatencyHistogram latency : latencies) {
+            count += latency.getCount();
+            sum += latency.getMean() * latency.getCount();
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Removes the counted answers and the recorded latencies.
+     */
+    public void resetStatistics() {
+        for (int i = 0; i < stages.length; i++) {
+            answers[i].reset();
+            latencies[i].reset();
+        }
+    }
+
+    /**
+     * Formats the statistics of the stages as a table with one row per
+     * stage. Latencies are given in microseconds.
+     *
+     * @return Lines of the table
+     */
+    public List<String> toTable() {
+        long total = 0;
+        for (LongAdder answer : answers) {
+            total += answer.sum();
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-5s %6s %6s %9s %9s %7s %9s %9s", "stage",
+                "points", "hidden", "precision", "answers", "share", "mean_us", "p99_us"));
+        for (int i = 0; i < stages.length; i++) {
+            long count = answers[i].sum();
+            lines.add(String.format(Locale.ROOT, "%-5d %6d %6d %9.3f %9d %6.1f%% %9.1f %9.1f",
+                    i + 1, stages[i].getNumOfPoints(),
+                    stages[i].getNetwork().getHiddenLayerSize(), stages[i].getPrecision(),
+                    count, total == 0 ? 0 : 100.0 * count / total,
+                    latencies[i].getMean() / 1e3,
+                    latencies[i].getValueAtPercentile(99) / 1e3));
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,274 @@
+package hr.fer.seminar.recognition;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+
+/**
+ * Set of preprocessed gesture examples split into the inputs and the
+ * expected outputs of a neural network. A dataset is immutable once it
+ * is created, so a single instance can be shared between any number of
+ * threads training or evaluating networks with the same number of
+ * points.
+ *
+ * The arrays returned by the getters are not copied and must not be
+ * modified.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class DataSet {
+
+    /** Inputs of the neural network. */
+    private final double[][] inputs;
+    /** Expected outputs of the neural network for the given inputs. */
+    private final double[][] expectedOutputs;
+    /** Number of representative points of every gesture. */
+    private final int numOfPoints;
+    /** Number of inputs of the neural network. */
+    private final int numOfInputs;
+    /** Stroke of every representative point of every gesture or null. */
+    private final int[][] strokes;
+
+    /**
+     * Creates a new dataset from the given inputs and expected outputs.
+     *
+     * @param inputs Inputs of the neural network
+     * @param expectedOutputs Expected outputs for the given inputs
+     * @param numOfPoints Number of representative points of every
+     *        gesture
+     * @throws IllegalArgumentException If the number of inputs differs
+     *         from the number of expected outputs
+     */
+    public DataSet(double[][] inputs, double[][] expectedOutputs, int numOfPoints) {
+        this(inputs, expectedOutputs, numOfPoints, numOfPoints * 2, null);
+    }
+
+    /**
+     * Creates a new dataset whose inputs are not necessarily the
+     * coordinates of the representative points.
+     *
+     * @param inputs Inputs of the neural network
+     * @param expectedOutputs Expected outputs for the given inputs
+     * @param numOfPoints Number of representative points of every
+     *        gesture
+     * @param numOfInputs Number of inputs of the neural network
+     * @param strokes Stroke of every representative point of every
+     *        gesture, or null if every gesture is taken as a single
+     *        stroke
+     * @throws IllegalArgumentException If the number of inputs differs
+     *         from the number of expected outputs
+     */
+    private DataSet(double[][] inputs, double[][] expectedOutputs, int numOfPoints,
+            int numOfInputs, int[][] strokes) {
+        if (inputs.length != expectedOutputs.length) {
+            throw new IllegalArgumentException(
+                    "Number of inputs differs from the number of expected outputs.");
+        }
+        this.inputs = inputs;
+        this.expectedOutputs = expectedOutputs;
+        this.numOfPoints = numOfPoints;
+        this.numOfInputs = numOfInputs;
+        this.strokes = strokes;
+    }
+
+    /**
+     * Loads all the examples from the given directory and chooses the
+     * given number of representative points of every gesture. Gestures
+     * which are not in the given vocabulary yet are registered, and the
+     * networks trained on the dataset have one output per gesture of
+     * the vocabulary.
+     *
+     * @param path Path of the directory containing examples
+     * @param vocabulary Vocabulary of the gestures
+     * @param numOfPoints Number of desired points
+     * @return Loaded dataset
+     * @throws IllegalArgumentException If the examples could not be
+     *         loaded
+     */
+    public static DataSet load(Path path, GestureVocabulary vocabulary, int numOfPoints) {
+        List<GestureExample> examples = GestureLoader.loadExamples(path, vocabulary);
+        if (examples == null) {
+            throw new IllegalArgumentException("Unable to load examples from " + path + ".");
+        }
+        return of(examples, numOfPoints, vocabulary.size());
+    }
+
+    /**
+     * Creates a dataset from the given examples by choosing the given
+     * number of representative points of every gesture. The examples
+     * keep their order, so the i-th example of the dataset is created
+     * from the i-th given example.
+     *
+     * @param examples Examples with all their points
+     * @param numOfPoints Number of desired points
+     * @param numOfOutputs Number of outputs of the network
+     * @return Created dataset
+     * @throws IllegalArgumentException If the label of an example does
+     *         not fit the number of outputs
+     */
+    public static DataSet of(List<GestureExample> examples, int numOfPoints, int numOfOutputs) {
+        double[][] rows = expectedOutputs(numOfOutputs);
+        double[][] inputs = new double[examples.size()][numOfPoints * 2];
+        double[][] expectedOutputs = new double[examples.size()][];
+        int[][] strokes = new int[examples.size()][numOfPoints];
+
+        for (int i = 0; i < inputs.length; i++) {
+            GestureExample example = examples.get(i);
+            GestureLoader.extractRepresentativePoints(example.getXs(), example.getYs(),
+                    example.size(), example.getStrokeStarts(), numOfPoints, inputs[i],
+                    strokes[i]);
+            expectedOutputs[i] = expectedOutput(rows, example.getLabel());
+        }
+
+        return new DataSet(inputs, expectedOutputs, numOfPoints, numOfPoints * 2, strokes);
+    }
+
+    /**
+     * Creates the expected output of every label: the output of the
+     * label is 1 and all the others are 0. Examples of the same gesture
+     * share the same array, so the memory taken by the expected outputs
+     * grows with the number of gestures instead of the number of
+     * examples.
+     *
+     * @param numOfOutputs Number of outputs of the network
+     * @return Expected output of every label
+     */
+    static double[][] expectedOutputs(int numOfOutputs) {
+        double[][] rows = new double[numOfOutputs][numOfOutputs];
+        for (int i = 0; i < numOfOutputs; i++) {
+            rows[i][i] = 1;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the expected output of the given label.
+     *
+     * @param rows Expected output of every label
+     * @param label Label of a gesture
+     * @return Expected output
+     * @throws IllegalArgumentException If the label does not fit the
+     *         number of outputs
+     */
+    static double[] expectedOutput(double[][] rows, int label) {
+        if (label < 0 || label >= rows.length) {
+            throw new IllegalArgumentException("Label " + label + " does not fit the "
+                    + rows.length + " outputs of the network.");
+        }
+        return rows[label];
+    }
+
+    /**
+     * Creates a dataset containing the examples with the given indices.
+     * The examples are not copied, the new dataset shares them with
+     * this one.
+     *
+     * @param indices Indices of the examples
+     * @return Subset of this dataset
+     */
+    public DataSet subset(int[] indices) {
+        double[][] subsetInputs = new double[indices.length][];
+        double[][] subsetExpectedOutputs = new double[indices.length][];
+        int[][] subsetStrokes = strokes == null ? null : new int[indices.length][];
+
+        for (int i = 0; i < indices.length; i++) {
+            subsetInputs[i] = inputs[indices[i]];
+            subsetExpectedOutputs[i] = expectedOutputs[indices[i]];
+            if (strokes != null) {
+                subsetStrokes[i] = strokes[indices[i]];
+            }
+        }
+
+        return new DataSet(subsetInputs, subsetExpectedOutputs, numOfPoints, numOfInputs,
+                subsetStrokes);
+    }
+
+    /**
+     * Creates a dataset whose inputs are the features of the gestures
+     * (see {@link GestureFeatures}) instead of the coordinates of their
+     * representative points. The expected outputs and the strokes are
+     * shared with this dataset.
+     *
+     * @param features Extractor of the features
+     * @return Dataset of the features
+     * @throws IllegalArgumentException If the extractor uses a different
+     *         number of points than this dataset or the inputs of this
+     *         dataset are not coordinates
+     */
+    public DataSet withFeatures(GestureFeatures features) {
+        if (features.getNumOfPoints() != numOfPoints || numOfInputs != numOfPoints * 2) {
+            throw new IllegalArgumentException(
+                    "Features can only be extracted from the representative points.");
+        }
+        return new DataSet(features.extractAll(inputs, strokes), expectedOutputs, numOfPoints,
+                features.size(), strokes);
+    }
+
+    /**
+     * Returns the inputs of the neural network.
+     *
+     * @return Inputs
+     */
+    public double[][] getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Returns the expected outputs of the neural network.
+     *
+     * @return Expected outputs
+     */
+    public double[][] getExpectedOutputs() {
+        return expectedOutputs;
+    }
+
+    /**
+     * Returns the index of the stroke every representative point of
+     * every gesture was chosen from.
+     *
+     * @return Strokes or null if every gesture is taken as a single
+     *         stroke
+     */
+    public int[][] getStrokes() {
+        return strokes;
+    }
+
+    /**
+     * Returns the number of representative points of every gesture.
+     *
+     * @return Number of points
+     */
+    public int getNumOfPoints() {
+        return numOfPoints;
+    }
+
+    /**
+     * Returns the number of outputs of the neural network.
+     *
+     * @return Number of outputs or 0 if the dataset is empty
+     */
+    public int getNumOfOutputs() {
+        return expectedOutputs.length == 0 ? 0 : expectedOutputs[0].length;
+    }
+
+    /**
+     * Returns the number of inputs of the neural network.
+     *
+     * @return Number of inputs
+     */
+    public int getNumOfInputs() {
+        return numOfInputs;
+    }
+
+    /**
+     * Returns the number of examples in the dataset.
+     *
+     * @return Number of examples
+     */
+    public int size() {
+        return inputs.length;
+    }
+
+}
@@ -0,0 +1,150 @@
+package hr.fer.seminar.recognition;
+
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+
+/**
+ * Utility class containing methods for interpreting the outputs of a
+ * {@link NeuralNetwork} and measuring how well a network recognises
+ * the gestures from a {@link DataSet}.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class Evaluation {
+
+    /**
+     * Recognition precision of the Neural Network (percentage of
+     * accuracy needed for recognition to be successful).
+     */
+    public static final double PRECISION = 0.97;
+
+    /**
+     * Private constructor which disables instancing objects of this
+     * class.
+     */
+    private Evaluation() {
+
+    }
+
+    /**
+     * Returns the index of the gesture recognised from the given
+     * outputs of the network. A gesture is recognised if its output is
+     * greater than the given precision; if more outputs satisfy the
+     * condition the first one is chosen.
+     *
+     * @param outputs Outputs of the neural network
+     * @param precision Output needed for recognition to be successful
+     * @return Index of the recognised gesture or -1 if no gesture was
+     *         recognised
+     */
+    public static int classify(double[] outputs, double precision) {
+        for (int i = 0; i < outputs.length; i++) {
+            if (outputs[i] > precision) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the greatest output.
+     *
+     * @param outputs Outputs of the neural network or an expected
+     *        output vector
+     * @return Index of the greatest output
+     */
+    public static int indexOfMax(double[] outputs) {
+        int max = 0;
+        for (int i = 1; i < outputs.length; i++) {
+            if (outputs[i] > outputs[max]) {
+                max = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the share of the examples from the given dataset which
+     * the given network recognises correctly with the given precision.
+     * The network is not modified, so the method can be called from
+     * multiple threads at the same time.
+     *
+     * @param network Neural network
+     * @param dataSet Examples used for evaluation
+     * @param precision Output needed for recognition to be successful
+     * @return Accuracy in range [0,1]
+     */
+    public static double accuracy(NeuralNetwork network, DataSet dataSet, double precision) {
+        double[] hiddenLayerOutputs = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[network.getOutputLayerSize()];
+        double[][] inputs = dataSet.getInputs();
+        double[][] expectedOutputs = dataSet.getExpectedOutputs();
+
+        int correct = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            network.calculateOutputs(inputs[i], hiddenLayerOutputs, outputs);
+            if (classify(outputs, precision) == indexOfMax(expectedOutputs[i])) {
+                correct++;
+            }
+        }
+
+        return inputs.length == 0 ? 0 : (double) correct / inputs.length;
+    }
+
+    /**
+     * Calculates the share of the examples from the given dataset for
+     * which the greatest output of the given network belongs to the
+     * expected gesture, regardless of the precision.
+     *
+     * @param network Neural network
+     * @param dataSet Examples used for evaluation
+     * @return Accuracy in range [0,1]
+     */
+    public static double topAccuracy(NeuralNetwork network, DataSet dataSet) {
+        double[] hiddenLayerOutputs = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[network.getOutputLayerSize()];
+        double[][] inputs = dataSet.getInputs();
+        double[][] expectedOutputs = dataSet.getExpectedOutputs();
+
+        int correct = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            network.calculateOutputs(inputs[i], hiddenLayerOutputs, outputs);
+            if (indexOfMax(outputs) == indexOfMax(expectedOutputs[i])) {
+                correct++;
+            }
+        }
+
+        return inputs.length == 0 ? 0 : (double) correct / inputs.length;
+    }
+
+    /**
+     * Counts how the given network classifies the examples of every
+     * gesture from the given dataset with the given precision. The
+     * element [i][j] is the number of examples of the i-th gesture
+     * recognised as the j-th gesture; the last column counts the
+     * examples for which no gesture was recognised.
+     *
+     * @param network Neural network
+     * @param dataSet Examples used for evaluation
+     * @param precision Output needed for recognition to be successful
+     * @return Confusion matrix with one row per output and one column
+     *         more
+     */
+    public static int[][] confusionMatrix(NeuralNetwork network, DataSet dataSet,
+            double precision) {
+        int numOfOutputs = network.getOutputLayerSize();
+        double[] hiddenLayerOutputs = new double[network.getHiddenLayerSize()];
+        double[] outputs = new double[numOfOutputs];
+        double[][] inputs = dataSet.getInputs();
+        double[][] expectedOutputs = dataSet.getExpectedOutputs();
+
+        int[][] matrix = new int[numOfOutputs][numOfOutputs + 1];
+        for (int i = 0; i < inputs.length; i++) {
+            network.calculateOutputs(inputs[i], hiddenLayerOutputs, outputs);
+            int gesture = classify(outputs, precision);
+            matrix[indexOfMax(expectedOutputs[i])][gesture < 0 ? numOfOutputs : gesture]++;
+        }
+        return matrix;
+    }
+
+}
@@ -0,0 +1,124 @@
+package hr.fer.seminar.recognition;
+
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+
+/**
+ * Single gesture example as it is stored in an example file: all the
+ * normalised points of the gesture, kept in primitive arrays, and the
+ * label of the gesture in its
+ * {@link hr.fer.seminar.dataCollecting.GestureVocabulary}. The points of
+ * all the strokes are stored one after the other together with the
+ * index of the first point of every stroke but the first one.
+ *
+ * The arrays returned by the getters are not copied and must not be
+ * modified.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class GestureExample {
+
+    /** X coordinates of the points. */
+    private final double[] xs;
+    /** Y coordinates of the points. */
+    private final double[] ys;
+    /** Label of the gesture. */
+    private final int label;
+    /** Index of the first point of every stroke but the first one. */
+    private final int[] strokeStarts;
+
+    /**
+     * Creates a new example of a single stroke.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param label Label of the gesture
+     * @throws IllegalArgumentException If the numbers of coordinates
+     *         differ
+     */
+    public GestureExample(double[] xs, double[] ys, int label) {
+        this(xs, ys, label, new int[0]);
+    }
+
+    /**
+     * Creates a new example.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param label Label of the gesture
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @throws IllegalArgumentException If the numbers of coordinates
+     *         differ or the stroke starts are not valid (see
+     *         {@link StrokeBuffer#areValidStrokeStarts(int[], int)})
+     */
+    public GestureExample(double[] xs, double[] ys, int label, int[] strokeStarts) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Numbers of x and y coordinates differ.");
+        }
+        if (!StrokeBuffer.areValidStrokeStarts(strokeStarts, xs.length)) {
+            throw new IllegalArgumentException("Invalid stroke starts.");
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.label = label;
+        this.strokeStarts = strokeStarts;
+    }
+
+    /**
+     * Returns the x coordinates of the points.
+     *
+     * @return X coordinates
+     */
+    public double[] getXs() {
+        return xs;
+    }
+
+    /**
+     * Returns the y coordinates of the points.
+     *
+     * @return Y coordinates
+     */
+    public double[] getYs() {
+        return ys;
+    }
+
+    /**
+     * Returns the label of the gesture, which is the index of the
+     * output of the network expected to be the greatest.
+     *
+     * @return Label of the gesture
+     */
+    public int getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the index of the first point of every stroke but the
+     * first one.
+     *
+     * @return Stroke starts, empty for a single stroke
+     */
+    public int[] getStrokeStarts() {
+        return strokeStarts;
+    }
+
+    /**
+     * Returns the number of strokes of the gesture.
+     *
+     * @return Number of strokes
+     */
+    public int getNumOfStrokes() {
+        return strokeStarts.length + 1;
+    }
+
+    /**
+     * Returns the number of points of the gesture.
+     *
+     * @return Number of points
+     */
+    public int size() {
+        return xs.length;
+    }
+
+}
@@ -0,0 +1,299 @@
+package hr.fer.seminar.recognition;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts compact features of a gesture from its representative
+ * points (see {@link GestureLoader#extractRepresentativePoints}), which
+ * can be given to a neural network instead of the raw coordinates. The
+ * features describe the shape of the gesture rather than its position,
+ * so fewer points and hidden neurons are needed to tell the gestures
+ * apart.
+ *
+ * The features of a gesture with n representative points are stored
+ * in this order:
+ *
+ * <pre>
+ * n - 2  turning angle at every inner point, in [-1, 1]
+ * bins   share of the length of the path going in every direction,
+ *        measured from the direction of the first drawn segment
+ * 1      spread of the points along their minor principal axis divided
+ *        by the spread along the major one, in [0, 1]
+ * 1      distance between the ends divided by the length of the path
+ * </pre>
+ *
+ * There are n + bins features, so there must be fewer bins than points
+ * for the network to get fewer inputs than from the 2n coordinates.
+ * The total turning is not a feature, since it is the sum of the
+ * turning angles. A network trained on the features can only be used
+ * with the same extractor, so the extractor is saved next to the
+ * network (see {@link #save(Path)} and
+ * {@link ModelRegistry#featuresFile(Path)}).
+ *
+ * None of the features changes when the gesture is rotated: the
+ * directions are measured from the start direction of the gesture and
+ * the spread along the principal axes does not depend on the axes of
+ * the drawing area. Every segment is split between the two nearest
+ * bins of the direction histogram in proportion to its angle, so a
+ * small change of the start direction changes the histogram only
+ * slightly. If the strokes of the representative points are given,
+ * the gap between two strokes is not part of the path: it adds no
+ * length or direction and the turning angles at its ends are zero.
+ *
+ * Angles are measured by the diamond angle, which grows monotonically
+ * with the real angle from 0 to 4 over a full turn and matches it at
+ * every right angle, but takes a single division instead of an arc
+ * tangent. An extractor is immutable and the extraction does not
+ * allocate any memory, so a single extractor can be used from multiple
+ * threads.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public final class GestureFeatures {
+
+    /** Number of features which do not depend on the configuration. */
+    private static final int FIXED_FEATURES = 2;
+
+    /** Number of representative points. */
+    private final int numOfPoints;
+    /** Number of bins of the direction histogram. */
+    private final int numOfBins;
+
+    /**
+     * Creates a new extractor.
+     *
+     * @param numOfPoints Number of representative points
+     * @param numOfBins Number of bins of the direction histogram
+     * @throws IllegalArgumentException If there are fewer than two
+     *         points, no bins or not fewer bins than points
+     */
+    public GestureFeatures(int numOfPoints, int numOfBins) {
+        if (numOfPoints < 2) {
+            throw new IllegalArgumentException("At least two points are needed.");
+        }
+        if (numOfBins < 1) {
+            throw new IllegalArgumentException("At least one bin is needed.");
+        }
+        if (numOfBins >= numOfPoints) {
+            throw new IllegalArgumentException("There must be fewer bins than points.");
+        }
+        this.numOfPoints = numOfPoints;
+        this.numOfBins = numOfBins;
+    }
+
+    /**
+     * Loads the extractor saved to the given file.
+     *
+     * @param file File the extractor was saved to
+     * @return Loaded extractor
+     * @throws IOException If reading fails or the file does not contain
+     *         a valid extractor
+     */
+    public static GestureFeatures load(Path file) throws IOException {
+        String[] values = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim()
+                .split("\\s+");
+        if (values.length != 2) {
+            throw new IOException("Invalid features file " + file + ".");
+        }
+        try {
+            return new GestureFeatures(Integer.parseInt(values[0]),
+                    Integer.parseInt(values[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves the extractor to the given file as the number of points and
+     * the number of bins in a single line.
+     *
+     * @param file File the extractor is saved to
+     * @throws IOException If writing fails
+     */
+    public void save(Path file) throws IOException {
+        List<String> line = Collections.singletonList(numOfPoints + " " + numOfBins);
+        Files.write(file, line, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of features, which is the number of inputs of
+     * a network trained on them.
+     *
+     * @return Number of features
+     */
+    public int size() {
+        return numOfPoints - 2 + numOfBins + FIXED_FEATURES;
+    }
+
+    /**
+     * Calculates the features of the gesture with the given
+     * representative points. The points are visited only once.
+     *
+     * @param coordinates Coordinates of the representative points as
+     *        x0, y0, x1, y1, ...
+     * @param strokes Index of the stroke of every representative point
+     *        (see {@link GestureLoader#extractRepresentativePoints(double[],
+     *        double[], int, int[], int, double[], int[])}), or null for a
+     *        single stroke
+     * @param features Array of at least {@link #size()} elements in which
+     *        the features are stored
+     * @return Given array of the features
+     */
+    public double[] extract(double[] coordinates, int[] strokes, double[] features) {
+        // the histogram follows the n - 2 turning angles
+        int turnings = 0;
+        int histogram = numOfPoints - 2;
+        int shape = histogram + numOfBins;
+        for (int i = histogram; i < shape; i++) {
+            features[i] = 0;
+        }
+
+        double sumX = coordinates[0];
+        double sumY = coordinates[1];
+        double sumXX = sumX * sumX;
+        double sumYY = sumY * sumY;
+        double sumXY = sumX * sumY;
+        double pathLength = 0;
+        double previousX = 0;
+        double previousY = 0;
+        double startX = 0;
+        double startY = 0;
+
+        for (int i = 1; i < numOfPoints; i++) {
+            double x = coordinates[2 * i];
+            double y = coordinates[2 * i + 1];
+            double dx = x - coordinates[2 * i - 2];
+            double dy = y - coordinates[2 * i - 1];
+
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumYY += y * y;
+            sumXY += x * y;
+
+            if (strokes != null && strokes[i] != strokes[i - 1]) {
+                // the pen was lifted, so the gap is handled as a segment
+                // of zero length, which turns by zero at both ends
+                dx = 0;
+                dy = 0;
+            }
+
+            double length = Math.sqrt(dx * dx + dy * dy);
+            pathLength += length;
+            if (length > 0) {
+                if (startX == 0 && startY == 0) {
+                    startX = dx;
+                    startY = dy;
+                }
+                // position of the direction relative to the start
+                // direction among the bins, the segment is split between
+                // the bin below and the one above
+                double direction = diamondAngle(startX * dx + startY * dy,
+                        startX * dy - startY * dx);
+                double position = (direction < 0 ? direction + 4 : direction) * numOfBins / 4;
+                int bin = (int) position;
+                double above = position - bin;
+                features[histogram + bin % numOfBins] += length * (1 - above);
+                features[histogram + (bin + 1) % numOfBins] += length * above;
+            }
+
+            if (i > 1) {
+                // a segment of zero length turns by zero
+                double turning = diamondAngle(previousX * dx + previousY * dy,
+                        previousX * dy - previousY * dx);
+                features[turnings++] = turning / 2;
+            }
+            previousX = dx;
+            previousY = dy;
+        }
+
+        if (pathLength > 0) {
+            for (int i = histogram; i < shape; i++) {
+                features[i] /= pathLength;
+            }
+        }
+
+        // variances along the principal axes are the eigenvalues of the
+        // covariance matrix of the points
+        double meanX = sumX / numOfPoints;
+        double meanY = sumY / numOfPoints;
+        double varianceX = sumXX / numOfPoints - meanX * meanX;
+        double varianceY = sumYY / numOfPoints - meanY * meanY;
+        double covariance = sumXY / numOfPoints - meanX * meanY;
+        double halfTrace = (varianceX + varianceY) / 2;
+        double difference = Math.sqrt((varianceX - varianceY) * (varianceX - varianceY) / 4
+                + covariance * covariance);
+        double major = halfTrace + difference;
+        double minor = Math.max(0, halfTrace - difference);
+        features[shape] = major <= 0 ? 1 : Math.sqrt(minor / major);
+        double closureX = coordinates[2 * numOfPoints - 2] - coordinates[0];
+        double closureY = coordinates[2 * numOfPoints - 1] - coordinates[1];
+        features[shape + 1] = pathLength == 0 ? 0
+                : Math.sqrt(closureX * closureX + closureY * closureY) / pathLength;
+
+        return features;
+    }
+
+    /**
+     * Returns the diamond angle of the given vector, which is the
+     * distance along the unit diamond |x| + |y| = 1 from point (1, 0) to
+     * the point in the direction of the vector, counterclockwise for
+     * positive and clockwise for negative angles.
+     *
+     * @param x X coordinate of the vector
+     * @param y Y coordinate of the vector
+     * @return Angle in range [-2, 2] or 0 for the zero vector
+     */
+    private static double diamondAngle(double x, double y) {
+        double sum = Math.abs(x) + Math.abs(y);
+        if (sum == 0) {
+            return 0;
+        }
+        double angle = x >= 0 ? Math.abs(y) / sum : 2 - Math.abs(y) / sum;
+        return y < 0 ? -angle : angle;
+    }
+
+    /**
+     * Creates the inputs of a network trained on the features from the
+     * given coordinates of representative points.
+     *
+     * @param inputs Coordinates of the representative points of every
+     *        gesture
+     * @param strokes Index of the stroke of every representative point
+     *        of every gesture, or null if every gesture is a single
+     *        stroke
+     * @return Features of every gesture
+     */
+    public double[][] extractAll(double[][] inputs, int[][] strokes) {
+        double[][] features = new double[inputs.length][size()];
+        for (int i = 0; i < inputs.length; i++) {
+            extract(inputs[i], strokes == null ? null : strokes[i], features[i]);
+        }
+        return features;
+    }
+
+    /**
+     * Returns the number of representative points.
+     *
+     * @return Number of points
+     */
+    public int getNumOfPoints() {
+        return numOfPoints;
+    }
+
+    /**
+     * Returns the number of bins of the direction histogram.
+     *
+     * @return Number of bins
+     */
+    public int getNumOfBins() {
+        return numOfBins;
+    }
+
+}
@@ -7,21 +7,38 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import hr.fer.seminar.dataCollecting.DecimalPoint;
+import hr.fer.seminar.dataCollecting.ExampleFiles;
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
 
 /**
  * Utility class containing methods for loading gesture signals from
  * files.
  * 
+ * An example file contains the x and y coordinate of every point of
+ * the gesture on its own line, followed by a line with the name of the
+ * gesture prefixed with {@value ExampleFiles#LABEL_PREFIX} (see
+ * {@link ExampleFiles}). The names are turned into labels by a
+ * {@link GestureVocabulary}. Files of the original dataset end with
+ * the expected output of the network instead, one digit per line; the
+ * position of the one is the label of the gesture. The strokes of a
+ * gesture of several strokes are separated by a
+ * {@value ExampleFiles#STROKE_SEPARATOR} line.
+ * 
  * @author Dunja Vesinger
  * @version 1.0
  *
  */
 public class GestureLoader {
 
+    /** Stroke starts of a gesture of a single stroke. */
+    private static final int[] SINGLE_STROKE = new int[0];
+
     /**
      * Private constructor which disables instancing objects of this
      * class.
@@ -31,67 +48,57 @@ public class GestureLoader {
     }
 
     /**
-     * Loads the coordinates and expected output from the example and
-     * chooses the given number of representative coordinates.
+     * Loads all the points and the label of the example, registering
+     * its gesture in the given vocabulary if needed.
      * 
      * @param path Path of the example file
-     * @param numOfOutputs Number of outputs in the file
-     * @param numOfPoints Number of desired points
-     * @return Array of representative coordinates and expected output
-     *         from the example
+     * @param vocabulary Vocabulary of the gestures
+     * @return Loaded example or null if it could not be loaded
      */
-    public static double[] loadExample(Path path, int numOfOutputs, int numOfPoints) {
-
-        List<String> lines = null;
+    public static GestureExample loadExample(Path path, GestureVocabulary vocabulary) {
         try {
-            lines = Files.readAllLines(path);
+            ParsedExample parsed = parse(path, vocabulary);
+            return new GestureExample(parsed.xs, parsed.ys, vocabulary.register(parsed.name),
+                    parsed.strokeStarts);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
-
-        List<DecimalPoint> points = new ArrayList<>();
-        int numOfInputs = lines.size() - numOfOutputs;
-        for (int i = 0; i < numOfInputs; i += 2) {
-            points.add(new DecimalPoint(Double.parseDouble(lines.get(i)),
-                    Double.parseDouble(lines.get(i + 1))));
-        }
-
-        List<DecimalPoint> representativePoints = extractRepresentativePoints(points, numOfPoints);
-
-        double[] example = new double[numOfPoints * 2 + numOfOutputs];
-        for (int i = 0; i < numOfPoints; i++) {
-            example[2 * i] = representativePoints.get(i).getX();
-            example[2 * i + 1] = representativePoints.get(i).getY();
-        }
-        for (int j = 0; j < numOfOutputs; j++) {
-            example[example.length - numOfOutputs + j] = Double
-                    .parseDouble(lines.get(numOfInputs + j));
-        }
-
-        return example;
     }
 
     /**
-     * Loads all the examples from the given directory and creates the
-     * filed containing the given number of representative points from
-     * each gesture and the expected output vector.
+     * Loads all the examples from the given directory keeping all the
+     * points of every gesture.
+     * 
+     * If the directory contains a {@value GestureVocabulary#FILE_NAME}
+     * file, its gestures are registered first. Gestures which are not
+     * in the vocabulary yet are registered in the alphabetical order of
+     * their names, so the labels do not depend on the order the files
+     * are visited in.
      * 
      * @param path Path of the Directory containing examples
-     * @param numOfOutputs Number of outputs in the file
-     * @param numOfPoints Number of desired points
-     * @return Array of inputs and expected outputs
+     * @param vocabulary Vocabulary of the gestures
+     * @return List of examples or null if they could not be loaded
      */
-    public static double[][] loadDataSet(Path path, int numOfOutputs, int numOfPoints) {
-        List<double[]> dataSet = new ArrayList<>();
+    public static List<GestureExample> loadExamples(Path path, GestureVocabulary vocabulary) {
+        List<ParsedExample> parsedExamples = new ArrayList<>();
 
         try {
+            Path vocabularyFile = path.resolve(GestureVocabulary.FILE_NAME);
+            if (Files.isRegularFile(vocabularyFile)) {
+                for (String name : GestureVocabulary.load(vocabularyFile).getNames()) {
+                    vocabulary.register(name);
+                }
+            }
+
             Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
 
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
                         throws IOException {
-                    dataSet.add(loadExample(file, numOfOutputs, numOfPoints));
+                    if (!file.equals(vocabularyFile)) {
+                        parsedExamples.add(parse(file, vocabulary));
+                    }
                     return FileVisitResult.CONTINUE;
                 }
 
@@ -101,12 +108,157 @@ public class GestureLoader {
             return null;
         }
 
-        double[][] loadedDataSet = new double[dataSet.size()][];
-        for (int i = 0; i < loadedDataSet.length; i++) {
-            loadedDataSet[i] = dataSet.get(i);
+        Set<String> newNames = new TreeSet<>();
+        for (ParsedExample parsed : parsedExamples) {
+            if (vocabulary.labelOf(parsed.name) < 0) {
+                newNames.add(parsed.name);
+            }
+        }
+        for (String name : newNames) {
+            vocabulary.register(name);
+        }
+
+        List<GestureExample> examples = new ArrayList<>(parsedExamples.size());
+        for (ParsedExample parsed : parsedExamples) {
+            examples.add(new GestureExample(parsed.xs, parsed.ys,
+                    vocabulary.labelOf(parsed.name), parsed.strokeStarts));
+        }
+        return examples;
+    }
+
+    /**
+     * Registers the gestures of all the examples in the given directory
+     * in the given vocabulary, in the same way as
+     * {@link #loadExamples(Path, GestureVocabulary)} does.
+     * 
+     * @param path Path of the Directory containing examples
+     * @param vocabulary Vocabulary of the gestures
+     * @return True if the examples were loaded
+     */
+    public static boolean loadVocabulary(Path path, GestureVocabulary vocabulary) {
+        return loadExamples(path, vocabulary) != null;
+    }
+
+    /**
+     * Reads the points and the name of the gesture from an example
+     * file.
+     * 
+     * @param path Path of the example file
+     * @param vocabulary Vocabulary the expected outputs of the files of
+     *        the original dataset are decoded with
+     * @return Parsed example
+     * @throws IOException If reading fails or the file is not valid
+     */
+    private static ParsedExample parse(Path path, GestureVocabulary vocabulary)
+            throws IOException {
+        List<String> lines = Files.readAllLines(path);
+
+        String name;
+        int numOfInputs;
+        String lastLine = lines.isEmpty() ? "" : lines.get(lines.size() - 1);
+        if (lastLine.startsWith(ExampleFiles.LABEL_PREFIX)) {
+            numOfInputs = lines.size() - 1;
+            name = lines.get(numOfInputs).substring(ExampleFiles.LABEL_PREFIX.length());
+            if (!GestureVocabulary.isValidName(name)) {
+                throw new IOException(path + " has an invalid gesture name: '" + name + "'.");
+            }
+        } else {
+            // coordinates are never written as a plain 0 or 1
+            numOfInputs = lines.size();
+            int label = -1;
+            while (numOfInputs > 0 && (lines.get(numOfInputs - 1).equals("0")
+                    || lines.get(numOfInputs - 1).equals("1"))) {
+                numOfInputs--;
+                if (lines.get(numOfInputs).equals("1")) {
+                    label = numOfInputs;
+                }
+            }
+            if (label < 0) {
+                throw new IOException(path + " does not contain the label of the gesture.");
+            }
+            label -= numOfInputs;
+            if (label >= vocabulary.size()) {
+                throw new IOException(path + " has label " + label
+                        + " which is not in the vocabulary.");
+            }
+            name = vocabulary.nameOf(label);
+        }
+
+        int numOfCoordinates = 0;
+        int numOfSeparators = 0;
+        for (int i = 0; i < numOfInputs; i++) {
+            if (lines.get(i).equals(ExampleFiles.STROKE_SEPARATOR)) {
+                if (numOfCoordinates % 2 != 0) {
+                    throw new IOException(path + " contains an odd number of coordinates.");
+                }
+                numOfSeparators++;
+            } else {
+                numOfCoordinates++;
+            }
+        }
+        if (numOfCoordinates % 2 != 0) {
+            throw new IOException(path + " contains an odd number of coordinates.");
+        }
+
+        double[] xs = new double[numOfCoordinates / 2];
+        double[] ys = new double[numOfCoordinates / 2];
+        int[] strokeStarts = new int[numOfSeparators];
+        int numOfPoints = 0;
+        int numOfStrokeStarts = 0;
+        try {
+            for (int i = 0; i < numOfInputs; i++) {
+                if (lines.get(i).equals(ExampleFiles.STROKE_SEPARATOR)) {
+                    // separators before the first point, after the last one
+                    // or after another separator do not start a stroke
+                    if (numOfPoints > 0 && (numOfStrokeStarts == 0
+                            || strokeStarts[numOfStrokeStarts - 1] < numOfPoints)) {
+                        strokeStarts[numOfStrokeStarts++] = numOfPoints;
+                    }
+                    continue;
+                }
+                xs[numOfPoints] = Double.parseDouble(lines.get(i));
+                ys[numOfPoints] = Double.parseDouble(lines.get(++i));
+                numOfPoints++;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(path + " contains an invalid coordinate.", e);
+        }
+        if (numOfStrokeStarts > 0 && strokeStarts[numOfStrokeStarts - 1] == numOfPoints) {
+            numOfStrokeStarts--;
         }
 
-        return loadedDataSet;
+        return new ParsedExample(xs, ys, name, numOfStrokeStarts == 0 ? SINGLE_STROKE
+                : Arrays.copyOf(strokeStarts, numOfStrokeStarts));
+    }
+
+    /**
+     * Points and name of the gesture read from an example file.
+     */
+    private static final class ParsedExample {
+        /** X coordinates of the points. */
+        private final double[] xs;
+        /** Y coordinates of the points. */
+        private final double[] ys;
+        /** Name of the gesture. */
+        private final String name;
+        /** Index of the first point of every stroke but the first one. */
+        private final int[] strokeStarts;
+
+        /**
+         * Creates a new parsed example.
+         * 
+         * @param xs X coordinates of the points
+         * @param ys Y coordinates of the points
+         * @param name Name of the gesture
+         * @param strokeStarts Index of the first point of every stroke
+         *        but the first one
+         */
+        private ParsedExample(double[] xs, double[] ys, String name, int[] strokeStarts) {
+            this.xs = xs;
+            this.ys = ys;
+            this.name = name;
+            this.strokeStarts = strokeStarts;
+        }
     }
 
     /**
@@ -122,38 +274,143 @@ public class GestureLoader {
     public static List<DecimalPoint> extractRepresentativePoints(
             List<DecimalPoint> normalisedPoints, int numOfPoints) {
 
-        double gestureLength = 0;
-        DecimalPoint currentPoint = normalisedPoints.get(0);
-        DecimalPoint previousPoint;
-        List<Double> distances = new ArrayList<>();
-        distances.add(0.0);
-
-        for (int i = 1; i < normalisedPoints.size(); i++) {
-            previousPoint = currentPoint;
-            currentPoint = normalisedPoints.get(i);
+        int length = normalisedPoints.size();
+        double[] xs = new double[length];
+        double[] ys = new double[length];
+        for (int i = 0; i < length; i++) {
+            xs[i] = normalisedPoints.get(i).getX();
+            ys[i] = normalisedPoints.get(i).getY();
+        }
 
-            double distance = currentPoint.distanceFrom(previousPoint);
+        double[] coordinates = new double[numOfPoints * 2];
+        extractRepresentativePoints(xs, ys, length, numOfPoints, coordinates);
 
-            gestureLength += distance;
-            distances.add(gestureLength);
+        List<DecimalPoint> representative = new ArrayList<DecimalPoint>(numOfPoints);
+        for (int i = 0; i < numOfPoints; i++) {
+            representative.add(new DecimalPoint(coordinates[2 * i], coordinates[2 * i + 1]));
         }
 
-        List<DecimalPoint> representative = new ArrayList<DecimalPoint>();
+        return representative;
+    }
 
-        for (int i = 0; i < numOfPoints; i++) {
-            double targetedDistance = i * gestureLength / (numOfPoints - 1);
+    /**
+     * Extracts the given number of representative points from the
+     * given normalised points and stores their coordinates in the given
+     * array as x0, y0, x1, y1, ... For every point equally distanced
+     * along the gesture the nearest of the given points is chosen (the
+     * first one if more points are equally near).
+     * 
+     * The points are visited only once, so the extraction takes linear
+     * time in the number of given points.
+     * 
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param length Number of points
+     * @param numOfPoints Number of points to be extracted
+     * @param coordinates Array in which the coordinates of the
+     *        representative points are stored
+     */
+    public static void extractRepresentativePoints(double[] xs, double[] ys, int length,
+            int numOfPoints, double[] coordinates) {
+        extractRepresentativePoints(xs, ys, length, SINGLE_STROKE, numOfPoints, coordinates);
+    }
 
-            Optional<Double> optionalNearestDistance = distances.parallelStream()
-                    .min((d1, d2) -> Double.compare(Math.abs(targetedDistance - d1),
-                            Math.abs(targetedDistance - d2)));
-            Double nearestDistance = optionalNearestDistance.get();
+    /**
+     * Extracts the given number of representative points from the
+     * given normalised points of a gesture of several strokes and
+     * stores their coordinates in the given array as x0, y0, x1, y1, ...
+     * The points are equally distanced along the drawn strokes only:
+     * the gap between the end of a stroke and the start of the next one
+     * has no length, so no point is spent on it.
+     * 
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param length Number of points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @param numOfPoints Number of points to be extracted
+     * @param coordinates Array in which the coordinates of the
+     *        representative points are stored
+     */
+    public static void extractRepresentativePoints(double[] xs, double[] ys, int length,
+            int[] strokeStarts, int numOfPoints, double[] coordinates) {
+        extractRepresentativePoints(xs, ys, length, strokeStarts, numOfPoints, coordinates,
+                null);
+    }
 
-            DecimalPoint nextPoint = normalisedPoints.get(distances.indexOf(nearestDistance));
+    /**
+     * Extracts the representative points in the same way as
+     * {@link #extractRepresentativePoints(double[], double[], int, int[], int, double[])}
+     * and stores the index of the stroke every representative point was
+     * chosen from in the given array, so the gaps between the strokes
+     * can be told apart from the drawn segments.
+     * 
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param length Number of points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @param numOfPoints Number of points to be extracted
+     * @param coordinates Array in which the coordinates of the
+     *        representative points are stored
+     * @param strokes Array in which the index of the stroke of every
+     *        representative point is stored, or null
+     */
+    public static void extractRepresentativePoints(double[] xs, double[] ys, int length,
+            int[] strokeStarts, int numOfPoints, double[] coordinates, int[] strokes) {
 
-            representative.add(nextPoint);
+        // distance of every point from the start along the gesture
+        double[] distances = new double[length];
+        double gestureLength = 0;
+        int stroke = 0;
+        for (int i = 1; i < length; i++) {
+            if (stroke < strokeStarts.length && strokeStarts[stroke] == i) {
+                distances[i] = gestureLength;
+                stroke++;
+                continue;
+            }
+            double dx = xs[i] - xs[i - 1];
+            double dy = ys[i] - ys[i - 1];
+            gestureLength += Math.sqrt(dx * dx + dy * dy);
+            distances[i] = gestureLength;
         }
 
-        return representative;
+        int nearest = 0;
+        stroke = 0;
+        for (int i = 0; i < numOfPoints; i++) {
+            double targetedDistance = i * gestureLength / (numOfPoints - 1);
+
+            // distances never decrease, so the nearest point for the
+            // next target is never before the nearest for this one
+            while (true) {
+                int next = nearest + 1;
+                while (next < length && distances[next] == distances[nearest]) {
+                    next++;
+                }
+                // equally distanced points are either the same point or
+                // the ends of a gap between strokes, and a target after
+                // the gap belongs to the stroke starting at the last one
+                if (targetedDistance > distances[nearest]) {
+                    nearest = next - 1;
+                }
+                if (next < length && Math.abs(targetedDistance - distances[next]) < Math
+                        .abs(targetedDistance - distances[nearest])) {
+                    nearest = next;
+                } else {
+                    break;
+                }
+            }
+
+            coordinates[2 * i] = xs[nearest];
+            coordinates[2 * i + 1] = ys[nearest];
+            if (strokes != null) {
+                // the chosen points never go back, so neither do their strokes
+                while (stroke < strokeStarts.length && strokeStarts[stroke] <= nearest) {
+                    stroke++;
+                }
+                strokes[i] = stroke;
+            }
+        }
     }
 
 }
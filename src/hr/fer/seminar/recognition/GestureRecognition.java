@@ -3,28 +3,36 @@ package hr.fer.seminar.recognition;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Container;
+import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.HeadlessException;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JSlider;
+import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.WindowConstants;
@@ -33,11 +41,13 @@ import javax.swing.event.ChangeListener;
 import javax.swing.event.MouseInputAdapter;
 
 import hr.fer.seminar.dataCollecting.Canvas;
-import hr.fer.seminar.dataCollecting.DecimalPoint;
-import hr.fer.seminar.dataCollecting.DrawingFrame;
-import hr.fer.seminar.dataCollecting.Gesture;
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+import hr.fer.seminar.neuralNetwork.Checkpoint;
+import hr.fer.seminar.neuralNetwork.EpochStatistics;
 import hr.fer.seminar.neuralNetwork.NeuralNetwork;
 import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
 
 /**
  * The program is used for setting parameters and creating an instance
@@ -53,42 +63,98 @@ public class GestureRecognition extends JFrame {
     private static final long serialVersionUID = -3191349331728259839L;
 
     /**
-     * Recognition precision of the Neural Network (percentage of
-     * accuracy needed for recognition to be successful).
+     * Directory with learning examples.
      */
-    private static final double PRECISION = 0.97;
+    private static final Path LEARNING_DIRECTORY = Paths.get("./learningExamples");
+
+    /**
+     * Directory with validation examples.
+     */
+    private static final Path VALIDATION_DIRECTORY = Paths.get("./validationExamples");
+
+    /**
+     * File the checkpoints of the training are saved to.
+     */
+    private static final Path CHECKPOINT_FILE = Paths.get("./checkpoints/network.checkpoint");
+
+    /**
+     * Number of epochs between two checkpoints of the training.
+     */
+    private static final int CHECKPOINT_INTERVAL = 500;
+
+    /**
+     * Greatest number of trainings waiting for the current one to
+     * finish.
+     */
+    private static final int TRAINING_QUEUE_CAPACITY = 2;
+
+    /**
+     * Greatest number of cached recognition results.
+     */
+    private static final int CACHE_CAPACITY = 1024;
+
+    /**
+     * Step the representative points are rounded to when looking up the
+     * cached recognition results.
+     */
+    private static final double CACHE_STEP = 1e-3;
 
     /**
      * Number of learning examples provided.
      */
     private static final int LEARNING_SET_SIZE = 40;
+    /**
+     * Seed of the initial weights of a created network, so networks of
+     * the same size start from the same weights.
+     */
+    private static final long SEED = 0;
 
     /**
      * List of points a gesture contains.
      */
-    private List<Point> points = new ArrayList<>();
+    private final StrokeBuffer points = new StrokeBuffer();
 
     /**
-     * Current instance of the neural network.
+     * Current instance of the neural network. It is never trained in
+     * place: training works on a copy which is published to
+     * {@link #liveModel} and becomes the current instance once it is
+     * trained.
      */
     private NeuralNetwork network;
+    /** Trained network used for recognition. */
+    private final LiveModel liveModel = new LiveModel(Evaluation.PRECISION,
+            RecognitionMetrics.getDefault(), new RecognitionCache(CACHE_CAPACITY, CACHE_STEP));
     /** Number of input neurons. */
     private int numOfInputs;
     /** Number of hidden layer neurons. */
     private int numOfHiddenN;
     /** Number of output neurons. */
-    private int numOfOutputs = Gesture.vectorLength;
+    private int numOfOutputs;
+    /**
+     * Gestures which can be recognised, filled from the learning
+     * examples when a new network is created.
+     */
+    private final GestureVocabulary vocabulary = GestureVocabulary.createDefault();
     /** Number of epochs used in training. */
     private int numOfEpochs;
     /** Learning rate. */
     private int learningRate;
 
-    /** Inputs of the neural network. */
-    double[][] inputs;
     /**
-     * expected outputs of the neural network for the given inputs.
+     * Service training the networks in the background, notifying the
+     * GUI on the event dispatch thread.
+     */
+    private final TrainingService trainingService = new TrainingService(
+            LEARNING_DIRECTORY, VALIDATION_DIRECTORY, vocabulary,
+            liveModel, CHECKPOINT_FILE, CHECKPOINT_INTERVAL, TRAINING_QUEUE_CAPACITY,
+            SwingUtilities::invokeLater);
+    /** Whether a small network should answer before the network. */
+    private boolean cascadeMode;
+    /**
+     * Cascade of a small network and the published network, created
+     * when the network is trained in the cascade mode.
      */
-    double[][] expectedOutputs;
+    private CascadeRecognizer cascade;
 
     /**
      * Creates a new instance of GestureRecognition frame.
@@ -134,6 +200,55 @@ public class GestureRecognition extends JFrame {
         recognize.setEnabled(false);
         canvasMenu.add(recognize);
 
+        JCheckBox recordLatency = new JCheckBox("Record latency",
+                RecognitionMetrics.getDefault().isEnabled());
+        canvasMenu.add(recordLatency);
+
+        JButton showLatency = new JButton("Latency");
+        canvasMenu.add(showLatency);
+
+        JCheckBox cascadeModeC = new JCheckBox("Cascade");
+        cascadeModeC.setToolTipText("Train a small network which answers first and passes "
+                + "uncertain gestures to the network");
+        canvasMenu.add(cascadeModeC);
+
+        cascadeModeC.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cascadeMode = cascadeModeC.isSelected();
+            }
+        });
+
+        recordLatency.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                RecognitionMetrics.getDefault().setEnabled(recordLatency.isSelected());
+                CascadeRecognizer currentCascade = cascade;
+                if (currentCascade != null) {
+                    currentCascade.getMetrics().setEnabled(recordLatency.isSelected());
+                }
+            }
+        });
+
+        showLatency.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                List<String> lines = new ArrayList<>(RecognitionMetrics.getDefault().toTable());
+                CascadeRecognizer currentCascade = cascade;
+                if (currentCascade != null) {
+                    lines.add("");
+                    lines.addAll(currentCascade.toTable());
+                    lines.add("");
+                    lines.addAll(currentCascade.getMetrics().toTable());
+                }
+                JTextArea table = new JTextArea(String.join("\n", lines));
+                table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                table.setEditable(false);
+                JOptionPane.showMessageDialog(GestureRecognition.this, table,
+                        "Recognition latency", JOptionPane.PLAIN_MESSAGE);
+            }
+        });
+
         JPanel output = new JPanel();
         output.setBackground(Color.LIGHT_GRAY);
         gestureRecognition.add(output, BorderLayout.PAGE_END);
@@ -144,6 +259,7 @@ public class GestureRecognition extends JFrame {
         canvas.addMouseListener(new MouseInputAdapter() {
             @Override
             public void mouseReleased(MouseEvent e) {
+                canvas.endStroke();
                 recognize.setEnabled(true);
             }
         });
@@ -152,8 +268,7 @@ public class GestureRecognition extends JFrame {
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                points.add(new Point(e.getX(), e.getY()));
-                canvas.repaint();
+                canvas.addPoint(new Point(e.getX(), e.getY()));
             }
 
         });
@@ -161,8 +276,7 @@ public class GestureRecognition extends JFrame {
         newGesture.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                points.clear();
-                canvas.repaint();
+                canvas.clear();
                 recognize.setEnabled(false);
                 gestureName.setText("No gesture was given.");
             }
@@ -172,11 +286,11 @@ public class GestureRecognition extends JFrame {
 
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (points == null) {
+                if (points.size() == 0) {
                     gestureName.setText("No gesture was drawn!");
                     return;
-                } else if (network == null) {
-                    gestureName.setText("No neural network was created.");
+                } else if (liveModel.getCurrent() == null) {
+                    gestureName.setText("No neural network was trained.");
                     return;
                 }
                 String recognizedGesture = recognizeGesture();
@@ -244,10 +358,12 @@ public class GestureRecognition extends JFrame {
             public void actionPerformed(ActionEvent e) {
                 numOfInputs = numOfPoints.getValue() * 2;
                 numOfHiddenN = numOfHiddenNeurons.getValue();
-                network = new NeuralNetwork(numOfInputs, numOfHiddenN, numOfOutputs);
+                GestureLoader.loadVocabulary(LEARNING_DIRECTORY, vocabulary);
+                numOfOutputs = vocabulary.size();
+                network = new NeuralNetwork(numOfInputs, numOfHiddenN, numOfOutputs,
+                        WeightInitializer.XAVIER, SEED);
 
-                points.clear();
-                canvas.repaint();
+                canvas.clear();
                 recognize.setEnabled(false);
                 gestureName.setText("No gesture was given.");
             }
@@ -306,9 +422,26 @@ public class GestureRecognition extends JFrame {
         JButton trainNetwork = new JButton("Train network");
         menu.add(trainNetwork);
 
+        JPanel trainingControls = new JPanel(new GridLayout(1, 0));
+        menu.add(trainingControls);
+
+        JButton stopTraining = new JButton("Stop");
+        stopTraining.setEnabled(false);
+        trainingControls.add(stopTraining);
+
+        JButton resumeTraining = new JButton("Resume");
+        trainingControls.add(resumeTraining);
+
+        JButton fineTune = new JButton("Fine-tune");
+        trainingControls.add(fineTune);
+
         JLabel training = new JLabel();
         menu.add(training);
 
+        JProgressBar trainingProgress = new JProgressBar();
+        trainingProgress.setStringPainted(true);
+        menu.add(trainingProgress);
+
         trainNetwork.addActionListener(new ActionListener() {
 
             @Override
@@ -320,27 +453,170 @@ public class GestureRecognition extends JFrame {
 
                 learningRate = learningRateS.getValue();
                 numOfEpochs = numOfEpochsS.getValue();
-                SwingWorker trainNeuralNet = new SwingWorker() {
-
-                    @Override
-                    protected Object doInBackground() throws Exception {
-                        training.setText("Training...");
-                        loadExamples();
-                        NeuralNetworkTrainer.train(network, inputs, expectedOutputs, numOfEpochs,
-                                learningRate);
-                        return null;
-                    }
-
-                    @Override
-                    protected void done() {
-                        training.setText("Network successfully trained!");
-                    }
-                };
-
-                trainNeuralNet.execute();
+                startTraining(observer -> trainingService.train(network, numOfEpochs,
+                        learningRate, cascadeMode, observer), true, training, trainingProgress,
+                        stopTraining);
+            }
+
+        });
+
+        stopTraining.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                trainingService.stopAll();
             }
 
         });
+
+        resumeTraining.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (trainingService.isBusy()) {
+                    training.setText("Network is already being trained.");
+                    return;
+                }
+
+                Checkpoint checkpoint;
+                try {
+                    checkpoint = Checkpoint.load(CHECKPOINT_FILE);
+                } catch (IOException ex) {
+                    training.setText("No checkpoint to resume from.");
+                    return;
+                }
+
+                numOfEpochs = checkpoint.getNumOfEpochs();
+                learningRate = checkpoint.getLearningRate();
+                startTraining(observer -> trainingService.resume(checkpoint, cascadeMode,
+                        observer), true, training, trainingProgress, stopTraining);
+            }
+
+        });
+
+        fineTune.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (liveModel.getCurrent() == null) {
+                    training.setText("No network was trained!");
+                    return;
+                }
+                if (trainingService.isBusy()) {
+                    training.setText("Network is already being trained.");
+                    return;
+                }
+
+                JFileChooser chooser = new JFileChooser(Paths.get(".").toFile());
+                chooser.setDialogTitle("Directory with new examples");
+                chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                if (chooser.showOpenDialog(GestureRecognition.this)
+                        != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+
+                Path directory = chooser.getSelectedFile().toPath();
+                GestureLoader.loadVocabulary(directory, vocabulary);
+                startTraining(observer -> trainingService.fineTune(directory,
+                        NeuralNetworkTrainer.FINE_TUNE_EPOCHS, NeuralNetworkTrainer.FINE_TUNE_RATE,
+                        observer), false, training, trainingProgress, stopTraining);
+            }
+
+        });
+    }
+
+    /**
+     * Submits a training to the training service with the given
+     * submission, which is a training of a copy of the current network,
+     * resuming of the training saved in the checkpoint or fine-tuning of
+     * the published network. The progress of the training is shown in
+     * the given components. Once the training finishes, the trained
+     * network is published and becomes the current network, while
+     * gestures are recognised with the previous network during the whole
+     * training.
+     * 
+     * @param submission Function which submits the training with the
+     *        given observer to the training service
+     * @param checkpointed Whether the training is checkpointed, so it
+     *        can be resumed once it is stopped
+     * @param training Label showing the state of the training
+     * @param trainingProgress Progress bar of the training
+     * @param stopTraining Button for stopping the training
+     */
+    private void startTraining(Function<TrainingService.Observer, Future<?>> submission,
+            boolean checkpointed, JLabel training, JProgressBar trainingProgress,
+            JButton stopTraining) {
+        TrainingService.Observer observer = new TrainingService.Observer() {
+
+            @Override
+            public void progress(EpochStatistics statistics) {
+                trainingProgress
+                        .setValue(100 * statistics.getEpoch() / statistics.getNumOfEpochs());
+                trainingProgress.setString(
+                        "Epoch " + statistics.getEpoch() + "/" + statistics.getNumOfEpochs());
+                training.setText(String.format("Loss %.4f, accuracy %.0f%%, %.0f ex/s",
+                        statistics.getLoss(), statistics.getAccuracy() * 100,
+                        statistics.getExamplesPerSecond()));
+            }
+
+            @Override
+            public void finished(TrainingService.TrainingResult result) {
+                stopTraining.setEnabled(trainingService.isBusy());
+                ModelVersion version = result.getVersion();
+                network = version.getNetwork();
+                numOfInputs = network.getInputLayerSize();
+                numOfHiddenN = network.getHiddenLayerSize();
+                numOfOutputs = network.getOutputLayerSize();
+                cascade = result.getCascade();
+                training.setText(String.format(
+                        "Network successfully trained! Version %d, validation accuracy %.0f%%",
+                        version.getVersion(), version.getValidationAccuracy() * 100));
+            }
+
+            @Override
+            public void rejected(TrainingService.TrainingResult result, ModelVersion current) {
+                stopTraining.setEnabled(trainingService.isBusy());
+                String message = String.format(
+                        "Validation accuracy %.0f%% is below %.0f%% of version %d.",
+                        result.getValidationAccuracy() * 100,
+                        current.getValidationAccuracy() * 100, current.getVersion());
+                training.setText("Network not published: " + message);
+
+                int answer = JOptionPane.showConfirmDialog(GestureRecognition.this,
+                        message + " Publish the network anyway?", "Network not published",
+                        JOptionPane.YES_NO_OPTION);
+                if (answer == JOptionPane.YES_OPTION) {
+                    finished(trainingService.publish(result));
+                }
+            }
+
+            @Override
+            public void stopped() {
+                stopTraining.setEnabled(trainingService.isBusy());
+                training.setText(checkpointed
+                        ? "Training stopped, it can be resumed from the checkpoint."
+                        : "Training stopped.");
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+                stopTraining.setEnabled(trainingService.isBusy());
+                training.setText("Training failed: " + cause);
+            }
+        };
+
+        boolean queued = trainingService.isBusy();
+        try {
+            submission.apply(observer);
+        } catch (RejectedExecutionException e) {
+            training.setText("Too many trainings are waiting.");
+            return;
+        }
+
+        training.setText(queued ? "Training queued..." : "Training...");
+        trainingProgress.setValue(0);
+        trainingProgress.setString(null);
+        stopTraining.setEnabled(true);
     }
 
     /**
@@ -360,30 +636,6 @@ public class GestureRecognition extends JFrame {
 
     }
 
-    /**
-     * Loads the learning examples used for training the neural
-     * network from "./learningExamples" folder.
-     */
-    private void loadExamples() {
-
-        Path loadDirectory = Paths.get("./learningExamples");
-        double[][] examples = GestureLoader.loadDataSet(loadDirectory, numOfOutputs,
-                numOfInputs / 2);
-
-        inputs = new double[examples.length][];
-        expectedOutputs = new double[examples.length][];
-
-        for (int i = 0; i < examples.length; i++) {
-            double[] input = Arrays.copyOf(examples[i], numOfInputs);
-            double[] expectedOutput = Arrays.copyOfRange(examples[i], numOfInputs,
-                    numOfInputs + numOfOutputs);
-
-            inputs[i] = input;
-            expectedOutputs[i] = expectedOutput;
-        }
-
-    }
-
     /**
      * Attempts to recognise the drawn gesture.
      * 
@@ -391,32 +643,20 @@ public class GestureRecognition extends JFrame {
      *         gesture was recognised
      */
     private String recognizeGesture() {
-        int numOfPoints = numOfInputs / 2;
-        List<DecimalPoint> representativePoints = GestureLoader
-                .extractRepresentativePoints(DrawingFrame.normalisePoints(points), numOfPoints);
-        double[] gestureInput = new double[numOfInputs];
-        for (int i = 0; i < numOfPoints; i++) {
-            gestureInput[2 * i] = representativePoints.get(i).getX();
-            gestureInput[2 * i + 1] = representativePoints.get(i).getY();
-        }
-
-        network.setInputs(gestureInput);
-        double[] gestureOutput = network.calculateOutputs();
-
-        if (gestureOutput[0] > PRECISION) {
-            return Gesture.ALPHA.toString();
-        } else if (gestureOutput[1] > PRECISION) {
-            return Gesture.BETA.toString();
+        StrokeBuffer.Snapshot stroke = points.snapshot();
+
+        CascadeRecognizer currentCascade = cascade;
+        Recognition recognition;
+        if (cascadeMode && currentCascade != null) {
+            recognition = currentCascade.recognize(stroke);
+        } else {
+            recognition = liveModel.recognize(stroke);
         }
 
-        else if (gestureOutput[2] > PRECISION) {
-            return Gesture.GAMMA.toString();
-        }
-
-        else if (gestureOutput[3] > PRECISION) {
-            return Gesture.EPSILON.toString();
-        } else
+        if (!recognition.isRecognized()) {
             return "Unknown";
+        }
+        return vocabulary.nameOf(recognition.getGesture());
     }
 
 }
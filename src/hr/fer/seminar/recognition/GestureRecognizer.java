@@ -0,0 +1,573 @@
+package hr.fer.seminar.recognition;
+
+import java.util.Arrays;
+import java.util.List;
+
+import hr.fer.seminar.dataCollecting.DecimalPoint;
+import hr.fer.seminar.dataCollecting.Normalisation;
+import hr.fer.seminar.dataCollecting.Simplification;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.SparseNeuralNetwork;
+import hr.fer.seminar.recognition.RecognitionMetrics.Stage;
+
+/**
+ * Recognises drawn gestures using a trained {@link NeuralNetwork}. The
+ * points of the gesture are normalised, the representative points are
+ * extracted and packed into the input of the network and the gesture
+ * whose output is greater than the precision is recognised. If no
+ * output is great enough and a {@link TemplateRecognizer} is given as
+ * a fallback, the gesture of the nearest template is recognised
+ * instead. If a {@link RecognitionCache} is given, the results are
+ * cached and a gesture with the same representative points is not
+ * given to the network again. If {@link GestureFeatures} are given,
+ * the network gets the features of the representative points instead
+ * of their coordinates. A pruned network can be run as a
+ * {@link SparseNeuralNetwork}, in which case the dense network is not
+ * kept. These optional parts are set with a {@link Builder}.
+ * 
+ * The recognizer does not modify the network, so it can be used from
+ * multiple threads at the same time as long as the network is not
+ * being trained. The latency of every stage is recorded in the given
+ * {@link RecognitionMetrics}.
+ * 
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class GestureRecognizer {
+
+    /** Trained neural network or null if the sparse one is run. */
+    private final NeuralNetwork network;
+    /** Sparse copy of the pruned network or null if the dense one is run. */
+    private final SparseNeuralNetwork sparseNetwork;
+    /** Number of representative points. */
+    private final int numOfPoints;
+    /** Output needed for recognition to be successful. */
+    private final double precision;
+    /** Metrics the latencies are recorded in. */
+    private final RecognitionMetrics metrics;
+    /** Recognizer used when the network is not certain or null. */
+    private final TemplateRecognizer fallback;
+    /** Cache of the results or null. */
+    private final RecognitionCache cache;
+    /** Tolerance of the simplification of snapshots or 0. */
+    private final double simplification;
+    /** Extractor of the inputs of the network or null for coordinates. */
+    private final GestureFeatures features;
+
+    /**
+     * Creates a new recognizer which records latencies in the default
+     * metrics.
+     * 
+     * @param network Trained neural network
+     * @param precision Output needed for recognition to be successful
+     */
+    public GestureRecognizer(NeuralNetwork network, double precision) {
+        this(new Builder(network, precision));
+    }
+
+    /**
+     * Creates a new recognizer.
+     * 
+     * @param network Trained neural network
+     * @param precision Output needed for recognition to be successful
+     * @param metrics Metrics the latencies are recorded in
+     */
+    public GestureRecognizer(NeuralNetwork network, double precision,
+            RecognitionMetrics metrics) {
+        this(new Builder(network, precision).metrics(metrics));
+    }
+
+    /**
+     * Creates a new recognizer with the settings of the given builder.
+     * 
+     * @param builder Settings of the recognizer
+     * @throws IllegalArgumentException If the fallback uses a different
+     *         number of points than the network, the tolerance is
+     *         negative or the network does not have an input for every
+     *         feature
+     */
+    private GestureRecognizer(Builder builder) {
+        if (!(builder.simplification >= 0)) {
+            throw new IllegalArgumentException("Tolerance must not be negative.");
+        }
+        if (builder.features != null
+                && builder.features.size() != builder.network.getInputLayerSize()) {
+            throw new IllegalArgumentException(
+                    "Network does not have an input for every feature.");
+        }
+        SparseNeuralNetwork sparse = builder.sparse
+                ? new SparseNeuralNetwork(builder.network) : null;
+        if (sparse != null
+                && sparse.getMemorySize() < SparseNeuralNetwork.getMemorySize(builder.network)) {
+            this.network = null;
+            this.sparseNetwork = sparse;
+        } else {
+            this.network = builder.network;
+            this.sparseNetwork = null;
+        }
+        this.numOfPoints = builder.features != null ? builder.features.getNumOfPoints()
+                : builder.network.getInputLayerSize() / 2;
+        this.precision = builder.precision;
+        this.metrics = builder.metrics;
+        this.fallback = builder.fallback;
+        this.cache = builder.cache;
+        this.simplification = builder.simplification;
+        this.features = builder.features;
+
+        if (fallback != null && fallback.getNumOfPoints() != numOfPoints) {
+            throw new IllegalArgumentException(
+                    "Fallback uses a different number of points than the network.");
+        }
+    }
+
+    /**
+     * Recognises the gesture containing the given points.
+     * 
+     * @param points Points of the gesture as they were drawn
+     * @return Result of the recognition
+     */
+    public Recognition recognize(List<DecimalPoint> points) {
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+
+        List<DecimalPoint> normalisedPoints = Normalisation.normalisePoints(points);
+        if (timed) {
+            lap(Stage.NORMALISE, start);
+        }
+
+        return recognizeNormalised(normalisedPoints, timed, start);
+    }
+
+    /**
+     * Recognises the gesture containing the points of the given
+     * snapshot. The points are read directly from the snapshot and
+     * processed as primitive arrays, without creating a point object
+     * for each of them. The strokes of the snapshot are simplified
+     * separately and the gaps between them are skipped when the
+     * representative points are extracted.
+     * 
+     * @param stroke Snapshot of the points as they were drawn
+     * @return Result of the recognition
+     * @throws IllegalArgumentException If the snapshot contains no
+     *         points
+     */
+    public Recognition recognize(StrokeBuffer.Snapshot stroke) {
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+
+        int length = stroke.size();
+        double[] xs = new double[length];
+        double[] ys = new double[length];
+        int[] strokeStarts = stroke.getStrokeStarts();
+        stroke.copyTo(xs, ys);
+        Normalisation.normalisePoints(xs, ys, length);
+        long time = timed ? lap(Stage.NORMALISE, start) : 0;
+
+        return recognizeNormalised(xs, ys, length, strokeStarts, timed, start, time);
+    }
+
+    /**
+     * Recognises the gesture with the given normalised points of the
+     * strokes of a snapshot (see {@link #recognize(StrokeBuffer.Snapshot)}).
+     * The given arrays are not changed, so the same points can be given
+     * to several recognizers, as the stages of a
+     * {@link CascadeRecognizer} are.
+     * 
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param length Number of points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @return Result of the recognition
+     */
+    Recognition recognizeNormalised(double[] xs, double[] ys, int length, int[] strokeStarts) {
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+        if (simplification > 0) {
+            // the simplification moves the remaining points in place
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            strokeStarts = strokeStarts.clone();
+        }
+        return recognizeNormalised(xs, ys, length, strokeStarts, timed, start, start);
+    }
+
+    /**
+     * Recognises the gesture with the given normalised points of the
+     * strokes of a snapshot, simplifying them in place first if the
+     * recognizer simplifies strokes.
+     * 
+     * @param xs X coordinates of the normalised points
+     * @param ys Y coordinates of the normalised points
+     * @param length Number of points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one, empty for a single stroke
+     * @param timed Whether latencies are recorded
+     * @param start Time the recognition started
+     * @param time Time the previous stage ended
+     * @return Result of the recognition
+     */
+    private Recognition recognizeNormalised(double[] xs, double[] ys, int length,
+            int[] strokeStarts, boolean timed, long start, long time) {
+        if (simplification > 0) {
+            length = Simplification.simplify(xs, ys, length, strokeStarts, simplification);
+            if (timed) {
+                time = lap(Stage.SIMPLIFY, time);
+            }
+        }
+
+        double[] input = new double[numOfPoints * 2];
+        // only the features need to know where the pen was lifted
+        int[] strokes = features != null ? new int[numOfPoints] : null;
+        GestureLoader.extractRepresentativePoints(xs, ys, length, strokeStarts, numOfPoints,
+                input, strokes);
+        if (timed) {
+            time = lap(Stage.RESAMPLE, time);
+        }
+
+        return recognizeInput(input, strokes, timed, start, time);
+    }
+
+    /**
+     * Recognises the gesture containing the given points which have
+     * already been normalised (for example the points loaded from an
+     * example file).
+     * 
+     * @param normalisedPoints Normalised points of the gesture
+     * @return Result of the recognition
+     */
+    public Recognition recognizeNormalised(List<DecimalPoint> normalisedPoints) {
+        boolean timed = metrics.isEnabled();
+        return recognizeNormalised(normalisedPoints, timed, timed ? System.nanoTime() : 0);
+    }
+
+    /**
+     * Recognises the gesture containing the given normalised points.
+     * 
+     * @param normalisedPoints Normalised points of the gesture
+     * @param timed Whether latencies are recorded
+     * @param start Time the recognition started
+     * @return Result of the recognition
+     */
+    private Recognition recognizeNormalised(List<DecimalPoint> normalisedPoints, boolean timed,
+            long start) {
+        long time = timed ? System.nanoTime() : 0;
+
+        List<DecimalPoint> representativePoints = GestureLoader
+                .extractRepresentativePoints(normalisedPoints, numOfPoints);
+        if (timed) {
+            time = lap(Stage.RESAMPLE, time);
+        }
+
+        double[] input = new double[numOfPoints * 2];
+        for (int i = 0; i < numOfPoints; i++) {
+            input[2 * i] = representativePoints.get(i).getX();
+            input[2 * i + 1] = representativePoints.get(i).getY();
+        }
+        if (timed) {
+            time = lap(Stage.PACK, time);
+        }
+
+        return recognizeInput(input, null, timed, start, time);
+    }
+
+    /**
+     * Recognises the gesture with the given representative points.
+     * 
+     * @param input Coordinates of the representative points
+     * @param strokes Index of the stroke of every representative point
+     *        or null for a single stroke
+     * @param timed Whether latencies are recorded
+     * @param start Time the recognition started
+     * @param time Time the previous stage ended
+     * @return Result of the recognition
+     */
+    private Recognition recognizeInput(double[] input, int[] strokes, boolean timed,
+            long start, long time) {
+        Object model = network != null ? network : sparseNetwork;
+        RecognitionCache.Key key = null;
+        if (cache != null) {
+            key = cache.keyOf(input);
+            Recognition cached = cache.get(model, key);
+            if (timed) {
+                time = lap(Stage.CACHE, time);
+            }
+            if (cached != null) {
+                if (timed) {
+                    lap(Stage.TOTAL, start);
+                }
+                return cached;
+            }
+        }
+
+        double[] networkInput = input;
+        if (features != null) {
+            networkInput = features.extract(input, strokes, new double[features.size()]);
+            if (timed) {
+                time = lap(Stage.FEATURES, time);
+            }
+        }
+
+        double[] outputs;
+        if (network != null) {
+            outputs = new double[network.getOutputLayerSize()];
+            network.calculateOutputs(networkInput, new double[network.getHiddenLayerSize()],
+                    outputs);
+        } else {
+            outputs = new double[sparseNetwork.getOutputLayerSize()];
+            sparseNetwork.calculateOutputs(networkInput,
+                    new double[sparseNetwork.getHiddenLayerSize()], outputs);
+        }
+        if (timed) {
+            time = lap(Stage.NETWORK, time);
+        }
+
+        Recognition recognition = new Recognition(Evaluation.classify(outputs, precision),
+                outputs[Evaluation.indexOfMax(outputs)]);
+        if (!recognition.isRecognized() && fallback != null) {
+            recognition = fallback.recognize(input);
+            if (timed) {
+                lap(Stage.TEMPLATE, time);
+            }
+        }
+
+        if (cache != null) {
+            cache.put(model, key, recognition);
+        }
+        if (timed) {
+            lap(Stage.TOTAL, start);
+        }
+        return recognition;
+    }
+
+    /**
+     * Records the time since the given time as the latency of the given
+     * stage.
+     * 
+     * @param stage Stage of the recognition
+     * @param since Time the stage started
+     * @return Current time
+     */
+    private long lap(Stage stage, long since) {
+        long now = System.nanoTime();
+        metrics.record(stage, now - since);
+        return now;
+    }
+
+    /**
+     * Returns the neural network used for recognition. If the sparse
+     * network is run, a new dense copy of it is returned.
+     * 
+     * @return Neural network
+     */
+    public NeuralNetwork getNetwork() {
+        return network != null ? network : sparseNetwork.toDense();
+    }
+
+    /**
+     * Returns the sparse network run instead of the dense one.
+     * 
+     * @return Sparse network or null if the dense network is run
+     */
+    public SparseNeuralNetwork getSparseNetwork() {
+        return sparseNetwork;
+    }
+
+    /**
+     * Returns the approximate number of bytes taken by the weights of
+     * the network which is run.
+     * 
+     * @return Size of the weights in bytes
+     */
+    public long getMemorySize() {
+        return network != null ? SparseNeuralNetwork.getMemorySize(network)
+                : sparseNetwork.getMemorySize();
+    }
+
+    /**
+     * Returns the output needed for recognition to be successful.
+     * 
+     * @return Precision
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the recognizer used when the network is not certain
+     * enough.
+     * 
+     * @return Fallback recognizer or null if there is none
+     */
+    public TemplateRecognizer getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Returns the cache of the results.
+     * 
+     * @return Cache or null if the results are not cached
+     */
+    public RecognitionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the tolerance of the simplification of snapshots.
+     * 
+     * @return Tolerance or 0 if snapshots are not simplified
+     */
+    public double getSimplification() {
+        return simplification;
+    }
+
+    /**
+     * Returns the extractor of the inputs of the network.
+     * 
+     * @return Extractor or null if the network gets the coordinates of
+     *         the representative points
+     */
+    public GestureFeatures getFeatures() {
+        return features;
+    }
+
+    /**
+     * Returns the number of representative points of the gesture.
+     * 
+     * @return Number of points
+     */
+    public int getNumOfPoints() {
+        return numOfPoints;
+    }
+
+    /**
+     * Builder of a recognizer whose optional parts are set one by one.
+     * A part which is not set is not used, and the latencies are
+     * recorded in the default metrics unless other metrics are set.
+     */
+    public static class Builder {
+        /** Trained neural network. */
+        private final NeuralNetwork network;
+        /** Output needed for recognition to be successful. */
+        private final double precision;
+        /** Metrics the latencies are recorded in. */
+        private RecognitionMetrics metrics = RecognitionMetrics.getDefault();
+        /** Recognizer used when the network is not certain or null. */
+        private TemplateRecognizer fallback;
+        /** Cache of the results or null. */
+        private RecognitionCache cache;
+        /** Tolerance of the simplification of snapshots or 0. */
+        private double simplification;
+        /** Extractor of the inputs of the network or null. */
+        private GestureFeatures features;
+        /** Whether a pruned network is run as a sparse one. */
+        private boolean sparse;
+
+        /**
+         * Creates a new builder of a recognizer with the given network.
+         * 
+         * @param network Trained neural network
+         * @param precision Output needed for recognition to be
+         *        successful
+         */
+        public Builder(NeuralNetwork network, double precision) {
+            this.network = network;
+            this.precision = precision;
+        }
+
+        /**
+         * Sets the metrics the latencies are recorded in.
+         * 
+         * @param metrics Metrics
+         * @return This builder
+         */
+        public Builder metrics(RecognitionMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets the recognizer used when no output of the network is
+         * greater than the precision.
+         * 
+         * @param fallback Fallback recognizer or null for no fallback
+         * @return This builder
+         */
+        public Builder fallback(TemplateRecognizer fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Sets the cache the results are cached in. The network must
+         * not be modified while the cache holds its results.
+         * 
+         * @param cache Cache or null for no caching
+         * @return This builder
+         */
+        public Builder cache(RecognitionCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the tolerance of the simplification of the normalised
+         * points of snapshots before the representative points are
+         * extracted (see {@link Simplification#simplify}), which reduces
+         * the work done on dense strokes drawn on a tablet.
+         * 
+         * @param simplification Tolerance relative to the normalised
+         *        range [-1, 1], or 0 for no simplification
+         * @return This builder
+         */
+        public Builder simplification(double simplification) {
+            this.simplification = simplification;
+            return this;
+        }
+
+        /**
+         * Sets the extractor of the features the network was trained on
+         * (see {@link DataSet#withFeatures(GestureFeatures)}). The cache
+         * and the fallback still get the coordinates of the
+         * representative points.
+         * 
+         * @param features Extractor or null if the network gets the
+         *        coordinates
+         * @return This builder
+         */
+        public Builder features(GestureFeatures features) {
+            this.features = features;
+            return this;
+        }
+
+        /**
+         * Sets whether the network is run as a
+         * {@link SparseNeuralNetwork} when its weights take less memory
+         * that way, which is the case for a pruned network. The dense
+         * network is then not kept, so later changes of it do not
+         * change the recognizer.
+         * 
+         * @param sparse Whether a pruned network is run as a sparse one
+         * @return This builder
+         */
+        public Builder sparse(boolean sparse) {
+            this.sparse = sparse;
+            return this;
+        }
+
+        /**
+         * Creates the recognizer.
+         * 
+         * @return New recognizer
+         * @throws IllegalArgumentException If the fallback uses a
+         *         different number of points than the network, the
+         *         tolerance is negative or the network does not have an
+         *         input for every feature
+         */
+        public GestureRecognizer build() {
+            return new GestureRecognizer(this);
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package hr.fer.seminar.recognition;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies which can be recorded from any number of
+ * threads without locking. Values are counted in buckets whose width
+ * grows with the value (every power of two is split into
+ * {@value #SUB_BUCKETS} buckets), so the relative error of every
+ * reported percentile is at most about 3% while the memory used by the
+ * histogram is constant.
+ *
+ * Reading the percentiles while values are being recorded is safe, but
+ * the result may not include the values recorded at the same time.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    /** Number of bits used for the position within a power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** Number of buckets every power of two is split into. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Number of buckets needed for all positive long values. */
+    private static final int NUM_OF_BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS
+            + 2 * SUB_BUCKETS;
+
+    /** Number of recorded values in every bucket. */
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_OF_BUCKETS);
+    /** Total number of recorded values. */
+    private final LongAdder totalCount = new LongAdder();
+    /** Sum of all the recorded values. */
+    private final LongAdder sum = new LongAdder();
+    /** Greatest recorded value. */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the given value.
+     *
+     * @param value Value to be recorded, negative values are recorded
+     *        as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the greatest recorded value.
+     *
+     * @return Greatest value or 0 if no value was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return Mean or 0 if no value was recorded
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the
+     * recorded values falls. The returned value is the greatest value
+     * which falls into the same bucket as the exact percentile.
+     *
+     * @param percentile Percentile in range [0, 100]
+     * @return Value at the percentile or 0 if no value was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Adds all the values recorded in the given histogram to this one.
+     *
+     * @param other Histogram whose values are added
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        sum.add(other.sum.sum());
+
+        long otherMax = other.max.get();
+        long currentMax = max.get();
+        while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Removes all the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Returns the index of the bucket the given value falls into.
+     *
+     * @param value Non-negative value
+     * @return Index of the bucket
+     */
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the greatest value which falls into the given bucket.
+     *
+     * @param bucket Index of the bucket
+     * @return Greatest value of the bucket
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
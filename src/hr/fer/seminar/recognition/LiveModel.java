@@ -0,0 +1,239 @@
+package hr.fer.seminar.recognition;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hr.fer.seminar.dataCollecting.DecimalPoint;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+
+/**
+ * Holder of the model currently used for recognition, which can be
+ * replaced while gestures are being recognised. A new network is
+ * trained and validated on its own, and then published by a single
+ * atomic swap of the current {@link ModelVersion}. Every recognition
+ * reads the current version once, so recognitions in progress finish
+ * on the old model while the new ones already use the new model and
+ * no recognition ever has to wait for a swap.
+ *
+ * A published network must not be modified any more; to continue
+ * training it, train a copy and publish the copy.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class LiveModel {
+
+    /** Currently published version or null. */
+    private final AtomicReference<ModelVersion> current = new AtomicReference<>();
+    /** Number of the last created version. */
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    /** Output needed for recognition to be successful. */
+    private final double precision;
+    /** Metrics the latencies are recorded in. */
+    private final RecognitionMetrics metrics;
+    /** Cache shared by all the versions or null. */
+    private final RecognitionCache cache;
+
+    /**
+     * Creates a new holder without a published model.
+     *
+     * @param precision Output needed for recognition to be successful
+     * @param metrics Metrics the latencies are recorded in
+     * @param cache Cache of the results shared by all the versions or
+     *        null for no caching
+     */
+    public LiveModel(double precision, RecognitionMetrics metrics, RecognitionCache cache) {
+        this.precision = precision;
+        this.metrics = metrics;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the currently published version.
+     *
+     * @return Current version or null if no model was published
+     */
+    public ModelVersion getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Publishes the given network as the new current model.
+     *
+     * @param network Trained network, not modified any more
+     * @param fallback Recognizer used when the network is not certain
+     *        enough or null for no fallback
+     * @param validationAccuracy Accuracy of the network on the
+     *        validation examples or NaN if it was not validated
+     * @return Published version
+     */
+    public ModelVersion publish(NeuralNetwork network, TemplateRecognizer fallback,
+            double validationAccuracy) {
+        ModelVersion version = createVersion(network, fallback, validationAccuracy);
+        current.set(version);
+        invalidateCache();
+        return version;
+    }
+
+    /**
+     * Publishes the given network unless it is a retrained version of
+     * the current model which is less accurate on the validation
+     * examples by more than the given tolerance. A network whose layers
+     * differ in size from the current one, because it was built for
+     * another number of points, hidden neurons or gestures, is always
+     * published, since the accuracies of the two are not comparable.
+     * The tolerance should be at least the accuracy of a single
+     * validation example, so that the accuracy measured on a few
+     * examples is not taken as a strict ordering of the models.
+     *
+     * The comparison and the swap are atomic, so of two networks
+     * published at the same time the more accurate one stays published.
+     * A network which was not validated (NaN accuracy) replaces only a
+     * model which was not validated either, and is always replaced by a
+     * validated one.
+     *
+     * @param network Trained network, not modified any more
+     * @param fallback Recognizer used when the network is not certain
+     *        enough or null for no fallback
+     * @param validationAccuracy Accuracy of the network on the
+     *        validation examples or NaN if it was not validated
+     * @param tolerance Greatest loss of accuracy which is accepted
+     * @return Published version or null if the current model is more
+     *         accurate
+     */
+    public ModelVersion publishIfBetter(NeuralNetwork network, TemplateRecognizer fallback,
+            double validationAccuracy, double tolerance) {
+        ModelVersion version = createVersion(network, fallback, validationAccuracy);
+        while (true) {
+            ModelVersion previous = current.get();
+            if (previous != null && isSameArchitecture(network, previous.getNetwork())
+                    && !isAtLeastAsAccurate(validationAccuracy + tolerance,
+                            previous.getValidationAccuracy())) {
+                return null;
+            }
+            if (current.compareAndSet(previous, version)) {
+                invalidateCache();
+                return version;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given networks have layers of the same sizes.
+     *
+     * @param network Network
+     * @param other Other network
+     * @return True if the layers have the same sizes
+     */
+    private static boolean isSameArchitecture(NeuralNetwork network, NeuralNetwork other) {
+        return network.getInputLayerSize() == other.getInputLayerSize()
+                && network.getHiddenLayerSize() == other.getHiddenLayerSize()
+                && network.getOutputLayerSize() == other.getOutputLayerSize();
+    }
+
+    /**
+     * Checks whether a network with the given validation accuracy may
+     * replace a model with the other accuracy.
+     *
+     * @param accuracy Accuracy of the new network or NaN
+     * @param currentAccuracy Accuracy of the current model or NaN
+     * @return True if the new network is at least as accurate
+     */
+    private static boolean isAtLeastAsAccurate(double accuracy, double currentAccuracy) {
+        if (Double.isNaN(currentAccuracy)) {
+            return true;
+        }
+        return !Double.isNaN(accuracy) && accuracy >= currentAccuracy;
+    }
+
+    /**
+     * Recognises the gesture containing the given points using the
+     * current model.
+     *
+     * @param points Points of the gesture as they were drawn
+     * @return Result of the recognition
+     * @throws IllegalStateException If no model was published
+     */
+    public Recognition recognize(List<DecimalPoint> points) {
+        ModelVersion version = current.get();
+        if (version == null) {
+            throw new IllegalStateException("No model was published.");
+        }
+        return version.getRecognizer().recognize(points);
+    }
+
+    /**
+     * Recognises the gesture containing the points of the given snapshot
+     * using the current model.
+     *
+     * @param stroke Snapshot of the points as they were drawn
+     * @return Result of the recognition
+     * @throws IllegalStateException If no model was published
+     */
+    public Recognition recognize(StrokeBuffer.Snapshot stroke) {
+        ModelVersion version = current.get();
+        if (version == null) {
+            throw new IllegalStateException("No model was published.");
+        }
+        return version.getRecognizer().recognize(stroke);
+    }
+
+    /**
+     * Returns the output needed for recognition to be successful.
+     *
+     * @return Precision
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the metrics the latencies of all the versions are
+     * recorded in.
+     *
+     * @return Metrics
+     */
+    public RecognitionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the cache shared by all the versions.
+     *
+     * @return Cache or null if the results are not cached
+     */
+    public RecognitionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Creates a new version of the given network.
+     *
+     * @param network Trained network
+     * @param fallback Fallback recognizer or null
+     * @param validationAccuracy Accuracy on the validation examples
+     * @return New version
+     */
+    private ModelVersion createVersion(NeuralNetwork network, TemplateRecognizer fallback,
+            double validationAccuracy) {
+        GestureRecognizer recognizer = new GestureRecognizer.Builder(network, precision)
+                .metrics(metrics).fallback(fallback).cache(cache).sparse(true).build();
+        return new ModelVersion(lastVersion.incrementAndGet(), recognizer, validationAccuracy,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Removes the results of the replaced models from the cache. The
+     * cached results are bound to their network, so a result of the old
+     * model stored after this call is never returned for the new one.
+     */
+    private void invalidateCache() {
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+}
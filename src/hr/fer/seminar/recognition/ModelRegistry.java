@@ -0,0 +1,426 @@
+package hr.fer.seminar.recognition;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import hr.fer.seminar.dataCollecting.DecimalPoint;
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+import hr.fer.seminar.neuralNetwork.NetworkSerializer;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.SparseNeuralNetwork;
+
+/**
+ * Registry of the personalised models of many users, which recognises
+ * the gestures of every user with the model of the user. The model of
+ * a user is loaded from the directory of the registry when it is first
+ * needed and kept in memory as long as the weights of all the loaded
+ * models fit into the given budget; when they do not, the least
+ * recently used models are evicted and loaded again on their next use.
+ *
+ * The model of a user is stored in the file named after the user with
+ * the {@link #MODEL_EXTENSION} extension, written by
+ * {@link NetworkSerializer}, and the vocabulary of its gestures in the
+ * file returned by {@link #vocabularyFile(Path)}. Models without a
+ * vocabulary use the default one. A model trained on the features of
+ * the gestures has its extractor saved to the file returned by
+ * {@link #featuresFile(Path)}; other models get the coordinates of the
+ * representative points. A pruned model is run as a
+ * {@link SparseNeuralNetwork}, so only the weights which differ from
+ * zero are kept and count against the budget.
+ *
+ * All the models share the precision, the metrics and the cache of the
+ * registry, so they are preprocessed and measured in the same way. The
+ * registry can be used from multiple threads at the same time; a model
+ * requested by several threads at once is loaded only once, and
+ * loading never blocks the recognition with models already in memory.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class ModelRegistry {
+
+    /** Extension of the files with the models. */
+    public static final String MODEL_EXTENSION = ".bin";
+    /** Extension of the file with the vocabulary of a model. */
+    public static final String VOCABULARY_EXTENSION = ".vocabulary";
+    /** Extension of the file with the feature extractor of a model. */
+    public static final String FEATURES_EXTENSION = ".features";
+
+    /** Directory with the models. */
+    private final Path directory;
+    /** Greatest number of bytes taken by the weights of loaded models. */
+    private final long budget;
+    /** Output needed for recognition to be successful. */
+    private final double precision;
+    /** Metrics the latencies are recorded in. */
+    private final RecognitionMetrics metrics;
+    /** Cache shared by all the models or null. */
+    private final RecognitionCache cache;
+
+    /** Loaded models from the least to the most recently used. */
+    private final LinkedHashMap<String, UserModel> models = new LinkedHashMap<>(16, 0.75f, true);
+    /** Models being loaded. */
+    private final Map<String, FutureTask<UserModel>> loading = new HashMap<>();
+    /** Number of bytes taken by the weights of the loaded models. */
+    private long memorySize;
+
+    /** Number of requests for a model which was already loaded. */
+    private final LongAdder hits = new LongAdder();
+    /** Number of loaded models. */
+    private final LongAdder loads = new LongAdder();
+    /** Number of models evicted to stay within the budget. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new registry of the models in the given directory.
+     *
+     * @param directory Directory with the models
+     * @param budget Greatest number of bytes taken by the weights of the
+     *        loaded models; the most recently used model is always kept,
+     *        even if it alone exceeds the budget
+     * @param precision Output needed for recognition to be successful
+     * @param metrics Metrics the latencies are recorded in
+     * @param cache Cache of the results shared by all the models or
+     *        null for no caching; results of evicted models stay in the
+     *        cache, keeping their models in memory, until the cache
+     *        evicts them as well
+     * @throws IllegalArgumentException If the budget is not positive
+     */
+    public ModelRegistry(Path directory, long budget, double precision,
+            RecognitionMetrics metrics, RecognitionCache cache) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive.");
+        }
+        this.directory = directory;
+        this.budget = budget;
+        this.precision = precision;
+        this.metrics = metrics;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the file with the model of the given user in the given
+     * directory.
+     *
+     * @param directory Directory with the models
+     * @param user Identifier of the user
+     * @return File of the model
+     */
+    public static Path modelFile(Path directory, String user) {
+        return directory.resolve(user + MODEL_EXTENSION);
+    }
+
+    /**
+     * Returns the file with the vocabulary of the model saved to the
+     * given file.
+     *
+     * @param model File of the model
+     * @return File of the vocabulary
+     */
+    public static Path vocabularyFile(Path model) {
+        return model.resolveSibling(model.getFileName() + VOCABULARY_EXTENSION);
+    }
+
+    /**
+     * Returns the file with the feature extractor of the model saved to
+     * the given file, which exists only if the model was trained on the
+     * features of the gestures (see {@link GestureFeatures}).
+     *
+     * @param model File of the model
+     * @return File of the feature extractor
+     */
+    public static Path featuresFile(Path model) {
+        return model.resolveSibling(model.getFileName() + FEATURES_EXTENSION);
+    }
+
+    /**
+     * Recognises the gesture of the given user containing the given
+     * points.
+     *
+     * @param user Identifier of the user
+     * @param points Points of the gesture as they were drawn
+     * @return Result of the recognition
+     * @throws IOException If the model of the user could not be loaded
+     */
+    public Recognition recognize(String user, List<DecimalPoint> points) throws IOException {
+        return get(user).getRecognizer().recognize(points);
+    }
+
+    /**
+     * Recognises the gesture of the given user containing the points of
+     * the given snapshot.
+     *
+     * @param user Identifier of the user
+     * @param stroke Snapshot of the points as they were drawn
+     * @return Result of the recognition
+     * @throws IOException If the model of the user could not be loaded
+     * @throws IllegalArgumentException If the snapshot contains no
+     *         points
+     */
+    public Recognition recognize(String user, StrokeBuffer.Snapshot stroke) throws IOException {
+        return get(user).getRecognizer().recognize(stroke);
+    }
+
+    /**
+     * Returns the model of the given user, loading it if it is not in
+     * memory.
+     *
+     * @param user Identifier of the user
+     * @return Model of the user
+     * @throws IllegalArgumentException If the identifier can not be the
+     *         name of a file
+     * @throws java.nio.file.NoSuchFileException If the user has no
+     *         model
+     * @throws IOException If the model could not be loaded
+     */
+    public UserModel get(String user) throws IOException {
+        if (!GestureVocabulary.isValidName(user)) {
+            throw new IllegalArgumentException("Invalid user: '" + user + "'.");
+        }
+
+        FutureTask<UserModel> task;
+        boolean owner = false;
+        synchronized (this) {
+            UserModel model = models.get(user);
+            if (model != null) {
+                hits.increment();
+                return model;
+            }
+            task = loading.get(user);
+            if (task == null) {
+                task = new FutureTask<>(() -> load(user));
+                loading.put(user, task);
+                owner = true;
+            }
+        }
+
+        // the model is loaded without holding the lock, other threads
+        // requesting it wait for the same task
+        if (owner) {
+            task.run();
+        }
+        try {
+            UserModel model = task.get();
+            if (owner) {
+                add(user, task, model);
+            }
+            return model;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading the model of " + user);
+        } catch (ExecutionException e) {
+            if (owner) {
+                synchronized (this) {
+                    loading.remove(user, task);
+                }
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to load the model of " + user + ".", e.getCause());
+        }
+    }
+
+    /**
+     * Removes the model of the given user from memory, so the next
+     * recognition loads it again, for example after it was retrained. A
+     * load in progress is not added to the registry.
+     *
+     * @param user Identifier of the user
+     */
+    public synchronized void invalidate(String user) {
+        loading.remove(user);
+        UserModel model = models.remove(user);
+        if (model != null) {
+            memorySize -= model.getMemorySize();
+        }
+    }
+
+    /**
+     * Loads the model of the given user.
+     *
+     * @param user Identifier of the user
+     * @return Loaded model
+     * @throws IOException If the model could not be loaded
+     */
+    private UserModel load(String user) throws IOException {
+        Path file = modelFile(directory, user);
+        NeuralNetwork network = NetworkSerializer.load(file);
+        GestureVocabulary vocabulary = Files.exists(vocabularyFile(file))
+                ? GestureVocabulary.load(vocabularyFile(file))
+                : GestureVocabulary.createDefault();
+        if (vocabulary.size() != network.getOutputLayerSize()) {
+            throw new IOException("Vocabulary of " + user + " does not match the model.");
+        }
+        GestureFeatures features = Files.exists(featuresFile(file))
+                ? GestureFeatures.load(featuresFile(file)) : null;
+        if (features != null && features.size() != network.getInputLayerSize()) {
+            throw new IOException("Features of " + user + " do not match the model.");
+        }
+
+        loads.increment();
+        GestureRecognizer recognizer = new GestureRecognizer.Builder(network, precision)
+                .metrics(metrics).cache(cache).features(features).sparse(true).build();
+        return new UserModel(user, recognizer, vocabulary, recognizer.getMemorySize());
+    }
+
+    /**
+     * Adds the given loaded model to the registry, unless the model was
+     * invalidated while it was being loaded, and evicts the least
+     * recently used models until the loaded models fit into the budget.
+     *
+     * @param user Identifier of the user
+     * @param task Task which loaded the model
+     * @param model Loaded model
+     */
+    private synchronized void add(String user, FutureTask<UserModel> task, UserModel model) {
+        if (!loading.remove(user, task)) {
+            return;
+        }
+        models.put(user, model);
+        memorySize += model.getMemorySize();
+
+        Iterator<UserModel> iterator = models.values().iterator();
+        while (memorySize > budget && models.size() > 1) {
+            memorySize -= iterator.next().getMemorySize();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Returns the number of models in memory.
+     *
+     * @return Number of loaded models
+     */
+    public synchronized int size() {
+        return models.size();
+    }
+
+    /**
+     * Returns the number of bytes taken by the weights of the models in
+     * memory.
+     *
+     * @return Size of the loaded models in bytes
+     */
+    public synchronized long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * Returns the greatest number of bytes taken by the weights of the
+     * models in memory.
+     *
+     * @return Budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the number of requests for a model which was in memory.
+     *
+     * @return Number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of models loaded from the directory.
+     *
+     * @return Number of loads
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns the number of models evicted to stay within the budget.
+     *
+     * @return Number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Model of a single user together with the vocabulary of its
+     * gestures.
+     */
+    public static final class UserModel {
+        /** Identifier of the user. */
+        private final String user;
+        /** Recognizer using the network of the user. */
+        private final GestureRecognizer recognizer;
+        /** Vocabulary of the gestures of the user. */
+        private final GestureVocabulary vocabulary;
+        /** Number of bytes taken by the weights. */
+        private final long memorySize;
+
+        /**
+         * Creates a new model.
+         *
+         * @param user Identifier of the user
+         * @param recognizer Recognizer using the network of the user
+         * @param vocabulary Vocabulary of the gestures of the user
+         * @param memorySize Number of bytes taken by the weights
+         */
+        private UserModel(String user, GestureRecognizer recognizer,
+                GestureVocabulary vocabulary, long memorySize) {
+            this.user = user;
+            this.recognizer = recognizer;
+            this.vocabulary = vocabulary;
+            this.memorySize = memorySize;
+        }
+
+        /**
+         * Returns the identifier of the user.
+         *
+         * @return Identifier of the user
+         */
+        public String getUser() {
+            return user;
+        }
+
+        /**
+         * Returns the recognizer using the network of the user.
+         *
+         * @return Recognizer
+         */
+        public GestureRecognizer getRecognizer() {
+            return recognizer;
+        }
+
+        /**
+         * Returns the vocabulary of the gestures of the user, which
+         * turns the recognised labels into names.
+         *
+         * @return Vocabulary
+         */
+        public GestureVocabulary getVocabulary() {
+            return vocabulary;
+        }
+
+        /**
+         * Returns the number of bytes taken by the weights.
+         *
+         * @return Size of the model in bytes
+         */
+        public long getMemorySize() {
+            return memorySize;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package hr.fer.seminar.recognition;
+
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+
+/**
+ * Version of the model published in a {@link LiveModel}: a recognizer
+ * built around a trained network, the number of the version and the
+ * accuracy the network reached on the validation examples before it
+ * was published. A version is immutable and its network must not be
+ * modified once it is published.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class ModelVersion {
+
+    /** Number of the version, starting from 1. */
+    private final long version;
+    /** Recognizer of the version. */
+    private final GestureRecognizer recognizer;
+    /** Accuracy on the validation examples. */
+    private final double validationAccuracy;
+    /** Time the version was published in milliseconds since epoch. */
+    private final long publishedAt;
+
+    /**
+     * Creates a new version.
+     *
+     * @param version Number of the version
+     * @param recognizer Recognizer of the version
+     * @param validationAccuracy Accuracy on the validation examples or
+     *        NaN if the network was not validated
+     * @param publishedAt Time the version was published in milliseconds
+     *        since epoch
+     */
+    ModelVersion(long version, GestureRecognizer recognizer, double validationAccuracy,
+            long publishedAt) {
+        this.version = version;
+        this.recognizer = recognizer;
+        this.validationAccuracy = validationAccuracy;
+        this.publishedAt = publishedAt;
+    }
+
+    /**
+     * Returns the number of the version.
+     *
+     * @return Number of the version, starting from 1
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the recognizer of the version.
+     *
+     * @return Recognizer
+     */
+    public GestureRecognizer getRecognizer() {
+        return recognizer;
+    }
+
+    /**
+     * Returns the network of the version.
+     *
+     * @return Trained network
+     */
+    public NeuralNetwork getNetwork() {
+        return recognizer.getNetwork();
+    }
+
+    /**
+     * Returns the accuracy the network reached on the validation
+     * examples.
+     *
+     * @return Accuracy in range [0, 1] or NaN if the network was not
+     *         validated
+     */
+    public double getValidationAccuracy() {
+        return validationAccuracy;
+    }
+
+    /**
+     * Returns the time the version was published.
+     *
+     * @return Time in milliseconds since epoch
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+}
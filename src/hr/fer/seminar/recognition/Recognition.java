@@ -0,0 +1,62 @@
+package hr.fer.seminar.recognition;
+
+/**
+ * Result of recognising a gesture: the index of the recognised gesture
+ * and the confidence of the recognizer, for a neural network its
+ * greatest output.
+ * 
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class Recognition {
+
+    /** Index of the gesture used when no gesture was recognised. */
+    public static final int UNKNOWN = -1;
+
+    /** Index of the recognised gesture or {@link #UNKNOWN}. */
+    private final int gesture;
+    /** Confidence of the recognizer. */
+    private final double confidence;
+
+    /**
+     * Creates a new recognition result.
+     * 
+     * @param gesture Index of the recognised gesture or
+     *        {@link #UNKNOWN}
+     * @param confidence Confidence of the recognizer in range [0,1]
+     */
+    public Recognition(int gesture, double confidence) {
+        this.gesture = gesture;
+        this.confidence = confidence;
+    }
+
+    /**
+     * Returns the index of the recognised gesture.
+     * 
+     * @return Index of the gesture or {@link #UNKNOWN}
+     */
+    public int getGesture() {
+        return gesture;
+    }
+
+    /**
+     * Returns the confidence of the recognizer, which indicates how
+     * certain the recognition is. For a neural network it is its
+     * greatest output.
+     * 
+     * @return Confidence in range [0,1]
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Checks whether a gesture was recognised.
+     * 
+     * @return True if a gesture was recognised
+     */
+    public boolean isRecognized() {
+        return gesture != UNKNOWN;
+    }
+
+}
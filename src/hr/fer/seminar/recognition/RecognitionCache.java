@@ -0,0 +1,319 @@
+package hr.fer.seminar.recognition;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of recognition results, so a gesture which is
+ * recognised again (a retried request, a replayed event) does not have
+ * to be given to the neural network again. Results are keyed by the
+ * representative points of the gesture rounded to the given step, so
+ * gestures whose points differ by less than the step usually share the
+ * result.
+ *
+ * The cache is split into segments, each guarded by its own lock and
+ * evicting its least recently used results, so threads recognising
+ * different gestures rarely wait for each other. Every result is
+ * stored together with the model which produced it and is returned
+ * only for the same model, so results of a replaced model are never
+ * used; {@link #invalidate()} removes them to free the memory. A model
+ * must not be modified (for example trained further) while its results
+ * are cached.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class RecognitionCache {
+
+    /** Number of independently locked segments. */
+    private static final int NUM_OF_SEGMENTS = 16;
+
+    /** Segments of the cache. */
+    private final Segment[] segments;
+    /** Step the coordinates are rounded to. */
+    private final double step;
+    /** Greatest number of cached results. */
+    private final int capacity;
+
+    /** Number of lookups which found a result. */
+    private final LongAdder hits = new LongAdder();
+    /** Number of lookups which did not find a result. */
+    private final LongAdder misses = new LongAdder();
+    /** Number of results removed to make room for new ones. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity Greatest number of cached results
+     * @param step Step the coordinates of the representative points are
+     *        rounded to
+     * @throws IllegalArgumentException If the capacity or the step is
+     *         not positive
+     */
+    public RecognitionCache(int capacity, double step) {
+        if (capacity <= 0 || step <= 0) {
+            throw new IllegalArgumentException("Capacity and step must be positive.");
+        }
+
+        this.capacity = capacity;
+        this.step = step;
+        this.segments = new Segment[Math.min(NUM_OF_SEGMENTS, capacity)];
+        for (int i = 0; i < segments.length; i++) {
+            int segmentCapacity = capacity / segments.length
+                    + (i < capacity % segments.length ? 1 : 0);
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Creates the key of the given representative points.
+     *
+     * @param input Coordinates of the representative points
+     * @return Key of the points
+     */
+    public Key keyOf(double[] input) {
+        int[] coordinates = new int[input.length];
+        for (int i = 0; i < input.length; i++) {
+            coordinates[i] = (int) Math.round(input[i] / step);
+        }
+        return new Key(coordinates);
+    }
+
+    /**
+     * Returns the result cached for the given key by the given model.
+     *
+     * @param model Model which recognises the gesture, compared by
+     *        identity
+     * @param key Key of the gesture
+     * @return Cached result or null if there is none
+     */
+    public Recognition get(Object model, Key key) {
+        CachedResult entry = segmentOf(key).get(key);
+        if (entry != null && entry.model == model) {
+            hits.increment();
+            return entry.recognition;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the result of recognising the gesture with the given key
+     * by the given model.
+     *
+     * @param model Model which recognised the gesture
+     * @param key Key of the gesture
+     * @param recognition Result of the recognition
+     */
+    public void put(Object model, Key key, Recognition recognition) {
+        segmentOf(key).put(key, new CachedResult(model, recognition));
+    }
+
+    /**
+     * Removes all the cached results. Should be called when the model
+     * is replaced.
+     */
+    public void invalidate() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of lookups which found a result.
+     *
+     * @return Number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a result.
+     *
+     * @return Number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of results removed to make room for new ones.
+     *
+     * @return Number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the share of the lookups which found a result.
+     *
+     * @return Hit rate in range [0, 1]
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return Number of results
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the greatest number of cached results.
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the segment the given key belongs to.
+     *
+     * @param key Key of a gesture
+     * @return Segment of the key
+     */
+    private Segment segmentOf(Key key) {
+        int hash = key.hash ^ (key.hash >>> 16);
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    /**
+     * Key of a gesture: its representative points rounded to the step
+     * of the cache.
+     */
+    public static final class Key {
+        /** Rounded coordinates. */
+        private final int[] coordinates;
+        /** Hash of the coordinates. */
+        private final int hash;
+
+        /**
+         * Creates a new key.
+         *
+         * @param coordinates Rounded coordinates
+         */
+        private Key(int[] coordinates) {
+            this.coordinates = coordinates;
+            this.hash = Arrays.hashCode(coordinates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.equals(coordinates, other.coordinates);
+        }
+    }
+
+    /**
+     * Cached result with the model which produced it.
+     */
+    private static final class CachedResult {
+        /** Model which produced the result. */
+        private final Object model;
+        /** Result of the recognition. */
+        private final Recognition recognition;
+
+        /**
+         * Creates a new entry.
+         *
+         * @param model Model which produced the result
+         * @param recognition Result of the recognition
+         */
+        private CachedResult(Object model, Recognition recognition) {
+            this.model = model;
+            this.recognition = recognition;
+        }
+    }
+
+    /**
+     * Part of the cache evicting its least recently used entries.
+     */
+    private final class Segment {
+        /** Entries in the order of their last use. */
+        private final LinkedHashMap<Key, CachedResult> entries;
+
+        /**
+         * Creates a new segment.
+         *
+         * @param segmentCapacity Greatest number of entries
+         */
+        private Segment(int segmentCapacity) {
+            entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                    if (size() > segmentCapacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Returns the entry with the given key and marks it as used.
+         *
+         * @param key Key of the entry
+         * @return Entry or null if there is none
+         */
+        private synchronized CachedResult get(Key key) {
+            return entries.get(key);
+        }
+
+        /**
+         * Stores the given entry.
+         *
+         * @param key Key of the entry
+         * @param entry Entry
+         */
+        private synchronized void put(Key key, CachedResult entry) {
+            entries.put(key, entry);
+        }
+
+        /**
+         * Removes all the entries.
+         */
+        private synchronized void clear() {
+            entries.clear();
+        }
+
+        /**
+         * Returns the number of entries.
+         *
+         * @return Number of entries
+         */
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package hr.fer.seminar.recognition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latencies of the stages of recognising a gesture, recorded in a
+ * {@link LatencyHistogram} per stage. Recording can be switched off, in
+ * which case the recognition path does not even read the clock.
+ *
+ * The default instance is shared by all the recognizers which are not
+ * given their own metrics. It is enabled unless the system property
+ * 'gesture.metrics' is set to 'false'.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class RecognitionMetrics {
+
+    /**
+     * Stages of the recognition path.
+     */
+    public enum Stage {
+        /** Normalising the drawn points to range [-1, 1]. */
+        NORMALISE,
+        /** Simplifying dense strokes. */
+        SIMPLIFY,
+        /** Extracting the representative points. */
+        RESAMPLE,
+        /** Packing the representative points into the network input. */
+        PACK,
+        /** Extracting the features of the representative points. */
+        FEATURES,
+        /** Looking up the result in the cache. */
+        CACHE,
+        /** Calculating the outputs of the network. */
+        NETWORK,
+        /** Searching the nearest template when the network is not certain. */
+        TEMPLATE,
+        /** Whole recognition. */
+        TOTAL
+    }
+
+    /** Metrics shared by the recognizers without their own metrics. */
+    private static final RecognitionMetrics DEFAULT = new RecognitionMetrics(
+            !"false".equalsIgnoreCase(System.getProperty("gesture.metrics")));
+
+    /** Histogram of every stage, indexed by the ordinal of the stage. */
+    private final LatencyHistogram[] histograms;
+    /** Whether latencies are recorded. */
+    private volatile boolean enabled;
+
+    /**
+     * Creates new metrics.
+     *
+     * @param enabled Whether latencies are recorded
+     */
+    public RecognitionMetrics(boolean enabled) {
+        this.enabled = enabled;
+        this.histograms = new LatencyHistogram[Stage.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Returns the metrics shared by the recognizers which are not given
+     * their own metrics.
+     *
+     * @return Default metrics
+     */
+    public static RecognitionMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Checks whether latencies are recorded.
+     *
+     * @return True if latencies are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches recording of the latencies on or off.
+     *
+     * @param enabled Whether latencies are recorded
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records the latency of the given stage.
+     *
+     * @param stage Stage of the recognition
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Returns the histogram of the given stage.
+     *
+     * @param stage Stage of the recognition
+     * @return Histogram of the latencies in nanoseconds
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Removes all the recorded latencies.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Formats the recorded latencies as a table with one row per stage.
+     * Latencies are given in microseconds.
+     *
+     * @return Lines of the table
+     */
+    public List<String> toTable() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-10s %9s %9s %9s %9s %9s %9s", "stage", "count",
+                "mean_us", "p50_us", "p99_us", "p999_us", "max_us"));
+
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            lines.add(String.format(Locale.ROOT, "%-10s %9d %9.1f %9.1f %9.1f %9.1f %9.1f",
+                    stage.name().toLowerCase(Locale.ROOT), histogram.getCount(),
+                    histogram.getMean() / 1e3, histogram.getValueAtPercentile(50) / 1e3,
+                    histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMax() / 1e3));
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,236 @@
+package hr.fer.seminar.recognition;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import hr.fer.seminar.dataCollecting.ExampleFiles;
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.dataCollecting.StrokeBuffer;
+
+/**
+ * HTTP endpoint which recognises gestures with a
+ * {@link GestureRecognizer}, built on the HTTP server of the JDK so it
+ * needs no other libraries.
+ *
+ * A gesture is posted to {@value #PATH} in the text form of an example
+ * file without the label line: the x and y coordinate of every point
+ * on its own line, with a {@value ExampleFiles#STROKE_SEPARATOR} line
+ * between two strokes (see {@link #encode(double[], double[], int[])}).
+ * The points are read directly into a {@link StrokeBuffer}. The
+ * response contains a {@value ExampleFiles#LABEL_PREFIX} line with the
+ * name of the recognised gesture, empty if no gesture was recognised,
+ * and a 'confidence=' line with the output of the network. Invalid
+ * gestures are answered with status 400.
+ *
+ * Requests are handled by the given number of threads, which recognise
+ * the gestures concurrently. The JDK server waits to fill a packet
+ * before sending a response unless the {@value #NO_DELAY} system
+ * property is true, so the short responses wait for the delayed
+ * acknowledgement of the client for tens of milliseconds. The property
+ * is read once by the JDK for all the servers of the process, so the
+ * server does not set it: it should be given as a JVM option
+ * ({@code -Dsun.net.httpserver.nodelay=true}) or set by the
+ * application before it creates its first server.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class RecognitionServer implements Closeable {
+
+    /** Path the gestures are posted to. */
+    public static final String PATH = "/recognize";
+    /** Prefix of the line with the confidence of the recognition. */
+    public static final String CONFIDENCE_PREFIX = "confidence=";
+    /** Property of the JDK server which disables the Nagle algorithm. */
+    public static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+    /** Recognizer of the gestures. */
+    private final GestureRecognizer recognizer;
+    /** Vocabulary the labels are turned into names with. */
+    private final GestureVocabulary vocabulary;
+    /** Underlying HTTP server. */
+    private final HttpServer server;
+    /** Threads handling the requests. */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new server listening on the given address. The server
+     * does not accept requests until it is started.
+     *
+     * @param recognizer Recognizer of the gestures
+     * @param vocabulary Vocabulary of the gestures of the recognizer
+     * @param address Address the server listens on, port 0 for any
+     *        free port
+     * @param threads Number of threads handling the requests
+     * @throws IOException If the server could not be bound to the
+     *         address
+     * @throws IllegalArgumentException If the number of threads is not
+     *         positive
+     */
+    public RecognitionServer(GestureRecognizer recognizer, GestureVocabulary vocabulary,
+            InetSocketAddress address, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+        this.recognizer = recognizer;
+        this.vocabulary = vocabulary;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(address, 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return Port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server. Requests being handled are not waited for.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the body of the request recognising the gesture with the
+     * given points.
+     *
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     * @param strokeStarts Index of the first point of every stroke but
+     *        the first one
+     * @return Body of the request
+     */
+    public static byte[] encode(double[] xs, double[] ys, int[] strokeStarts) {
+        StringBuilder body = new StringBuilder(xs.length * 40);
+        int stroke = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (stroke < strokeStarts.length && strokeStarts[stroke] == i) {
+                body.append(ExampleFiles.STROKE_SEPARATOR).append('\n');
+                stroke++;
+            }
+            body.append(xs[i]).append('\n').append(ys[i]).append('\n');
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Handles a single request.
+     *
+     * @param exchange Request and its response
+     * @throws IOException If the response could not be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Gestures must be posted.\n");
+                return;
+            }
+
+            StrokeBuffer.Snapshot gesture;
+            try {
+                gesture = parse(exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            Recognition recognition = recognizer.recognize(gesture);
+            String name = recognition.isRecognized() ? vocabulary.nameOf(recognition.getGesture())
+                    : "";
+            respond(exchange, 200, String.format(Locale.ROOT, "%s%s\n%s%s\n",
+                    ExampleFiles.LABEL_PREFIX, name, CONFIDENCE_PREFIX,
+                    recognition.getConfidence()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Reads the points of the posted gesture.
+     *
+     * @param exchange Request
+     * @return Snapshot of the points
+     * @throws IOException If reading the request fails
+     * @throws IllegalArgumentException If the gesture is not valid
+     */
+    private static StrokeBuffer.Snapshot parse(HttpExchange exchange) throws IOException {
+        StrokeBuffer buffer = new StrokeBuffer();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                exchange.getRequestBody(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals(ExampleFiles.STROKE_SEPARATOR)) {
+                buffer.endStroke();
+                continue;
+            }
+            String y = reader.readLine();
+            try {
+                if (y == null || y.equals(ExampleFiles.STROKE_SEPARATOR)) {
+                    throw new NumberFormatException();
+                }
+                buffer.add(Double.parseDouble(line), Double.parseDouble(y));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid coordinates after point "
+                        + buffer.size() + ".");
+            }
+        }
+        if (buffer.size() == 0) {
+            throw new IllegalArgumentException("Gesture contains no points.");
+        }
+        return buffer.snapshot();
+    }
+
+    /**
+     * Sends the given text as the response.
+     *
+     * @param exchange Request and its response
+     * @param status Status code
+     * @param text Body of the response
+     * @throws IOException If the response could not be sent
+     */
+    private static void respond(HttpExchange exchange, int status, String text)
+            throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package hr.fer.seminar.recognition;
+
+/**
+ * Recognises gestures by finding the nearest template: an example
+ * whose representative points are the nearest to the representative
+ * points of the gesture. The templates are indexed in a
+ * {@link VantagePointTree}, so the search does not compare the gesture
+ * with every template.
+ *
+ * The recognizer works on the same inputs as the neural network, so it
+ * can be used instead of the network or as a fallback when the network
+ * is not certain enough (see {@link GestureRecognizer}). It is
+ * immutable and can be used from any number of threads.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class TemplateRecognizer {
+
+    /** Seed used for building the index. */
+    private static final long SEED = 0;
+
+    /** Index of the inputs of the templates. */
+    private final VantagePointTree index;
+    /** Gesture of every template. */
+    private final int[] gestures;
+    /** Greatest distance of the nearest template for recognition. */
+    private final double maxDistance;
+    /** Number of representative points of the templates. */
+    private final int numOfPoints;
+
+    /**
+     * Creates a new recognizer which always recognises the gesture of
+     * the nearest template.
+     *
+     * @param templates Examples used as templates
+     */
+    public TemplateRecognizer(DataSet templates) {
+        this(templates, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Creates a new recognizer.
+     *
+     * @param templates Examples used as templates
+     * @param maxDistance Greatest distance of the nearest template from
+     *        the gesture for the recognition to be successful
+     * @throws IllegalArgumentException If there are no templates
+     */
+    public TemplateRecognizer(DataSet templates, double maxDistance) {
+        if (templates.size() == 0) {
+            throw new IllegalArgumentException("At least one template is needed.");
+        }
+
+        this.index = new VantagePointTree(templates.getInputs(), SEED);
+        this.gestures = new int[templates.size()];
+        for (int i = 0; i < gestures.length; i++) {
+            gestures[i] = Evaluation.indexOfMax(templates.getExpectedOutputs()[i]);
+        }
+        this.maxDistance = maxDistance;
+        this.numOfPoints = templates.getNumOfPoints();
+    }
+
+    /**
+     * Recognises the gesture with the given representative points.
+     * The confidence of the result is 1 / (1 + d), d being the distance
+     * of the nearest template.
+     *
+     * @param input Coordinates of the representative points as they
+     *        are given to the neural network
+     * @return Result of the recognition
+     * @throws IllegalArgumentException If the number of coordinates
+     *         does not match the templates
+     */
+    public Recognition recognize(double[] input) {
+        if (input.length != numOfPoints * 2) {
+            throw new IllegalArgumentException("Expected " + numOfPoints * 2
+                    + " coordinates, got " + input.length + ".");
+        }
+
+        VantagePointTree.Neighbour nearest = index.nearest(input);
+        double distance = nearest.getDistance();
+        int gesture = distance <= maxDistance ? gestures[nearest.getIndex()]
+                : Recognition.UNKNOWN;
+
+        return new Recognition(gesture, 1 / (1 + distance));
+    }
+
+    /**
+     * Returns the number of representative points of the templates.
+     *
+     * @return Number of points
+     */
+    public int getNumOfPoints() {
+        return numOfPoints;
+    }
+
+    /**
+     * Returns the number of templates.
+     *
+     * @return Number of templates
+     */
+    public int getNumOfTemplates() {
+        return gestures.length;
+    }
+
+}
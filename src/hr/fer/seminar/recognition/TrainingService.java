@@ -0,0 +1,727 @@
+package hr.fer.seminar.recognition;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hr.fer.seminar.dataCollecting.GestureVocabulary;
+import hr.fer.seminar.neuralNetwork.Checkpoint;
+import hr.fer.seminar.neuralNetwork.EpochStatistics;
+import hr.fer.seminar.neuralNetwork.NeuralNetwork;
+import hr.fer.seminar.neuralNetwork.NeuralNetworkTrainer;
+import hr.fer.seminar.neuralNetwork.TrainingCheckpointer;
+import hr.fer.seminar.neuralNetwork.TrainingListener;
+import hr.fer.seminar.neuralNetwork.WeightInitializer;
+
+/**
+ * Trains networks on a dedicated background thread and publishes the
+ * trained networks to a {@link LiveModel}. Trainings are run one after
+ * another; the ones waiting for their turn are kept in a bounded queue
+ * and a new training is rejected when the queue is full.
+ *
+ * A training owns everything it works on: the network is copied when
+ * the training is submitted and the examples are loaded on the training
+ * thread into an immutable {@link DataSet}. The vocabulary is only
+ * read; examples of gestures it does not contain are skipped. The
+ * trained network is handed over only by publishing it, so trainings
+ * cannot interfere with each other or with the recognition.
+ *
+ * A published network can also be fine-tuned on new examples (see
+ * {@link NeuralNetworkTrainer#fineTune}) instead of being trained again
+ * from random weights, which takes far fewer epochs after gestures were
+ * added.
+ *
+ * A trained network is validated and published unless it has the same
+ * layers as the current model and recognises more than one validation
+ * example fewer (see {@link LiveModel#publishIfBetter}); otherwise the
+ * current model is kept and the observer is told the network was
+ * rejected. The user can still publish a rejected network with
+ * {@link #publish(TrainingResult)}.
+ *
+ * The {@link Observer} of a training is notified through the given
+ * executor (for example the event dispatch thread). Progress updates
+ * are coalesced: while an update waits to be delivered, newer
+ * statistics replace it instead of queueing another update, so a slow
+ * observer is never flooded, and they are sent at most once per
+ * {@value #PROGRESS_INTERVAL} nanoseconds.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class TrainingService implements Closeable {
+
+    /** Minimal time between two progress updates in nanoseconds. */
+    private static final long PROGRESS_INTERVAL = 50_000_000;
+    /** Number of points of the small network of a cascade. */
+    private static final int CASCADE_POINTS = 5;
+    /** Number of hidden neurons of the small network of a cascade. */
+    private static final int CASCADE_HIDDEN = 3;
+    /** Greatest number of learning examples replayed when fine-tuning. */
+    private static final int REPLAY_SIZE = 200;
+    /**
+     * Seed of the initial weights of the small network of a cascade, of
+     * the replay sample and of the weights of new outputs.
+     */
+    private static final long SEED = 0;
+
+    /**
+     * Receives the progress and the outcome of a training.
+     */
+    public interface Observer {
+        /**
+         * Called with the statistics of the newest finished epoch.
+         *
+         * @param statistics Statistics of the epoch
+         */
+        void progress(EpochStatistics statistics);
+
+        /**
+         * Called when the network has been trained and published.
+         *
+         * @param result Result of the training
+         */
+        void finished(TrainingResult result);
+
+        /**
+         * Called when the network has been trained but was not published
+         * because the current model is more accurate. The network can
+         * still be published with {@link TrainingService#publish}.
+         *
+         * @param result Result of the training without a version
+         * @param current Version which stays published
+         */
+        void rejected(TrainingResult result, ModelVersion current);
+
+        /**
+         * Called when the training was stopped before it finished.
+         */
+        void stopped();
+
+        /**
+         * Called when the training failed.
+         *
+         * @param cause Cause of the failure
+         */
+        void failed(Throwable cause);
+    }
+
+    /**
+     * Outcome of a finished training.
+     */
+    public static class TrainingResult {
+        /** Published version of the trained network or null. */
+        private final ModelVersion version;
+        /** Cascade with the published network or null. */
+        private final CascadeRecognizer cascade;
+        /** Accuracy of the trained network on the validation examples. */
+        private final double validationAccuracy;
+        /** Trained network. */
+        private final NeuralNetwork network;
+        /** Fallback of the trained network. */
+        private final TemplateRecognizer fallback;
+        /** Small network of the cascade or null. */
+        private final NeuralNetwork smallNetwork;
+
+        /**
+         * Creates a new result.
+         *
+         * @param version Published version of the trained network or null
+         *        if the network was rejected
+         * @param cascade Cascade with the published network or null
+         * @param validationAccuracy Accuracy of the trained network on the
+         *        validation examples or NaN if it was not validated
+         * @param network Trained network
+         * @param fallback Fallback of the trained network
+         * @param smallNetwork Small network of the cascade or null
+         */
+        private TrainingResult(ModelVersion version, CascadeRecognizer cascade,
+                double validationAccuracy, NeuralNetwork network, TemplateRecognizer fallback,
+                NeuralNetwork smallNetwork) {
+            this.version = version;
+            this.cascade = cascade;
+            this.validationAccuracy = validationAccuracy;
+            this.network = network;
+            this.fallback = fallback;
+            this.smallNetwork = smallNetwork;
+        }
+
+        /**
+         * Returns the published version of the trained network.
+         *
+         * @return Published version or null if the network was rejected
+         */
+        public ModelVersion getVersion() {
+            return version;
+        }
+
+        /**
+         * Checks whether the trained network was published.
+         *
+         * @return True if the network was published
+         */
+        public boolean isPublished() {
+            return version != null;
+        }
+
+        /**
+         * Returns the accuracy of the trained network on the validation
+         * examples.
+         *
+         * @return Accuracy or NaN if the network was not validated
+         */
+        public double getValidationAccuracy() {
+            return validationAccuracy;
+        }
+
+        /**
+         * Returns the cascade in which a small network answers before
+         * the published network.
+         *
+         * @return Cascade or null if it was not requested
+         */
+        public CascadeRecognizer getCascade() {
+            return cascade;
+        }
+    }
+
+    /** Directory with learning examples. */
+    private final Path learningDirectory;
+    /** Directory with validation examples. */
+    private final Path validationDirectory;
+    /** Vocabulary of the gestures the networks recognise. */
+    private final GestureVocabulary vocabulary;
+    /** Model the trained networks are published to. */
+    private final LiveModel liveModel;
+    /** File the checkpoints are saved to. */
+    private final Path checkpointFile;
+    /** Number of epochs between two checkpoints. */
+    private final int checkpointInterval;
+    /** Executor the observers are notified through. */
+    private final Executor observerExecutor;
+
+    /** Thread running the trainings. */
+    private final ThreadPoolExecutor executor;
+    /** Trainings which are running or waiting. */
+    private final Set<Future<?>> trainings = ConcurrentHashMap.newKeySet();
+    /** Lock held while a network is published or trainings are stopped. */
+    private final Object publishLock = new Object();
+
+    /**
+     * Creates a new training service.
+     *
+     * @param learningDirectory Directory with learning examples
+     * @param validationDirectory Directory with validation examples
+     * @param vocabulary Vocabulary of the gestures the networks
+     *        recognise, which must already contain all the gestures of
+     *        the learning examples
+     * @param liveModel Model the trained networks are published to
+     * @param checkpointFile File the checkpoints are saved to
+     * @param checkpointInterval Number of epochs between two checkpoints
+     * @param queueCapacity Greatest number of waiting trainings
+     * @param observerExecutor Executor the observers are notified
+     *        through
+     */
+    public TrainingService(Path learningDirectory, Path validationDirectory,
+            GestureVocabulary vocabulary, LiveModel liveModel, Path checkpointFile,
+            int checkpointInterval, int queueCapacity, Executor observerExecutor) {
+        this.learningDirectory = learningDirectory;
+        this.validationDirectory = validationDirectory;
+        this.vocabulary = vocabulary;
+        this.liveModel = liveModel;
+        this.checkpointFile = checkpointFile;
+        this.checkpointInterval = checkpointInterval;
+        this.observerExecutor = observerExecutor;
+
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "training");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Submits training of a copy of the given network.
+     *
+     * @param network Network to be trained, it is copied and never
+     *        modified
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param cascade Whether a cascade with a small network should be
+     *        created as well
+     * @param observer Observer of the training
+     * @return Future of the training which can be used to stop it
+     * @throws RejectedExecutionException If too many trainings are
+     *         waiting
+     */
+    public Future<?> train(NeuralNetwork network, int numOfEpochs, int learningRate,
+            boolean cascade, Observer observer) {
+        NeuralNetwork candidate = new NeuralNetwork(network);
+        return submit(observer, true, listener -> {
+            DataSet dataSet = loadLearningSet(candidate.getInputLayerSize() / 2,
+                    candidate.getOutputLayerSize());
+            NeuralNetworkTrainer.train(candidate, dataSet.getInputs(),
+                    dataSet.getExpectedOutputs(), numOfEpochs, learningRate, listener);
+            return finish(candidate, dataSet, numOfEpochs, learningRate, cascade);
+        });
+    }
+
+    /**
+     * Submits resuming of the training saved in the given checkpoint.
+     *
+     * @param checkpoint Checkpoint the training is resumed from
+     * @param cascade Whether a cascade with a small network should be
+     *        created as well
+     * @param observer Observer of the training
+     * @return Future of the training which can be used to stop it
+     * @throws RejectedExecutionException If too many trainings are
+     *         waiting
+     */
+    public Future<?> resume(Checkpoint checkpoint, boolean cascade, Observer observer) {
+        return submit(observer, true, listener -> {
+            NeuralNetwork candidate = checkpoint.getNetwork();
+            DataSet dataSet = loadLearningSet(candidate.getInputLayerSize() / 2,
+                    candidate.getOutputLayerSize());
+            NeuralNetworkTrainer.resume(checkpoint, dataSet.getInputs(),
+                    dataSet.getExpectedOutputs(), listener);
+            return finish(candidate, dataSet, checkpoint.getNumOfEpochs(),
+                    checkpoint.getLearningRate(), cascade);
+        });
+    }
+
+    /**
+     * Submits fine-tuning of a copy of the currently published network
+     * on the examples from the given directory, mixed with a replay
+     * sample of the learning examples. Gestures of the vocabulary which
+     * the network has no output for get new outputs, so the gestures of
+     * the new examples must be registered in the vocabulary before the
+     * fine-tuning is submitted. Fine-tuning is not checkpointed.
+     *
+     * @param directory Directory with the new examples
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param observer Observer of the training
+     * @return Future of the training which can be used to stop it
+     * @throws IllegalStateException If no network was published
+     * @throws RejectedExecutionException If too many trainings are
+     *         waiting
+     */
+    public Future<?> fineTune(Path directory, int numOfEpochs, int learningRate,
+            Observer observer) {
+        ModelVersion current = liveModel.getCurrent();
+        if (current == null) {
+            throw new IllegalStateException("No model was published.");
+        }
+        NeuralNetwork published = current.getNetwork();
+        int numOfOutputs = Math.max(vocabulary.size(), published.getOutputLayerSize());
+        return submit(observer, false, listener -> {
+            int numOfPoints = published.getInputLayerSize() / 2;
+            List<GestureExample> newExamples = loadKnown(directory, numOfOutputs);
+            List<GestureExample> oldExamples = loadKnown(learningDirectory, numOfOutputs);
+            DataSet newSet = DataSet.of(newExamples, numOfPoints, numOfOutputs);
+            DataSet oldSet = DataSet.of(oldExamples, numOfPoints, numOfOutputs);
+            NeuralNetwork candidate = NeuralNetworkTrainer.fineTune(published,
+                    newSet.getInputs(), newSet.getExpectedOutputs(), oldSet.getInputs(),
+                    oldSet.getExpectedOutputs(), REPLAY_SIZE, numOfEpochs, learningRate,
+                    SEED, listener);
+
+            List<GestureExample> templates = new ArrayList<>(oldExamples);
+            templates.addAll(newExamples);
+            return finish(candidate, DataSet.of(templates, numOfPoints, numOfOutputs),
+                    numOfEpochs, learningRate, false);
+        });
+    }
+
+    /**
+     * Publishes the network of a rejected training regardless of its
+     * validation accuracy, for example when the user deliberately
+     * replaces a model which was more accurate on the few validation
+     * examples.
+     *
+     * @param rejected Result of the rejected training
+     * @return Result with the published version and the cascade if it
+     *         was requested
+     * @throws IllegalArgumentException If the network was already
+     *         published
+     */
+    public TrainingResult publish(TrainingResult rejected) {
+        if (rejected.isPublished()) {
+            throw new IllegalArgumentException("Network was already published.");
+        }
+        ModelVersion version;
+        synchronized (publishLock) {
+            version = liveModel.publish(rejected.network, rejected.fallback,
+                    rejected.validationAccuracy);
+        }
+        return published(version, rejected);
+    }
+
+    /**
+     * Stops the running training and removes all the waiting ones.
+     */
+    public void stopAll() {
+        List<Future<?>> current = new ArrayList<>(trainings);
+        // a training is either interrupted before it publishes or it has
+        // already published
+        synchronized (publishLock) {
+            for (Future<?> training : current) {
+                training.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a training is running or waiting. A stopped
+     * training counts as running until it has saved its last
+     * checkpoint.
+     *
+     * @return True if there is a training which has not finished
+     */
+    public boolean isBusy() {
+        return !trainings.isEmpty();
+    }
+
+    /**
+     * Stops all the trainings and the training thread.
+     */
+    @Override
+    public void close() {
+        stopAll();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Submits the given training.
+     *
+     * @param observer Observer of the training
+     * @param checkpointed Whether the training is checkpointed
+     * @param training Training run with the listener which checkpoints
+     *        it and reports its progress
+     * @return Future of the training
+     * @throws RejectedExecutionException If too many trainings are
+     *         waiting
+     */
+    private Future<?> submit(Observer observer, boolean checkpointed, Training training) {
+        TrainingTask task = new TrainingTask(observer, checkpointed, training);
+        FutureTask<TrainingResult> future = new FutureTask<TrainingResult>(task) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    task.cancelledBeforeStart();
+                }
+            }
+        };
+        task.future = future;
+
+        trainings.add(future);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            trainings.remove(future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Validates the trained network and publishes it unless the current
+     * model is more accurate, and trains the small network of the
+     * cascade if it was requested.
+     *
+     * @param candidate Trained network
+     * @param dataSet Learning examples
+     * @param numOfEpochs Number of training epochs
+     * @param learningRate Learning rate
+     * @param cascade Whether a cascade should be created
+     * @return Result of the training, without a version if the network
+     *         was rejected
+     * @throws InterruptedException If the training was stopped
+     */
+    private TrainingResult finish(NeuralNetwork candidate, DataSet dataSet, int numOfEpochs,
+            int learningRate, boolean cascade) throws InterruptedException {
+        NeuralNetwork smallNetwork = null;
+        if (cascade) {
+            DataSet smallDataSet = loadLearningSet(CASCADE_POINTS,
+                    candidate.getOutputLayerSize());
+            smallNetwork = new NeuralNetwork(smallDataSet.getNumOfInputs(), CASCADE_HIDDEN,
+                    candidate.getOutputLayerSize(), WeightInitializer.XAVIER, SEED);
+            NeuralNetworkTrainer.train(smallNetwork, smallDataSet.getInputs(),
+                    smallDataSet.getExpectedOutputs(), numOfEpochs, learningRate);
+        }
+
+        DataSet validationSet = loadValidationSet(candidate);
+        double validationAccuracy = validationSet == null ? Double.NaN
+                : Evaluation.accuracy(candidate, validationSet, liveModel.getPrecision());
+        double tolerance = validationSet == null ? 0 : 1.0 / validationSet.size();
+        TemplateRecognizer fallback = new TemplateRecognizer(dataSet);
+        ModelVersion version;
+        synchronized (publishLock) {
+            // a stopped training is never published
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Training was stopped.");
+            }
+            version = liveModel.publishIfBetter(candidate, fallback, validationAccuracy,
+                    tolerance);
+        }
+        TrainingResult result = new TrainingResult(null, null, validationAccuracy, candidate,
+                fallback, smallNetwork);
+        return version == null ? result : published(version, result);
+    }
+
+    /**
+     * Creates the result of a training whose network was published,
+     * with the cascade if its small network was trained.
+     *
+     * @param version Published version
+     * @param result Result of the training
+     * @return Result with the published version
+     */
+    private TrainingResult published(ModelVersion version, TrainingResult result) {
+        NeuralNetwork smallNetwork = result.smallNetwork;
+        CascadeRecognizer cascadeRecognizer = null;
+        if (smallNetwork != null) {
+            // the stages record into the metrics of the cascade, so a
+            // gesture passed on is not counted twice in the live metrics
+            GestureRecognizer published = version.getRecognizer();
+            RecognitionMetrics metrics = new RecognitionMetrics(
+                    liveModel.getMetrics().isEnabled());
+            List<GestureRecognizer> stages = new ArrayList<>();
+            stages.add(new GestureRecognizer(smallNetwork, published.getPrecision(), metrics));
+            stages.add(new GestureRecognizer.Builder(published.getNetwork(),
+                    published.getPrecision()).metrics(metrics)
+                            .fallback(published.getFallback()).cache(published.getCache())
+                            .sparse(published.getSparseNetwork() != null).build());
+            cascadeRecognizer = new CascadeRecognizer(stages, metrics);
+        }
+        return new TrainingResult(version, cascadeRecognizer, result.validationAccuracy,
+                result.network, result.fallback, smallNetwork);
+    }
+
+    /**
+     * Loads the learning examples with the given number of points.
+     *
+     * @param numOfPoints Number of representative points
+     * @param numOfOutputs Number of outputs of the trained network
+     * @return Learning examples
+     * @throws IllegalArgumentException If the examples could not be
+     *         loaded
+     */
+    private DataSet loadLearningSet(int numOfPoints, int numOfOutputs) {
+        return load(learningDirectory, numOfPoints, numOfOutputs);
+    }
+
+    /**
+     * Loads the examples of the gestures the network has an output for
+     * from the given directory. The examples are labelled by a copy of
+     * the vocabulary, so the gestures of the directory which are not in
+     * the vocabulary are skipped instead of being registered in the
+     * vocabulary shared with the GUI.
+     *
+     * @param directory Directory with examples
+     * @param numOfPoints Number of representative points
+     * @param numOfOutputs Number of outputs of the network
+     * @return Loaded examples
+     * @throws IllegalArgumentException If the examples could not be
+     *         loaded
+     */
+    private DataSet load(Path directory, int numOfPoints, int numOfOutputs) {
+        return DataSet.of(loadKnown(directory, numOfOutputs), numOfPoints, numOfOutputs);
+    }
+
+    /**
+     * Loads the examples of the gestures the network has an output for
+     * from the given directory, labelled as described in
+     * {@link #load(Path, int, int)}.
+     *
+     * @param directory Directory with examples
+     * @param numOfOutputs Number of outputs of the network
+     * @return Loaded examples
+     * @throws IllegalArgumentException If the examples could not be
+     *         loaded
+     */
+    private List<GestureExample> loadKnown(Path directory, int numOfOutputs) {
+        GestureVocabulary labels = new GestureVocabulary(vocabulary.getNames());
+        int numOfKnown = Math.min(numOfOutputs, labels.size());
+        List<GestureExample> examples = GestureLoader.loadExamples(directory, labels);
+        if (examples == null) {
+            throw new IllegalArgumentException("Unable to load examples from " + directory + ".");
+        }
+
+        List<GestureExample> known = new ArrayList<>(examples.size());
+        for (GestureExample example : examples) {
+            if (example.getLabel() < numOfKnown) {
+                known.add(example);
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Loads the validation examples of the given network.
+     *
+     * @param trained Trained network
+     * @return Validation examples or null if there are none
+     */
+    private DataSet loadValidationSet(NeuralNetwork trained) {
+        DataSet dataSet;
+        try {
+            dataSet = load(validationDirectory, trained.getInputLayerSize() / 2,
+                    trained.getOutputLayerSize());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return dataSet.size() == 0 ? null : dataSet;
+    }
+
+    /**
+     * Training run on the training thread.
+     */
+    private interface Training {
+        /**
+         * Runs the training.
+         *
+         * @param listener Listener notified after every epoch
+         * @return Result of the training
+         * @throws Exception If the training failed
+         */
+        TrainingResult run(TrainingListener listener) throws Exception;
+    }
+
+    /**
+     * Body of a submitted training. The training is removed from the
+     * running trainings and its observer is notified only after it has
+     * finished completely, its last checkpoint included, even when it
+     * was stopped. A training stopped before it started is finished by
+     * {@link #cancelledBeforeStart()} instead.
+     */
+    private class TrainingTask implements Callable<TrainingResult> {
+        /** Observer of the training. */
+        private final Observer observer;
+        /** Whether the training is checkpointed. */
+        private final boolean checkpointed;
+        /** Training run by the task. */
+        private final Training training;
+        /** Whether the body or the cancellation finished the training. */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        /** Future running the task, set before it is submitted. */
+        private Future<?> future;
+
+        /**
+         * Creates a new task.
+         *
+         * @param observer Observer of the training
+         * @param checkpointed Whether the training is checkpointed
+         * @param training Training run by the task
+         */
+        private TrainingTask(Observer observer, boolean checkpointed, Training training) {
+            this.observer = observer;
+            this.checkpointed = checkpointed;
+            this.training = training;
+        }
+
+        @Override
+        public TrainingResult call() throws Exception {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+
+            Runnable notification = observer::stopped;
+            try {
+                TrainingResult result;
+                ProgressReporter progress = new ProgressReporter(observer);
+                if (checkpointed) {
+                    try (TrainingCheckpointer checkpointer = new TrainingCheckpointer(
+                            checkpointFile, checkpointInterval)) {
+                        result = training.run(TrainingListener.all(progress, checkpointer));
+                    }
+                } else {
+                    result = training.run(progress);
+                }
+                if (result.isPublished()) {
+                    notification = () -> observer.finished(result);
+                } else {
+                    ModelVersion current = liveModel.getCurrent();
+                    notification = () -> observer.rejected(result, current);
+                }
+                return result;
+            } catch (InterruptedException e) {
+                // a stopped training keeps the notification it was stopped
+                throw e;
+            } catch (Exception | Error e) {
+                notification = () -> observer.failed(e);
+                throw e;
+            } finally {
+                trainings.remove(future);
+                observerExecutor.execute(notification);
+            }
+        }
+
+        /**
+         * Removes the training stopped before its body started and
+         * notifies its observer.
+         */
+        private void cancelledBeforeStart() {
+            if (claimed.compareAndSet(false, true)) {
+                trainings.remove(future);
+                observerExecutor.execute(observer::stopped);
+            }
+        }
+    }
+
+    /**
+     * Listener passing the statistics of the newest epoch to an
+     * observer, with at most one update waiting to be delivered.
+     */
+    private class ProgressReporter implements TrainingListener {
+        /** Observer of the training. */
+        private final Observer observer;
+        /** Newest statistics which have not been delivered. */
+        private final AtomicReference<EpochStatistics> latest = new AtomicReference<>();
+        /** Whether an update waits to be delivered. */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /** Time the last update was scheduled. */
+        private long lastScheduled;
+
+        /**
+         * Creates a new reporter.
+         *
+         * @param observer Observer of the training
+         */
+        private ProgressReporter(Observer observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void epochFinished(NeuralNetwork network, EpochStatistics statistics) {
+            latest.set(statistics);
+
+            long now = System.nanoTime();
+            boolean last = statistics.getEpoch() == statistics.getNumOfEpochs();
+            if ((last || now - lastScheduled > PROGRESS_INTERVAL)
+                    && scheduled.compareAndSet(false, true)) {
+                lastScheduled = now;
+                observerExecutor.execute(() -> {
+                    scheduled.set(false);
+                    EpochStatistics newest = latest.getAndSet(null);
+                    if (newest != null) {
+                        observer.progress(newest);
+                    }
+                });
+            }
+        }
+    }
+
+}
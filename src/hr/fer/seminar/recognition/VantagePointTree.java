@@ -0,0 +1,258 @@
+package hr.fer.seminar.recognition;
+
+import java.util.Random;
+
+/**
+ * Vantage-point tree over vectors of equal length which finds the
+ * vector nearest to a query in Euclidean distance. Every node of the
+ * tree holds one vector (the vantage point) and the median distance of
+ * the vectors below it from the vantage point; the nearer half is
+ * stored in the inner subtree and the farther half in the outer one.
+ * A subtree is searched only if it can contain a vector nearer than the
+ * nearest one found so far, so for well clustered vectors the search
+ * visits only a small part of the tree.
+ *
+ * The tree is stored in two arrays: the subtree of a node at position
+ * i occupies positions i to j of the arrays, the node itself being at
+ * position i, its inner subtree directly after it and its outer
+ * subtree after the middle of the range. The tree is immutable once it
+ * is built and can be searched from any number of threads.
+ *
+ * @author Dunja Vesinger
+ * @version 1.0
+ */
+public class VantagePointTree {
+
+    /** Indexed vectors. */
+    private final double[][] vectors;
+    /** Indices of the vectors in the order of the nodes of the tree. */
+    private final int[] order;
+    /** Median distance of the subtree of every node from the node. */
+    private final double[] radii;
+
+    /**
+     * Builds a new tree over the given vectors. The vectors are not
+     * copied and must not be modified while the tree is used.
+     *
+     * @param vectors Vectors of equal length
+     * @param seed Seed used for choosing the vantage points
+     * @throws IllegalArgumentException If the vectors differ in length
+     */
+    public VantagePointTree(double[][] vectors, long seed) {
+        for (double[] vector : vectors) {
+            if (vector.length != vectors[0].length) {
+                throw new IllegalArgumentException("Vectors must be of equal length.");
+            }
+        }
+
+        this.vectors = vectors;
+        this.order = new int[vectors.length];
+        this.radii = new double[vectors.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        build(0, order.length, new double[order.length], new Random(seed));
+    }
+
+    /**
+     * Finds the vector nearest to the given one.
+     *
+     * @param query Vector of the same length as the indexed ones
+     * @return Nearest vector or null if the tree is empty
+     */
+    public Neighbour nearest(double[] query) {
+        if (order.length == 0) {
+            return null;
+        }
+
+        Neighbour best = new Neighbour();
+        search(0, order.length, query, best);
+        return best;
+    }
+
+    /**
+     * Returns the number of indexed vectors.
+     *
+     * @return Number of vectors
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Builds the subtree stored in the given range of positions.
+     *
+     * @param from First position of the subtree
+     * @param to Position after the last one of the subtree
+     * @param distances Array for distances from the vantage point
+     * @param random Source of randomness for choosing vantage points
+     */
+    private void build(int from, int to, double[] distances, Random random) {
+        if (to - from <= 1) {
+            return;
+        }
+
+        swap(from, from + random.nextInt(to - from), distances);
+        double[] vantagePoint = vectors[order[from]];
+        for (int i = from + 1; i < to; i++) {
+            distances[i] = distance(vantagePoint, vectors[order[i]]);
+        }
+
+        int middle = middle(from, to);
+        select(from + 1, to, middle, distances);
+        radii[from] = distances[middle];
+
+        build(from + 1, middle, distances, random);
+        build(middle, to, distances, random);
+    }
+
+    /**
+     * Searches the subtree stored in the given range of positions,
+     * updating the nearest vector found so far.
+     *
+     * @param from First position of the subtree
+     * @param to Position after the last one of the subtree
+     * @param query Vector whose nearest vector is searched for
+     * @param best Nearest vector found so far
+     */
+    private void search(int from, int to, double[] query, Neighbour best) {
+        if (from >= to) {
+            return;
+        }
+
+        double distance = distance(query, vectors[order[from]]);
+        if (distance < best.distance) {
+            best.index = order[from];
+            best.distance = distance;
+        }
+
+        int middle = middle(from, to);
+        double radius = radii[from];
+        if (distance < radius) {
+            search(from + 1, middle, query, best);
+            if (distance + best.distance >= radius) {
+                search(middle, to, query, best);
+            }
+        } else {
+            search(middle, to, query, best);
+            if (distance - best.distance <= radius) {
+                search(from + 1, middle, query, best);
+            }
+        }
+    }
+
+    /**
+     * Returns the first position of the outer subtree of the node at
+     * the given position.
+     *
+     * @param from Position of the node
+     * @param to Position after the last one of the subtree of the node
+     * @return First position of the outer subtree
+     */
+    private static int middle(int from, int to) {
+        return (from + 1 + to) >>> 1;
+    }
+
+    /**
+     * Reorders the given range so the element at the given position is
+     * the one which would be there if the range was sorted by the
+     * distances, all the elements before it are not farther and all
+     * the elements after it are not nearer.
+     *
+     * @param from First position of the range
+     * @param to Position after the last one of the range
+     * @param k Position to be selected
+     * @param distances Distances of the elements
+     */
+    private void select(int from, int to, int k, double[] distances) {
+        int left = from;
+        int right = to - 1;
+        while (left < right) {
+            double pivot = distances[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--, distances);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swaps two positions of the order and the distances.
+     *
+     * @param i First position
+     * @param j Second position
+     * @param distances Distances of the elements
+     */
+    private void swap(int i, int j, double[] distances) {
+        int index = order[i];
+        order[i] = order[j];
+        order[j] = index;
+
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    /**
+     * Calculates the Euclidean distance of two vectors.
+     *
+     * @param a First vector
+     * @param b Second vector
+     * @return Distance of the vectors
+     */
+    static double distance(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double difference = a[i] - b[i];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Vector found by a search of the tree.
+     */
+    public static class Neighbour {
+        /** Index of the vector. */
+        private int index = -1;
+        /** Distance of the vector from the query. */
+        private double distance = Double.POSITIVE_INFINITY;
+
+        /**
+         * Returns the index of the vector in the array the tree was
+         * built from.
+         *
+         * @return Index of the vector
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the distance of the vector from the query.
+         *
+         * @return Euclidean distance
+         */
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+}